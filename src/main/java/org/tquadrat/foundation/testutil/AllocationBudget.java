@@ -0,0 +1,94 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.testutil.TestUtils.DEFAULT_ALLOCATION_ITERATIONS;
+import static org.tquadrat.foundation.testutil.TestUtils.DEFAULT_ALLOCATION_WARM_UP;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.apiguardian.api.API;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ *  Limits the memory that a test method may allocate on the heap per
+ *  invocation.<br>
+ *  <br>After the test method was executed as usual, it is invoked again,
+ *  first for the warm-up, and then for the measurement, in the same way as
+ *  with
+ *  {@link TestUtils#assertAllocatesAtMost(long, int, int, Runnable)};
+ *  the test fails if it allocated more than the given number of bytes per
+ *  measured invocation. The methods annotated with
+ *  {@link org.junit.jupiter.api.BeforeEach &#64;BeforeEach}
+ *  and
+ *  {@link org.junit.jupiter.api.AfterEach &#64;AfterEach}
+ *  are executed only once, so the test method must be repeatable on its
+ *  own. Use it like this:
+ *  <pre><code>&#64;Test
+ *  &#64;AllocationBudget( 0 )
+ *  final void testWriteIsAllocationFree() { m_Serializer.write( m_Value, m_Buffer ); }</code></pre>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( METHOD )
+@ExtendWith( AllocationBudgetInterceptor.class )
+@API( status = STABLE, since = "0.2.0" )
+public @interface AllocationBudget
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  The number of measured invocations.
+     *
+     *  @return The number of invocations.
+     */
+    int iterations() default DEFAULT_ALLOCATION_ITERATIONS;
+
+    /**
+     *  The maximum number of bytes that the test method may allocate per
+     *  invocation.
+     *
+     *  @return The number of bytes.
+     */
+    long value();
+
+    /**
+     *  The number of invocations before the measurement.
+     *
+     *  @return The number of invocations.
+     */
+    int warmUp() default DEFAULT_ALLOCATION_WARM_UP;
+}
+//  @interface AllocationBudget
+
+/*
+ *  End of File
+ */
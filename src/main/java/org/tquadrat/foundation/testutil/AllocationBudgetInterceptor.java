@@ -0,0 +1,134 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.util.Objects.nonNull;
+import static org.tquadrat.foundation.testutil.TestUtils.assertAllocatesAtMost;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+/**
+ *  The JUnit extension that enforces the
+ *  {@link AllocationBudget}
+ *  for a test method.<br>
+ *  <br>The test method is executed first as usual, so a failing test fails
+ *  with its own message; only then, it is invoked again for the
+ *  measurement.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class AllocationBudgetInterceptor implements InvocationInterceptor
+{
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code AllocationBudgetInterceptor} instance.
+     */
+    AllocationBudgetInterceptor() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Executes the test method, and then measures its allocations.
+     *
+     *  @param  invocation  The invocation of the test method.
+     *  @param  invocationContext   The context of the invocation.
+     *  @throws Throwable   The test failed.
+     */
+    private static final void executeAndMeasure( final Invocation<Void> invocation, final ReflectiveInvocationContext<Method> invocationContext ) throws Throwable
+    {
+        invocation.proceed();
+
+        final var method = invocationContext.getExecutable();
+        final var budget = method.getAnnotation( AllocationBudget.class );
+        if( nonNull( budget ) )
+        {
+            final var target = invocationContext.getTarget().orElse( null );
+            final var arguments = invocationContext.getArguments().toArray();
+            method.setAccessible( true );
+            try
+            {
+                assertAllocatesAtMost( budget.value(), budget.warmUp(), budget.iterations(), () -> invoke( method, target, arguments ) );
+            }
+            catch( final UndeclaredThrowableException e )
+            {
+                //---* A failure of a repeated invocation *--------------------
+                throw e.getUndeclaredThrowable();
+            }
+        }
+    }   //  executeAndMeasure()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void interceptTestMethod( final Invocation<Void> invocation, final ReflectiveInvocationContext<Method> invocationContext, final ExtensionContext extensionContext ) throws Throwable
+    {
+        executeAndMeasure( invocation, invocationContext );
+    }   //  interceptTestMethod()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void interceptTestTemplateMethod( final Invocation<Void> invocation, final ReflectiveInvocationContext<Method> invocationContext, final ExtensionContext extensionContext ) throws Throwable
+    {
+        executeAndMeasure( invocation, invocationContext );
+    }   //  interceptTestTemplateMethod()
+
+    /**
+     *  Invokes the test method once more.
+     *
+     *  @param  method  The test method.
+     *  @param  target  The test instance; {@code null} for a static method.
+     *  @param  arguments   The arguments for the test method.
+     *  @throws UndeclaredThrowableException    The invocation failed; the
+     *      cause is the original exception.
+     */
+    private static final void invoke( final Method method, final Object target, final Object [] arguments )
+    {
+        try
+        {
+            method.invoke( target, arguments );
+        }
+        catch( final InvocationTargetException e )
+        {
+            throw new UndeclaredThrowableException( e.getCause() );
+        }
+        catch( final IllegalAccessException e )
+        {
+            throw new UndeclaredThrowableException( e );
+        }
+    }   //  invoke()
+}
+//  class AllocationBudgetInterceptor
+
+/*
+ *  End of File
+ */
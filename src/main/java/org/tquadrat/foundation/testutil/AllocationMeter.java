@@ -0,0 +1,129 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ *  Measures the memory that the current thread allocates on the heap while
+ *  it executes an action, using
+ *  {@link ThreadMXBean#getCurrentThreadAllocatedBytes()}.<br>
+ *  <br>The action is executed a number of times before the measurement
+ *  starts, so that the JIT compiler has compiled it, and the escape
+ *  analysis has removed the allocations that it can remove. As the JIT
+ *  compiler works in the background, the compiled code may not be in place
+ *  yet when the warm-up ends; therefore the measurement is repeated for
+ *  some rounds, until the result is within the budget, and the best result
+ *  counts.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class AllocationMeter
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum number of measurement rounds: {@value}.
+     */
+    private static final int MAX_ROUNDS = 5;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private AllocationMeter() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the
+     *  {@link ThreadMXBean}
+     *  with the measurement of the allocated memory enabled.
+     *
+     *  @return The bean.
+     *  @throws UnsupportedOperationException   The JVM does not support the
+     *      measurement of the allocated memory per thread.
+     */
+    private static final ThreadMXBean getAllocationBean()
+    {
+        if( !(getThreadMXBean() instanceof final ThreadMXBean retValue) || !retValue.isThreadAllocatedMemorySupported() )
+        {
+            throw new UnsupportedOperationException( "The JVM does not support the measurement of the allocated memory per thread" );
+        }
+        if( !retValue.isThreadAllocatedMemoryEnabled() ) retValue.setThreadAllocatedMemoryEnabled( true );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getAllocationBean()
+
+    /**
+     *  Executes the given action, and returns the average number of bytes
+     *  that the current thread has allocated for each measured execution.
+     *  The measurement is repeated until the result is within the given
+     *  budget, or until the maximum number of rounds is reached; the best
+     *  result of all rounds is returned.
+     *
+     *  @param  bytes   The maximum number of bytes per execution.
+     *  @param  warmUp  The number of executions before the measurement.
+     *  @param  iterations  The number of measured executions per round; must
+     *      be greater than 0.
+     *  @param  action  The action.
+     *  @return The allocated bytes per execution.
+     *  @throws UnsupportedOperationException   The JVM does not support the
+     *      measurement of the allocated memory per thread.
+     */
+    static final double measure( final long bytes, final int warmUp, final int iterations, final Runnable action )
+    {
+        final var bean = getAllocationBean();
+
+        /*
+         * The allocations of the measurement itself are determined with an
+         * empty measurement, and then subtracted.
+         */
+        final var overhead = -bean.getCurrentThreadAllocatedBytes() + bean.getCurrentThreadAllocatedBytes();
+
+        for( var i = 0; i < warmUp; ++i ) action.run();
+
+        var retValue = Double.MAX_VALUE;
+        for( var round = 0; (round < MAX_ROUNDS) && (retValue > bytes); ++round )
+        {
+            final var start = bean.getCurrentThreadAllocatedBytes();
+            for( var i = 0; i < iterations; ++i ) action.run();
+            final var allocated = bean.getCurrentThreadAllocatedBytes() - start - overhead;
+            retValue = Math.min( retValue, (double) Math.max( 0L, allocated ) / iterations );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  measure()
+}
+//  class AllocationMeter
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,315 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.max;
+import static java.lang.String.format;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ *  The search for the first mismatch between two arrays, as it is provided
+ *  by
+ *  {@link TestUtils#findMismatch(Object, Object, int)}
+ *  and its siblings.<br>
+ *  <br>The search itself is delegated to the
+ *  {@code mismatch()}
+ *  methods of
+ *  {@link Arrays},
+ *  that are intrinsified by the JVM, so large arrays are scanned in a single,
+ *  vectorised pass. Only the elements in the window around the mismatch are
+ *  boxed, when the result is described.<br>
+ *  <br>When a
+ *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+ *  is set, arrays of {@code double} and {@code float} values are still
+ *  scanned with
+ *  {@link Arrays#mismatch(double[], int, int, double[], int, int)}
+ *  first; only the elements whose bit patterns differ are compared with the
+ *  tolerance, and the scan resumes behind them. So arrays that are mostly
+ *  identical are compared at full speed, and nothing is boxed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class ArrayComparison
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The marker for elided elements: {@value}.
+     */
+    private static final String ELISION = "...";
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ArrayComparison() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Describes the mismatch at the given index.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  index   The index of the mismatch, as returned by
+     *      {@link #mismatch(Object, Object)};
+     *      -1 if the arrays are equal.
+     *  @param  radius  The number of elements to show on each side of the
+     *      mismatch.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the description of the mismatch; empty if the arrays
+     *      are equal.
+     */
+    static final Optional<ArrayMismatch> describe( final Object lhs, final Object rhs, final int index, final int radius )
+    {
+        final var retValue = index < 0
+            ? Optional.<ArrayMismatch>empty()
+            : Optional.of( new ArrayMismatch( index, Array.getLength( lhs ), Array.getLength( rhs ), window( lhs, index, radius ), window( rhs, index, radius ) ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  describe()
+
+    /**
+     *  Checks whether both the given objects are arrays of {@code double}
+     *  values, or both are arrays of {@code float} values.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return {@code true} if the objects are arrays of the same floating
+     *      point type, {@code false} otherwise.
+     */
+    static final boolean isFloatingPointArrayPair( final Object lhs, final Object rhs )
+    {
+        final var retValue = ((lhs instanceof double []) && (rhs instanceof double []))
+            || ((lhs instanceof float []) && (rhs instanceof float []));
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isFloatingPointArrayPair()
+
+    /**
+     *  Determines the index of the first mismatch between the given arrays.
+     *  Arrays of objects are compared element by element with
+     *  {@link Object#equals(Object)},
+     *  floating point values are compared based on their bit patterns, as
+     *  {@link Arrays#equals(double[], double[])}
+     *  does.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return The index of the first mismatch; -1 if the arrays are equal.
+     *  @throws IllegalArgumentException    The arguments are not arrays of
+     *      the same primitive type, nor both arrays of objects.
+     */
+    @SuppressWarnings( "OverlyComplexMethod" )
+    static final int mismatch( final Object lhs, final Object rhs )
+    {
+        final var retValue = switch( lhs )
+        {
+            case final Object [] array when rhs instanceof final Object [] other -> Arrays.mismatch( array, other );
+            case final boolean [] array when rhs instanceof final boolean [] other -> Arrays.mismatch( array, other );
+            case final byte [] array when rhs instanceof final byte [] other -> Arrays.mismatch( array, other );
+            case final char [] array when rhs instanceof final char [] other -> Arrays.mismatch( array, other );
+            case final double [] array when rhs instanceof final double [] other -> Arrays.mismatch( array, other );
+            case final float [] array when rhs instanceof final float [] other -> Arrays.mismatch( array, other );
+            case final int [] array when rhs instanceof final int [] other -> Arrays.mismatch( array, other );
+            case final long [] array when rhs instanceof final long [] other -> Arrays.mismatch( array, other );
+            case final short [] array when rhs instanceof final short [] other -> Arrays.mismatch( array, other );
+            default -> throw new IllegalArgumentException( format( "Incompatible arrays: %s, %s", lhs.getClass().getName(), rhs.getClass().getName() ) );
+        };
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  mismatch()
+
+    /**
+     *  Determines the index of the first mismatch between the given arrays,
+     *  taking the tolerance from the given options into account for arrays
+     *  of {@code double} and {@code float} values. All other arrays are
+     *  compared as by
+     *  {@link #mismatch(Object, Object)}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  options The options for the comparison.
+     *  @return The index of the first mismatch; -1 if the arrays are equal.
+     *  @throws IllegalArgumentException    The arguments are not arrays of
+     *      the same primitive type, nor both arrays of objects.
+     */
+    static final int mismatch( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        var retValue = -1;
+        if( options.hasTolerance() && isFloatingPointArrayPair( lhs, rhs ) )
+        {
+            final var length = Math.min( Array.getLength( lhs ), Array.getLength( rhs ) );
+            retValue = lhs instanceof final double [] array
+                ? mismatch( array, (double []) rhs, 0, length, options )
+                : mismatch( (float []) lhs, (float []) rhs, 0, length, options );
+            if( (retValue < 0) && (Array.getLength( lhs ) != Array.getLength( rhs )) ) retValue = length;
+        }
+        else
+        {
+            retValue = mismatch( lhs, rhs );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  mismatch()
+
+    /**
+     *  Determines the index of the first mismatch in the given range of two
+     *  arrays of {@code double} values, taking the tolerance from the given
+     *  options into account.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  from    The index of the first element to compare
+     *      (inclusive).
+     *  @param  to  The index of the last element to compare (exclusive);
+     *      both arrays must have at least this length.
+     *  @param  options The options for the comparison.
+     *  @return The index of the first mismatch; -1 if the ranges are equal.
+     */
+    static final int mismatch( final double [] lhs, final double [] rhs, final int from, final int to, final ReflectionOptions options )
+    {
+        var retValue = -1;
+        var start = from;
+        while( (retValue < 0) && (start < to) )
+        {
+            final var offset = Arrays.mismatch( lhs, start, to, rhs, start, to );
+            if( offset < 0 )
+            {
+                start = to;
+            }
+            else
+            {
+                final var index = start + offset;
+                if( ReflectiveComparison.isEqual( lhs [index], rhs [index], options ) )
+                {
+                    start = index + 1;
+                }
+                else
+                {
+                    retValue = index;
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  mismatch()
+
+    /**
+     *  Determines the index of the first mismatch in the given range of two
+     *  arrays of {@code float} values, taking the tolerance from the given
+     *  options into account.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  from    The index of the first element to compare
+     *      (inclusive).
+     *  @param  to  The index of the last element to compare (exclusive);
+     *      both arrays must have at least this length.
+     *  @param  options The options for the comparison.
+     *  @return The index of the first mismatch; -1 if the ranges are equal.
+     */
+    static final int mismatch( final float [] lhs, final float [] rhs, final int from, final int to, final ReflectionOptions options )
+    {
+        var retValue = -1;
+        var start = from;
+        while( (retValue < 0) && (start < to) )
+        {
+            final var offset = Arrays.mismatch( lhs, start, to, rhs, start, to );
+            if( offset < 0 )
+            {
+                start = to;
+            }
+            else
+            {
+                final var index = start + offset;
+                if( ReflectiveComparison.isEqual( lhs [index], rhs [index], options ) )
+                {
+                    start = index + 1;
+                }
+                else
+                {
+                    retValue = index;
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  mismatch()
+
+    /**
+     *  Returns the elements of the given array around the given index.
+     *
+     *  @param  array   The array.
+     *  @param  index   The index.
+     *  @param  radius  The number of elements to show on each side of the
+     *      index.
+     *  @return The window.
+     */
+    private static final String window( final Object array, final int index, final int radius )
+    {
+        final var length = Array.getLength( array );
+        final var from = max( 0, index - radius );
+        final var to = (int) Math.min( length, (long) index + radius + 1 );
+        final var buffer = new StringBuilder( "[" );
+        if( from > 0 ) buffer.append( ELISION ).append( ", " );
+        for( var i = from; i < to; ++i )
+        {
+            if( i > from ) buffer.append( ", " );
+            if( i == index ) buffer.append( '>' );
+            buffer.append( TestUtils.toString( Array.get( array, i ), ToStringOptions.defaults() ) );
+            if( i == index ) buffer.append( '<' );
+        }
+        if( index >= length )
+        {
+            if( to > from ) buffer.append( ", " );
+            buffer.append( ">(none)<" );
+        }
+        else if( to < length )
+        {
+            buffer.append( ", " ).append( ELISION );
+        }
+        final var retValue = buffer.append( ']' ).toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  window()
+}
+//  class ArrayComparison
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,82 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static org.apiguardian.api.API.Status.STABLE;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The first mismatch between two arrays, as it is returned by
+ *  {@link TestUtils#findMismatch(int[], int[])}
+ *  and its siblings.<br>
+ *  <br>Besides the index of the mismatch, it holds a window of the elements
+ *  around that index from both arrays, already converted into Strings; the
+ *  differing element is enclosed in {@code >} and {@code <}, and elided
+ *  elements are marked with {@code ...}. When the shorter array is a prefix
+ *  of the longer one, the index is the length of the shorter array, and the
+ *  missing element is shown as {@code >(none)<}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @param  index   The index of the first mismatch.
+ *  @param  lhsLength   The length of the left-hand array.
+ *  @param  rhsLength   The length of the right-hand array.
+ *  @param  lhsWindow   The elements of the left-hand array around the
+ *      mismatch.
+ *  @param  rhsWindow   The elements of the right-hand array around the
+ *      mismatch.
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public record ArrayMismatch( int index, int lhsLength, int rhsLength, String lhsWindow, String rhsWindow )
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default number of elements that are shown on each side of the
+     *  mismatch: {@value}.
+     */
+    public static final int DEFAULT_RADIUS = 5;
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = format( "Arrays differ at index %d (length %d <> %d)%nlhs: %s%nrhs: %s", index, lhsLength, rhsLength, lhsWindow, rhsWindow );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  record ArrayMismatch
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,620 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.min;
+import static java.lang.String.format;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ *  The bounded conversion of an object into a String, as it is provided by
+ *  {@link TestUtils#toString(Object, Appendable, ToStringOptions)}
+ *  and its siblings.<br>
+ *  <br>The text is written directly to the target, element by element, and
+ *  only the elements that are shown are converted at all; the elements of
+ *  primitive arrays are not boxed. So the memory that is required does not
+ *  depend on the size of the converted arrays, collections or maps, but
+ *  only on the
+ *  {@linkplain ToStringOptions options}.
+ *  Arrays, collections and maps that refer to themselves, directly or
+ *  indirectly, are shown as {@code [...]} or <code>{...}</code>, like
+ *  {@link java.util.Arrays#deepToString(Object[])}
+ *  does it.<br>
+ *  <br>When
+ *  {@linkplain ReflectionOptions reflection options}
+ *  are given, as for
+ *  {@link TestUtils#reflectionToString(Object, Appendable, ReflectionOptions, ToStringOptions)},
+ *  objects are shown with the values of their fields, in the form
+ *  {@code Name[field1=value1, field2=value2]}; the fields are taken from the
+ *  same
+ *  {@linkplain ClassMetadata cached metadata}
+ *  that is used by the reflective comparison, and they are selected by the
+ *  same rules. This applies to the root object, and to all referenced
+ *  objects whose class does not override
+ *  {@link Object#toString()}.
+ *  Records are expanded component by component only if they use the
+ *  implicit
+ *  {@link Record#toString() toString()}
+ *  method, or if they are shown with their fields as described above;
+ *  otherwise, their own {@code toString()} method is called, as for any
+ *  other object.
+ *  Objects that are already on the path from the root are shown as
+ *  {@code Name[...]}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class BoundedToString
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  Writes the element with the given index.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     */
+    @FunctionalInterface
+    private interface ElementWriter
+    {
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Writes the element with the given index.
+         *
+         *  @param  index   The index.
+         *  @throws IOException Writing to the target failed.
+         */
+        void write( final int index ) throws IOException;
+    }
+    //  interface ElementWriter
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The marker for a cyclic reference, or for the contents of a record
+     *  that is located too deep: {@value}.
+     */
+    private static final String ELISION = "...";
+
+    /**
+     *  The separator for elements: {@value}.
+     */
+    private static final String SEPARATOR = ", ";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The options.
+     */
+    private final ToStringOptions m_Options;
+
+    /**
+     *  The options that select the fields of objects that are shown
+     *  reflectively; {@code null} if objects are shown with their own
+     *  {@code toString()} method.
+     */
+    private final ReflectionOptions m_ReflectionOptions;
+
+    /**
+     *  The arrays, collections, maps and records on the path from the root
+     *  to the current object.
+     */
+    private final Set<Object> m_Path = newSetFromMap( new IdentityHashMap<>() );
+
+    /**
+     *  The target.
+     */
+    private final Appendable m_Target;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The cache for the flags that tell whether a class overrides
+     *  {@link Object#toString()}.
+     */
+    private static final ClassValue<Boolean> m_UsesToString = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final Boolean computeValue( final Class<?> type ) { return Boolean.valueOf( usesToString( type ) ); }
+    };
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code BoundedToString} instance.
+     *
+     *  @param  target  The target for the text.
+     *  @param  options The options.
+     */
+    BoundedToString( final Appendable target, final ToStringOptions options )
+    {
+        this( target, options, null );
+    }   //  BoundedToString()
+
+    /**
+     *  Creates a new {@code BoundedToString} instance that shows objects
+     *  reflectively.
+     *
+     *  @param  target  The target for the text.
+     *  @param  options The options.
+     *  @param  reflectionOptions   The options that select the fields of the
+     *      objects that are shown reflectively; {@code null} if objects are
+     *      shown with their own {@code toString()} method.
+     */
+    BoundedToString( final Appendable target, final ToStringOptions options, final ReflectionOptions reflectionOptions )
+    {
+        m_Target = target;
+        m_Options = options;
+        m_ReflectionOptions = reflectionOptions;
+    }   //  BoundedToString()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Writes the given object to the target.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @throws IOException Writing to the target failed.
+     */
+    final void append( final Object object ) throws IOException
+    {
+        append( object, 0 );
+    }   //  append()
+
+    /**
+     *  Writes the given object on the given depth to the target.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  depth   The depth of the object.
+     *  @throws IOException Writing to the target failed.
+     */
+    @SuppressWarnings( {"IfStatementWithTooManyBranches", "ChainOfInstanceofChecks"} )
+    private final void append( final Object object, final int depth ) throws IOException
+    {
+        final Function<Object,String> renderer = isNull( object ) ? null : TypeDispatch.providedRenderer( object.getClass() ).orElse( null );
+        if( isNull( object ) )
+        {
+            m_Target.append( m_Options.nullDefault() );
+        }
+        else if( nonNull( renderer ) )
+        {
+            m_Target.append( renderer.apply( object ) );
+        }
+        else if( object.getClass().isArray() )
+        {
+            appendArray( object, depth );
+        }
+        else if( object instanceof final Collection<?> collection )
+        {
+            appendCollection( collection, depth );
+        }
+        else if( object instanceof final Map<?,?> map )
+        {
+            appendMap( map, depth );
+        }
+        else if( object.getClass().isRecord()
+            && nonNull( ClassMetadata.forClass( object.getClass() ).components() )
+            && (isShownReflectively( object.getClass(), depth ) || TestUtils.hasImplicitToString( object, ClassMetadata.forClass( object.getClass() ).components() )) )
+        {
+            appendRecord( object, depth );
+        }
+        else if( isShownReflectively( object.getClass(), depth ) )
+        {
+            appendFields( object, depth );
+        }
+        else
+        {
+            m_Target.append( String.valueOf( object ) );
+        }
+    }   //  append()
+
+    /**
+     *  Writes the given array to the target.
+     *
+     *  @param  array   The array.
+     *  @param  depth   The depth of the array.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendArray( final Object array, final int depth ) throws IOException
+    {
+        final var length = Array.getLength( array );
+        final ElementWriter writer = switch( array )
+        {
+            case final boolean [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final byte [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final char [] values -> i -> m_Target.append( values [i] );
+            case final double [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final float [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final int [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final long [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            case final short [] values -> i -> m_Target.append( String.valueOf( values [i] ) );
+            default -> i -> append( ((Object []) array) [i], depth + 1 );
+        };
+        appendIndexed( array, length, writer, depth );
+    }   //  appendArray()
+
+    /**
+     *  Writes the given collection to the target.
+     *
+     *  @param  collection  The collection.
+     *  @param  depth   The depth of the collection.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendCollection( final Collection<?> collection, final int depth ) throws IOException
+    {
+        if( (collection instanceof final List<?> list) && (collection instanceof RandomAccess) )
+        {
+            appendIndexed( list, list.size(), i -> append( list.get( i ), depth + 1 ), depth );
+        }
+        else if( isExpanded( collection, collection.size(), '[', ']', depth ) )
+        {
+            final var size = collection.size();
+            final var shown = min( size, m_Options.maxElements() );
+            final var tail = size > shown ? m_Options.tailElements() : 0;
+            final var head = shown - tail;
+            m_Target.append( '[' );
+            m_Path.add( collection );
+            var index = 0;
+            for( final var iterator = collection.iterator(); iterator.hasNext() && ((index < head) || (tail > 0)); ++index )
+            {
+                final var element = iterator.next();
+                if( (index < head) || (index >= size - tail) )
+                {
+                    if( index > 0 ) m_Target.append( SEPARATOR );
+                    append( element, depth + 1 );
+                }
+                else if( index == head )
+                {
+                    if( index > 0 ) m_Target.append( SEPARATOR );
+                    appendElision( size - shown );
+                }
+            }
+            if( (tail == 0) && (size > shown) )
+            {
+                if( shown > 0 ) m_Target.append( SEPARATOR );
+                appendElision( size - shown );
+            }
+            m_Path.remove( collection );
+            m_Target.append( ']' );
+        }
+    }   //  appendCollection()
+
+    /**
+     *  Writes the marker for the given number of elided elements to the
+     *  target.
+     *
+     *  @param  count   The number of elided elements.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendElision( final int count ) throws IOException
+    {
+        m_Target.append( format( Locale.ROOT, "%s %,d more", ELISION, count ) );
+    }   //  appendElision()
+
+    /**
+     *  Writes the given object to the target, in the form
+     *  {@code Name[field1=value1, field2=value2]}, with the fields along its
+     *  class hierarchy. The walk stops at the
+     *  {@linkplain ReflectionOptions#reflectUpToClass() configured superclass},
+     *  or at the first superclass that is not open for deep reflection.
+     *  Primitive values are not boxed.
+     *
+     *  @param  object  The object.
+     *  @param  depth   The depth of the object.
+     *  @throws IOException Writing to the target failed.
+     */
+    @SuppressWarnings( "OverlyComplexMethod" )
+    private final void appendFields( final Object object, final int depth ) throws IOException
+    {
+        m_Target.append( nameOf( object.getClass() ) ).append( '[' );
+        if( (depth > m_Options.maxDepth()) || m_Path.contains( object ) )
+        {
+            m_Target.append( ELISION );
+        }
+        else
+        {
+            m_Path.add( object );
+            final var reflectUpToClass = m_ReflectionOptions.reflectUpToClass();
+            var isFirst = true;
+            Class<?> type = object.getClass();
+            try
+            {
+                while( nonNull( type ) && DeepComparison.isOpen( type ) )
+                {
+                    for( final var info : ClassMetadata.forClass( type ).fields( m_ReflectionOptions.testTransients(), m_ReflectionOptions.excludedFields() ) )
+                    {
+                        if( !isFirst ) m_Target.append( SEPARATOR );
+                        isFirst = false;
+                        m_Target.append( info.name() ).append( '=' );
+                        final var field = info.field();
+                        switch( info.kind() )
+                        {
+                            case BOOLEAN -> m_Target.append( String.valueOf( field.getBoolean( object ) ) );
+                            case BYTE -> m_Target.append( String.valueOf( field.getByte( object ) ) );
+                            case CHAR -> m_Target.append( field.getChar( object ) );
+                            case DOUBLE -> m_Target.append( String.valueOf( field.getDouble( object ) ) );
+                            case FLOAT -> m_Target.append( String.valueOf( field.getFloat( object ) ) );
+                            case INT -> m_Target.append( String.valueOf( field.getInt( object ) ) );
+                            case LONG -> m_Target.append( String.valueOf( field.getLong( object ) ) );
+                            case SHORT -> m_Target.append( String.valueOf( field.getShort( object ) ) );
+                            case REFERENCE -> append( field.get( object ), depth + 1 );
+                        }
+                    }
+                    type = type == reflectUpToClass ? null : type.getSuperclass();
+                }
+            }
+            catch( final IllegalAccessException e )
+            {
+                /*
+                 * This can't happen. We would get a SecurityException instead.
+                 * But we prefer to throw a runtime exception in case the
+                 * impossible happens, instead of silently swallowing it.
+                 */
+                throw new InternalError( "Unexpected IllegalAccessException", e );
+            }
+            m_Path.remove( object );
+        }
+        m_Target.append( ']' );
+    }   //  appendFields()
+
+    /**
+     *  Writes the given array or list, whose elements can be accessed by
+     *  their index, to the target.
+     *
+     *  @param  container   The array or list.
+     *  @param  length  The number of elements.
+     *  @param  writer  Writes a single element.
+     *  @param  depth   The depth of the container.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendIndexed( final Object container, final int length, final ElementWriter writer, final int depth ) throws IOException
+    {
+        if( isExpanded( container, length, '[', ']', depth ) )
+        {
+            final var shown = min( length, m_Options.maxElements() );
+            final var tail = length > shown ? m_Options.tailElements() : 0;
+            final var head = shown - tail;
+            m_Target.append( '[' );
+            m_Path.add( container );
+            for( var i = 0; i < head; ++i )
+            {
+                if( i > 0 ) m_Target.append( SEPARATOR );
+                writer.write( i );
+            }
+            if( length > shown )
+            {
+                if( head > 0 ) m_Target.append( SEPARATOR );
+                appendElision( length - shown );
+            }
+            for( var i = length - tail; i < length; ++i )
+            {
+                m_Target.append( SEPARATOR );
+                writer.write( i );
+            }
+            m_Path.remove( container );
+            m_Target.append( ']' );
+        }
+    }   //  appendIndexed()
+
+    /**
+     *  Writes the given map to the target.
+     *
+     *  @param  map The map.
+     *  @param  depth   The depth of the map.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendMap( final Map<?,?> map, final int depth ) throws IOException
+    {
+        if( isExpanded( map, map.size(), '{', '}', depth ) )
+        {
+            final var size = map.size();
+            final var shown = min( size, m_Options.maxElements() );
+            final var tail = size > shown ? m_Options.tailElements() : 0;
+            final var head = shown - tail;
+            m_Target.append( '{' );
+            m_Path.add( map );
+            var index = 0;
+            for( final var iterator = map.entrySet().iterator(); iterator.hasNext() && ((index < head) || (tail > 0)); ++index )
+            {
+                final var entry = iterator.next();
+                if( (index < head) || (index >= size - tail) )
+                {
+                    if( index > 0 ) m_Target.append( SEPARATOR );
+                    append( entry.getKey(), depth + 1 );
+                    m_Target.append( '=' );
+                    append( entry.getValue(), depth + 1 );
+                }
+                else if( index == head )
+                {
+                    if( index > 0 ) m_Target.append( SEPARATOR );
+                    appendElision( size - shown );
+                }
+            }
+            if( (tail == 0) && (size > shown) )
+            {
+                if( shown > 0 ) m_Target.append( SEPARATOR );
+                appendElision( size - shown );
+            }
+            m_Path.remove( map );
+            m_Target.append( '}' );
+        }
+    }   //  appendMap()
+
+    /**
+     *  Writes the given record to the target, in the form
+     *  {@code Name[component1=value1, component2=value2]}.
+     *
+     *  @param  record  The record.
+     *  @param  depth   The depth of the record.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final void appendRecord( final Object record, final int depth ) throws IOException
+    {
+        m_Target.append( record.getClass().getSimpleName() ).append( '[' );
+        if( (depth > m_Options.maxDepth()) || m_Path.contains( record ) )
+        {
+            m_Target.append( ELISION );
+        }
+        else
+        {
+            m_Path.add( record );
+            final var components = ClassMetadata.forClass( record.getClass() ).components();
+            for( var i = 0; i < components.length; ++i )
+            {
+                if( i > 0 ) m_Target.append( SEPARATOR );
+                m_Target.append( components [i].name() ).append( '=' );
+                append( components [i].value( record ), depth + 1 );
+            }
+            m_Path.remove( record );
+        }
+        m_Target.append( ']' );
+    }   //  appendRecord()
+
+    /**
+     *  Checks whether the elements of the given container are to be written.
+     *  If not, because the container is located too deep, or it is already
+     *  on the path from the root, a replacement is written to the target.
+     *
+     *  @param  container   The array, collection or map.
+     *  @param  size    The number of elements.
+     *  @param  open    The opening bracket.
+     *  @param  close   The closing bracket.
+     *  @param  depth   The depth of the container.
+     *  @return {@code true} if the elements are to be written,
+     *      {@code false} if a replacement was written instead.
+     *  @throws IOException Writing to the target failed.
+     */
+    private final boolean isExpanded( final Object container, final int size, final char open, final char close, final int depth ) throws IOException
+    {
+        var retValue = true;
+        if( m_Path.contains( container ) )
+        {
+            m_Target.append( open ).append( ELISION ).append( close );
+            retValue = false;
+        }
+        else if( depth > m_Options.maxDepth() )
+        {
+            m_Target.append( open );
+            if( size > 0 ) appendElision( size );
+            m_Target.append( close );
+            retValue = false;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isExpanded()
+
+    /**
+     *  Checks whether an instance of the given class on the given depth is
+     *  shown with the values of its fields. This is the case if
+     *  {@linkplain ReflectionOptions reflection options}
+     *  are given, the class is open for deep reflection and it is not an
+     *  enum, and if it is either the root object, or its class does not
+     *  override
+     *  {@link Object#toString()}.
+     *
+     *  @param  type    The class.
+     *  @param  depth   The depth of the object.
+     *  @return {@code true} if the fields are shown, {@code false} if the
+     *      object's {@code toString()} method is used.
+     */
+    private final boolean isShownReflectively( final Class<?> type, final int depth )
+    {
+        final var retValue = nonNull( m_ReflectionOptions )
+            && !type.isEnum()
+            && DeepComparison.isOpen( type )
+            && ((depth == 0) || !m_UsesToString.get( type ).booleanValue());
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isShownReflectively()
+
+    /**
+     *  Returns the name of the given class that is shown for its instances.
+     *
+     *  @param  type    The class.
+     *  @return The simple name of the class, or the binary name for an
+     *      anonymous class.
+     */
+    private static final String nameOf( final Class<?> type )
+    {
+        final var retValue = type.isAnonymousClass() ? type.getName() : type.getSimpleName();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  nameOf()
+
+    /**
+     *  Determines whether the given class overrides
+     *  {@link Object#toString()}.
+     *
+     *  @param  type    The class.
+     *  @return {@code true} if the class or one of its superclasses, other
+     *      than
+     *      {@link Object},
+     *      declares {@code toString()}, {@code false} otherwise.
+     */
+    private static final boolean usesToString( final Class<?> type )
+    {
+        final boolean retValue;
+        try
+        {
+            retValue = type.getMethod( "toString" ).getDeclaringClass() != Object.class;
+        }
+        catch( final NoSuchMethodException e )
+        {
+            //---* Every class has a toString() method *-----------------------
+            throw new InternalError( "Unexpected NoSuchMethodException", e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  usesToString()
+}
+//  class BoundedToString
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,178 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getPlatformMXBeans;
+
+import java.lang.management.BufferPoolMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  Detects the growth of the buffer pools of the JVM while a test is
+ *  running; these are the pools for the direct buffers, including the native
+ *  memory segments that are allocated from an
+ *  {@link java.lang.foreign.Arena},
+ *  and for the mapped buffers. Their memory is allocated outside the heap,
+ *  so a leak does not show in the heap usage.<br>
+ *  <br>The memory of a buffer is released only after the buffer was
+ *  collected as garbage; therefore, if a pool has grown beyond the
+ *  thresholds, the tracker requests garbage collections until the growth is
+ *  gone, or until the deadline has passed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class BufferPoolTracker
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum pause between two checks, in nanoseconds: {@value}.
+     */
+    private static final long MAX_PAUSE = 50_000_000L;
+
+    /**
+     *  The initial pause between two checks, in nanoseconds: {@value}.
+     */
+    private static final long MIN_PAUSE = 1_000_000L;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The buffer pools.
+     */
+    private static final List<BufferPoolMXBean> m_BufferPools = getPlatformMXBeans( BufferPoolMXBean.class );
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The total capacities of the buffer pools when the tracking started, by
+     *  the name of the pool.
+     */
+    private final Map<String,Long> m_CapacitiesBefore = new HashMap<>();
+
+    /**
+     *  The numbers of the buffers in the buffer pools when the tracking
+     *  started, by the name of the pool.
+     */
+    private final Map<String,Long> m_CountsBefore = new HashMap<>();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code BufferPoolTracker} instance, and takes the
+     *  snapshot of the buffer pools.
+     */
+    BufferPoolTracker()
+    {
+        for( final var pool : m_BufferPools )
+        {
+            m_CapacitiesBefore.put( pool.getName(), Long.valueOf( pool.getTotalCapacity() ) );
+            m_CountsBefore.put( pool.getName(), Long.valueOf( pool.getCount() ) );
+        }
+    }   //  BufferPoolTracker()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the report on the buffer pools that have grown beyond the
+     *  given thresholds since the tracking was started.<br>
+     *  <br>As long as the deadline has not passed, garbage collections are
+     *  requested, and the check is repeated after increasing pauses.
+     *
+     *  @param  deadline    The time until the buffers may take to be
+     *      released, as a value of
+     *      {@link System#nanoTime()}.
+     *  @param  countThreshold  The number of buffers by that a pool may
+     *      grow.
+     *  @param  capacityThreshold   The capacity in bytes by that a pool may
+     *      grow.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if no pool has grown beyond the
+     *      thresholds.
+     */
+    final Optional<String> check( final long deadline, final long countThreshold, final long capacityThreshold )
+    {
+        var pause = MIN_PAUSE;
+        var retValue = evaluate( countThreshold, capacityThreshold );
+        while( retValue.isPresent() && (System.nanoTime() < deadline) && !Thread.currentThread().isInterrupted() )
+        {
+            System.gc();
+            LockSupport.parkNanos( Math.min( pause, deadline - System.nanoTime() ) );
+            pause = Math.min( pause * 2, MAX_PAUSE );
+            retValue = evaluate( countThreshold, capacityThreshold );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Compares the buffer pools with their state when the tracking started.
+     *
+     *  @param  countThreshold  The number of buffers by that a pool may
+     *      grow.
+     *  @param  capacityThreshold   The capacity in bytes by that a pool may
+     *      grow.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if no pool has grown beyond the
+     *      thresholds.
+     */
+    private final Optional<String> evaluate( final long countThreshold, final long capacityThreshold )
+    {
+        final Collection<String> findings = new ArrayList<>();
+        for( final var pool : m_BufferPools )
+        {
+            final var countGrowth = pool.getCount() - m_CountsBefore.getOrDefault( pool.getName(), 0L ).longValue();
+            final var capacityGrowth = pool.getTotalCapacity() - m_CapacitiesBefore.getOrDefault( pool.getName(), 0L ).longValue();
+            if( (countGrowth > countThreshold) || (capacityGrowth > capacityThreshold) )
+            {
+                findings.add( format( Locale.ROOT, "%s: %+,d buffers, %+,d bytes", pool.getName(), countGrowth, capacityGrowth ) );
+            }
+        }
+
+        final var retValue = findings.isEmpty()
+            ? Optional.<String>empty()
+            : Optional.of( format( Locale.ROOT, "Detected retained buffer memory after test (thresholds: %,d buffers, %,d bytes):%n\t%s", countThreshold, capacityThreshold, String.join( format( "%n\t" ), findings ) ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  evaluate()
+}
+//  class BufferPoolTracker
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,651 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isTransient;
+import static java.util.Objects.isNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ *  The cached reflection metadata for a single class, as it is used by
+ *  {@link TestUtils#reflectionEquals(Object, Object, boolean, Class, String[])}
+ *  and its siblings.<br>
+ *  <br>The fields that are relevant for a reflective comparison are
+ *  determined only once per class: static fields and synthetic fields (those
+ *  with a '$' in their name) are removed, the remaining fields are made
+ *  accessible, and they are stored twice – once with and once without the
+ *  transient fields. Repeated comparisons of objects of the same type will
+ *  not call
+ *  {@link Class#getDeclaredFields()}
+ *  or
+ *  {@link java.lang.reflect.AccessibleObject#setAccessible(boolean)}
+ *  again.<br>
+ *  <br>For a record, the accessors of its components are determined as
+ *  well; these are used instead of the fields, so no field of a record is
+ *  made accessible, as long as the accessors can be used. The accessors are
+ *  looked up with a
+ *  {@linkplain MethodHandles#privateLookupIn(Class, MethodHandles.Lookup) private lookup}
+ *  if the package of the record is open to this module, otherwise with the
+ *  {@linkplain MethodHandles#publicLookup() public lookup};
+ *  the latter works for public records in exported packages of any
+ *  module.<br>
+ *  <br>When fields are excluded by name, the fields and components that
+ *  remain are determined once for each set of names, and they are cached,
+ *  too; up to
+ *  {@value #MAX_EXCLUSIONS}
+ *  sets are kept for each class. So repeated comparisons with the same
+ *  exclusions neither allocate anything nor look up the names of the fields
+ *  in the set.<br>
+ *  <br>The metadata is kept in a
+ *  {@link ClassValue},
+ *  so it does not prevent the class from being unloaded.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class ClassMetadata
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The kinds of fields; the primitive types are distinguished so that
+     *  their values can be read and compared without boxing.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     */
+    enum Kind
+    {
+        /**
+         *  A field of type {@code boolean}.
+         */
+        BOOLEAN,
+
+        /**
+         *  A field of type {@code byte}.
+         */
+        BYTE,
+
+        /**
+         *  A field of type {@code char}.
+         */
+        CHAR,
+
+        /**
+         *  A field of type {@code double}.
+         */
+        DOUBLE,
+
+        /**
+         *  A field of type {@code float}.
+         */
+        FLOAT,
+
+        /**
+         *  A field of type {@code int}.
+         */
+        INT,
+
+        /**
+         *  A field of type {@code long}.
+         */
+        LONG,
+
+        /**
+         *  A field of type {@code short}.
+         */
+        SHORT,
+
+        /**
+         *  A field with a reference type.
+         */
+        REFERENCE;
+
+        /**
+         *  Returns the kind for the given type.
+         *
+         *  @param  type    The type of a field.
+         *  @return The kind.
+         */
+        @SuppressWarnings( {"IfStatementWithTooManyBranches", "OverlyComplexMethod"} )
+        static final Kind of( final Class<?> type )
+        {
+            final Kind retValue;
+            if( !type.isPrimitive() ) retValue = REFERENCE;
+            else if( type == boolean.class ) retValue = BOOLEAN;
+            else if( type == byte.class ) retValue = BYTE;
+            else if( type == char.class ) retValue = CHAR;
+            else if( type == double.class ) retValue = DOUBLE;
+            else if( type == float.class ) retValue = FLOAT;
+            else if( type == int.class ) retValue = INT;
+            else if( type == long.class ) retValue = LONG;
+            else retValue = SHORT;
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  of()
+    }
+    //  enum Kind
+
+    /**
+     *  The description of a single relevant field.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  field   The field; it is already accessible.
+     *  @param  name    The name of the field.
+     *  @param  kind    The kind of the field.
+     */
+    record FieldInfo( Field field, String name, Kind kind ) {}
+
+    /**
+     *  The description of a single component of a record.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  name    The name of the component.
+     *  @param  kind    The kind of the component.
+     *  @param  accessor    The accessor for the component; for a component
+     *      with a primitive type, it has the type {@code (Object)type},
+     *      otherwise {@code (Object)Object}.
+     */
+    record ComponentInfo( String name, Kind kind, MethodHandle accessor )
+    {
+        /**
+         *  Returns the value of the component for the given record; primitive
+         *  values will be boxed.
+         *
+         *  @param  record  The record.
+         *  @return The value.
+         */
+        @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"} )
+        final Object value( final Object record )
+        {
+            final Object retValue;
+            try
+            {
+                retValue = accessor.invoke( record );
+            }
+            catch( final RuntimeException | Error e )
+            {
+                throw e;
+            }
+            catch( final Throwable t )
+            {
+                //---* Record accessors cannot throw checked exceptions *------
+                throw new InternalError( "Unexpected " + t.getClass().getSimpleName(), t );
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  value()
+    }
+    //  record ComponentInfo
+
+    /**
+     *  The relevant fields of a class.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  allFields   The relevant fields, including the transient ones.
+     *  @param  nonTransientFields  The relevant fields, without the transient
+     *      ones.
+     */
+    private record Fields( FieldInfo [] allFields, FieldInfo [] nonTransientFields ) {}
+
+    /**
+     *  The relevant fields and components of a class that remain when the
+     *  fields with the given names are excluded.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  excludedFields  The names of the excluded fields.
+     *  @param  fields  The remaining fields.
+     *  @param  components  The remaining components; {@code null} if the
+     *      class is not a record, or if the accessors of its components are
+     *      not accessible.
+     */
+    private record Exclusion( Set<String> excludedFields, Fields fields, ComponentInfo [] components ) {}
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum number of sets of excluded fields for which the remaining
+     *  fields are cached for a class: {@value}.
+     */
+    private static final int MAX_EXCLUSIONS = 8;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The class this metadata belongs to.
+     */
+    private final Class<?> m_Class;
+
+    /**
+     *  The comparator for the components of a record; it will be created on
+     *  first use.
+     */
+    private volatile MethodHandle m_ComponentComparator;
+
+    /**
+     *  The components of a record; {@code null} if the class is not a record,
+     *  or if the accessors of the components are not accessible.
+     */
+    private final ComponentInfo [] m_Components;
+
+    /**
+     *  The cached results for the recently used sets of excluded fields, the
+     *  most recent one last.
+     */
+    private volatile Exclusion [] m_Exclusions;
+
+    /**
+     *  The comparator for the engine
+     *  {@link ReflectionEngine#METHOD_HANDLES}
+     *  that includes the transient fields; it will be created on first use.
+     */
+    private volatile MethodHandle m_ComparatorAllFields;
+
+    /**
+     *  The comparator for the engine
+     *  {@link ReflectionEngine#METHOD_HANDLES}
+     *  that ignores the transient fields; it will be created on first use.
+     */
+    private volatile MethodHandle m_ComparatorNonTransientFields;
+
+    /**
+     *  The relevant fields of the class; they will be determined on first
+     *  use.
+     */
+    private volatile Fields m_Fields;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The cache for the metadata.
+     */
+    private static final ClassValue<ClassMetadata> m_Cache = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final ClassMetadata computeValue( final Class<?> type ) { return new ClassMetadata( type ); }
+    };
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ClassMetadata} instance.
+     *
+     *  @param  type    The class to inspect.
+     */
+    private ClassMetadata( final Class<?> type )
+    {
+        m_Class = type;
+        m_Components = type.isRecord() ? inspectComponents( type ) : null;
+        m_Exclusions = new Exclusion [0];
+    }   //  ClassMetadata()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the comparator for the engine
+     *  {@link ReflectionEngine#METHOD_HANDLES}.
+     *
+     *  @param  testTransients  {@code true} if the transient fields should be
+     *      included, {@code false} otherwise.
+     *  @return The comparator with the type {@code (Object,Object)boolean}.
+     *
+     *  @see MethodHandleComparator#create(FieldInfo[])
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    final MethodHandle comparator( final boolean testTransients )
+    {
+        /*
+         * Creating the comparator twice in case of a race does not do any
+         * harm, therefore no synchronisation is required.
+         */
+        var retValue = testTransients ? m_ComparatorAllFields : m_ComparatorNonTransientFields;
+        if( isNull( retValue ) )
+        {
+            retValue = MethodHandleComparator.create( fields( testTransients ) );
+            if( testTransients )
+            {
+                m_ComparatorAllFields = retValue;
+            }
+            else
+            {
+                m_ComparatorNonTransientFields = retValue;
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  comparator()
+
+    /**
+     *  Returns the comparator for the components of a record.
+     *
+     *  @return The comparator with the type {@code (Object,Object)boolean}.
+     *  @throws IllegalStateException   The class is not a record, or its
+     *      accessors are not accessible.
+     *
+     *  @see MethodHandleComparator#create(MethodHandle[])
+     */
+    final MethodHandle componentComparator()
+    {
+        if( isNull( m_Components ) ) throw new IllegalStateException( "No accessible record: " + m_Class.getName() );
+
+        //---* No synchronisation required, see comparator() *-----------------
+        var retValue = m_ComponentComparator;
+        if( isNull( retValue ) )
+        {
+            final var accessors = new MethodHandle [m_Components.length];
+            for( var i = 0; i < accessors.length; ++i ) accessors [i] = m_Components [i].accessor();
+            retValue = MethodHandleComparator.create( accessors );
+            m_ComponentComparator = retValue;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  componentComparator()
+
+    /**
+     *  Returns the components of a record.<br>
+     *  <br>The returned array is shared; it must not be modified by the
+     *  caller.
+     *
+     *  @return The components, in the order of their declaration; will be
+     *      {@code null} if the class is not a record, or if the accessors of
+     *      its components are not accessible.
+     */
+    @SuppressWarnings( "AssignmentOrReturnOfFieldWithMutableType" )
+    final ComponentInfo [] components() { return m_Components; }
+
+    /**
+     *  Returns the components of a record, without those with the given
+     *  names.<br>
+     *  <br>The returned array is shared; it must not be modified by the
+     *  caller.
+     *
+     *  @param  excludedFields  The names of the components to exclude.
+     *  @return The remaining components, in the order of their declaration;
+     *      will be {@code null} if the class is not a record, or if the
+     *      accessors of its components are not accessible.
+     */
+    @SuppressWarnings( "AssignmentOrReturnOfFieldWithMutableType" )
+    final ComponentInfo [] components( final Set<String> excludedFields )
+    {
+        final var retValue = excludedFields.isEmpty() ? m_Components : exclusion( excludedFields ).components();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  components()
+
+    /**
+     *  Returns the fields and components that remain when the fields with the
+     *  given names are excluded. The result is taken from the cache if the
+     *  same set of names was used before; the sets are compared by identity
+     *  first, so that a lookup with the set of a cached
+     *  {@link ReflectionOptions}
+     *  instance does not iterate over the set.
+     *
+     *  @param  excludedFields  The names of the fields to exclude.
+     *  @return The remaining fields and components.
+     */
+    private final Exclusion exclusion( final Set<String> excludedFields )
+    {
+        final var exclusions = m_Exclusions;
+        Exclusion retValue = null;
+        for( var i = exclusions.length - 1; (i >= 0) && isNull( retValue ); --i )
+        {
+            if( exclusions [i].excludedFields() == excludedFields ) retValue = exclusions [i];
+        }
+        for( var i = exclusions.length - 1; (i >= 0) && isNull( retValue ); --i )
+        {
+            if( exclusions [i].excludedFields().equals( excludedFields ) ) retValue = exclusions [i];
+        }
+
+        if( isNull( retValue ) )
+        {
+            final var fields = fields();
+            retValue = new Exclusion
+            (
+                excludedFields,
+                new Fields( remove( fields.allFields(), FieldInfo::name, excludedFields ), remove( fields.nonTransientFields(), FieldInfo::name, excludedFields ) ),
+                isNull( m_Components ) ? null : remove( m_Components, ComponentInfo::name, excludedFields )
+            );
+
+            /*
+             * The cache is replaced as a whole, and the oldest entry is
+             * dropped when it is full. When two threads add an entry at the
+             * same time, one of these entries may get lost; this does not do
+             * any harm, therefore no synchronisation is required.
+             */
+            final var retained = Math.min( exclusions.length, MAX_EXCLUSIONS - 1 );
+            final var newExclusions = Arrays.copyOfRange( exclusions, exclusions.length - retained, exclusions.length + 1 );
+            newExclusions [retained] = retValue;
+            m_Exclusions = newExclusions;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  exclusion()
+
+    /**
+     *  Returns the relevant fields for the class. The fields are determined,
+     *  and made accessible, on the first call to this method.<br>
+     *  <br>The returned array is shared; it must not be modified by the
+     *  caller.
+     *
+     *  @param  testTransients  {@code true} if the transient fields should be
+     *      included, {@code false} otherwise.
+     *  @return The fields; they are already accessible.
+     */
+    @SuppressWarnings( {"AssignmentOrReturnOfFieldWithMutableType", "BooleanParameter"} )
+    final FieldInfo [] fields( final boolean testTransients )
+    {
+        final var fields = fields();
+        final var retValue = testTransients ? fields.allFields() : fields.nonTransientFields();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  fields()
+
+    /**
+     *  Returns the relevant fields for the class, without those with the
+     *  given names.<br>
+     *  <br>The returned array is shared; it must not be modified by the
+     *  caller.
+     *
+     *  @param  testTransients  {@code true} if the transient fields should be
+     *      included, {@code false} otherwise.
+     *  @param  excludedFields  The names of the fields to exclude.
+     *  @return The remaining fields; they are already accessible.
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    final FieldInfo [] fields( final boolean testTransients, final Set<String> excludedFields )
+    {
+        final var fields = excludedFields.isEmpty() ? fields() : exclusion( excludedFields ).fields();
+        final var retValue = testTransients ? fields.allFields() : fields.nonTransientFields();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  fields()
+
+    /**
+     *  Returns the relevant fields for the class. The fields are determined,
+     *  and made accessible, on the first call to this method.
+     *
+     *  @return The fields.
+     */
+    private final Fields fields()
+    {
+        //---* No synchronisation required, see comparator() *-----------------
+        var retValue = m_Fields;
+        if( isNull( retValue ) )
+        {
+            retValue = inspectFields( m_Class );
+            m_Fields = retValue;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  fields()
+
+    /**
+     *  Returns the metadata for the given class.
+     *
+     *  @param  type    The class.
+     *  @return The metadata.
+     */
+    static final ClassMetadata forClass( final Class<?> type ) { return m_Cache.get( type ); }
+
+    /**
+     *  Returns the class this metadata belongs to.
+     *
+     *  @return The class.
+     */
+    final Class<?> getType() { return m_Class; }
+
+    /**
+     *  Determines the components of the given record class.
+     *
+     *  @param  type    The record class.
+     *  @return The components; {@code null} if the accessors of the
+     *      components are not accessible.
+     */
+    private static final ComponentInfo [] inspectComponents( final Class<?> type )
+    {
+        MethodHandles.Lookup lookup;
+        try
+        {
+            lookup = MethodHandles.privateLookupIn( type, MethodHandles.lookup() );
+        }
+        catch( final IllegalAccessException ignored )
+        {
+            //---* The package is not open to us *-----------------------------
+            lookup = MethodHandles.publicLookup();
+        }
+
+        final var components = type.getRecordComponents();
+        var retValue = new ComponentInfo [components.length];
+        try
+        {
+            for( var i = 0; i < components.length; ++i )
+            {
+                final var componentType = components [i].getType();
+                final var accessor = lookup.unreflect( components [i].getAccessor() )
+                    .asType( methodType( componentType.isPrimitive() ? componentType : Object.class, Object.class ) );
+                retValue [i] = new ComponentInfo( components [i].getName(), Kind.of( componentType ), accessor );
+            }
+        }
+        catch( final IllegalAccessException ignored )
+        {
+            //---* The record is not accessible; the fields are used instead *-
+            retValue = null;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  inspectComponents()
+
+    /**
+     *  Determines the relevant fields of the given class, and makes them
+     *  accessible.
+     *
+     *  @param  type    The class.
+     *  @return The fields.
+     */
+    private static final Fields inspectFields( final Class<?> type )
+    {
+        final List<FieldInfo> allFields = new ArrayList<>();
+        final List<FieldInfo> nonTransientFields = new ArrayList<>();
+        for( final var field : type.getDeclaredFields() )
+        {
+            final var modifiers = field.getModifiers();
+            if( !isStatic( modifiers ) && (field.getName().indexOf( '$' ) == -1) )
+            {
+                field.setAccessible( true );
+                final var info = new FieldInfo( field, field.getName(), Kind.of( field.getType() ) );
+                allFields.add( info );
+                if( !isTransient( modifiers ) ) nonTransientFields.add( info );
+            }
+        }
+        final var retValue = new Fields( allFields.toArray( FieldInfo []::new ), nonTransientFields.toArray( FieldInfo []::new ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  inspectFields()
+
+    /**
+     *  Returns the given items without those with the given names.
+     *
+     *  @param  <T> The type of the items.
+     *  @param  items   The items.
+     *  @param  nameOf  The function that returns the name of an item.
+     *  @param  excludedNames   The names of the items to remove.
+     *  @return The remaining items, in their original order.
+     */
+    private static final <T> T [] remove( final T [] items, final Function<? super T,String> nameOf, final Set<String> excludedNames )
+    {
+        final List<T> remaining = new ArrayList<>( items.length );
+        for( final var item : items )
+        {
+            if( !excludedNames.contains( nameOf.apply( item ) ) ) remaining.add( item );
+        }
+        final var retValue = remaining.toArray( Arrays.copyOf( items, 0 ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  remove()
+}
+//  class ClassMetadata
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,96 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.apiguardian.api.API.Status.STABLE;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.apiguardian.api.API;
+
+/**
+ *  Limits the lock contention of a test method; it is evaluated after all
+ *  {@link org.junit.jupiter.api.AfterEach &#64;AfterEach}
+ *  methods were executed, and it has effect only for the tests in
+ *  subclasses of
+ *  {@link TestBaseClass}.<br>
+ *  <br>The contention is determined for the execution of the test method
+ *  only, for the test thread, and for the threads that were started during
+ *  the test and that are still alive at its end. If the budget is exceeded, the failure message names the most
+ *  contended monitors. Use it like this:
+ *  <pre><code>&#64;Test
+ *  &#64;ContentionBudget( blockedCount = 10, blockedMillis = 50 )
+ *  final void testConcurrentUpdate() { &hellip; }</code></pre>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( METHOD )
+@API( status = STABLE, since = "0.2.0" )
+public @interface ContentionBudget
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  The maximum number of times that the threads may be blocked on
+     *  entering a monitor.
+     *
+     *  @return The number; unlimited by default.
+     */
+    long blockedCount() default Long.MAX_VALUE;
+
+    /**
+     *  The maximum time in milliseconds that the threads may be blocked on
+     *  entering a monitor.
+     *
+     *  @return The time; unlimited by default.
+     */
+    long blockedMillis() default Long.MAX_VALUE;
+
+    /**
+     *  The maximum number of times that the threads may wait for a
+     *  notification, or may be parked.
+     *
+     *  @return The number; unlimited by default.
+     */
+    long waitedCount() default Long.MAX_VALUE;
+
+    /**
+     *  The maximum time in milliseconds that the threads may wait for a
+     *  notification, or may be parked.
+     *
+     *  @return The time; unlimited by default.
+     */
+    long waitedMillis() default Long.MAX_VALUE;
+}
+//  @interface ContentionBudget
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,110 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ *  The lock contention of the threads that were involved in a test, as it
+ *  is determined by
+ *  {@link ContentionTracker}.
+ *  The times are in milliseconds; they are -1 if the JVM does not support
+ *  the monitoring of the thread contention.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @param  blockedCount    The number of times that the threads were
+ *      blocked on entering a monitor.
+ *  @param  blockedMillis   The time that the threads were blocked.
+ *  @param  waitedCount The number of times that the threads waited for a
+ *      notification, or were parked.
+ *  @param  waitedMillis    The time that the threads waited.
+ *  @param  monitors    The most contended monitors, the one with the
+ *      longest total blocking time first; empty if the monitors were not
+ *      profiled.
+ */
+record ContentionProfile( long blockedCount, long blockedMillis, long waitedCount, long waitedMillis, List<MonitorContention> monitors )
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The contention on a monitor at a location in the code.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  monitorClass    The name of the class of the monitor.
+     *  @param  location    The location where the monitor was entered.
+     *  @param  count   The number of times that a thread was blocked on
+     *      entering the monitor.
+     *  @param  nanos   The total time that the threads were blocked, in
+     *      nanoseconds.
+     */
+    record MonitorContention( String monitorClass, String location, long count, long nanos )
+    {
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final String toString()
+        {
+            final var retValue = format( Locale.ROOT, "%s at %s: %,d times, %,.1f ms", monitorClass, location, count, nanos / 1_000_000.0 );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  toString()
+    }
+    //  record MonitorContention
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var buffer = new StringBuilder( format( Locale.ROOT, "blocked %,d times for %,d ms, waited %,d times for %,d ms", blockedCount, blockedMillis, waitedCount, waitedMillis ) );
+        if( !monitors.isEmpty() )
+        {
+            buffer.append( format( "%nMost contended monitors:" ) );
+            monitors.forEach( monitor -> buffer.append( format( "%n\t%s", monitor ) ) );
+        }
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  record ContentionProfile
+
+/*
+ *  End of File
+ */
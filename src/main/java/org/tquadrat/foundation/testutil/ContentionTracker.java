@@ -0,0 +1,296 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static java.util.Arrays.binarySearch;
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.tquadrat.foundation.testutil.TestUtils.getLiveThreadIds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.tquadrat.foundation.testutil.ContentionProfile.MonitorContention;
+
+/**
+ *  Determines the lock contention of the threads that are involved in a
+ *  test; these are the test thread itself, and the threads that were
+ *  started while the tracking was active. Like
+ *  {@link PlatformThreadTracker},
+ *  the latter are determined by comparing the ids of the living threads
+ *  with a snapshot that is taken when the tracking starts; so threads that
+ *  are started in parallel by other tests are included, too.<br>
+ *  <br>The numbers and the times for blocking and waiting are taken from
+ *  {@link ThreadInfo};
+ *  for that, the
+ *  {@linkplain java.lang.management.ThreadMXBean#setThreadContentionMonitoringEnabled(boolean) thread contention monitoring}
+ *  is enabled, and it stays enabled afterwards. Only the threads that are
+ *  alive at the end of the test are accounted for; the values of a
+ *  terminated thread are no longer available.<br>
+ *  <br>Optionally, the most contended monitors are determined from the
+ *  {@value #MONITOR_ENTER_EVENT}
+ *  events of a recording with the Java Flight Recorder; here, the events of
+ *  the started threads are accounted for even when these threads have
+ *  terminated before the end of the test. As starting and
+ *  evaluating the recording costs some milliseconds per test, this is
+ *  done only on request.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class ContentionTracker
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum number of monitors in the profile: {@value}.
+     */
+    private static final int MAX_MONITORS = 5;
+
+    /**
+     *  The name of the JFR event for a contended monitor: {@value}.
+     */
+    private static final String MONITOR_ENTER_EVENT = "jdk.JavaMonitorEnter";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The information on the test thread when the tracking started;
+     *  {@code null} if it is not available.
+     */
+    private final ThreadInfo m_InfoBefore;
+
+    /**
+     *  The profile; {@code null} until it was determined.
+     */
+    private ContentionProfile m_Profile = null;
+
+    /**
+     *  The recording for the contended monitors; {@code null} if the
+     *  monitors are not profiled.
+     */
+    private final Recording m_Recording;
+
+    /**
+     *  The id of the test thread.
+     */
+    private final long m_TestThreadId;
+
+    /**
+     *  The ids of the threads that were alive when the tracking started,
+     *  sorted in ascending order.
+     */
+    private final long [] m_ThreadIdsBefore;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ContentionTracker} instance, and starts the
+     *  tracking. It has to be created on the thread that executes the test.
+     *
+     *  @param  profileMonitors {@code true} if the most contended monitors
+     *      should be determined, {@code false} otherwise.
+     */
+    ContentionTracker( final boolean profileMonitors )
+    {
+        final var bean = getThreadMXBean();
+        if( bean.isThreadContentionMonitoringSupported() && !bean.isThreadContentionMonitoringEnabled() )
+        {
+            bean.setThreadContentionMonitoringEnabled( true );
+        }
+        if( profileMonitors && FlightRecorder.isAvailable() )
+        {
+            m_Recording = new Recording();
+            m_Recording.enable( MONITOR_ENTER_EVENT ).withThreshold( Duration.ZERO ).withStackTrace();
+            m_Recording.start();
+        }
+        else
+        {
+            m_Recording = null;
+        }
+
+        /*
+         * The snapshot is taken after the recording was started, otherwise
+         * the threads of the flight recorder would count as started by the
+         * test.
+         */
+        m_TestThreadId = Thread.currentThread().threadId();
+        m_ThreadIdsBefore = getLiveThreadIds();
+        m_InfoBefore = bean.getThreadInfo( m_TestThreadId, 0 );
+    }   //  ContentionTracker()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Stops the recording, and determines the most contended monitors from
+     *  its events.
+     *
+     *  @return The monitors.
+     *  @throws UncheckedIOException    The recording could not be written
+     *      or read.
+     */
+    private final List<MonitorContention> evaluateRecording()
+    {
+        final List<MonitorContention> retValue;
+        try
+        {
+            m_Recording.stop();
+            final var file = Files.createTempFile( "contention", ".jfr" );
+            try
+            {
+                m_Recording.dump( file );
+                final Map<List<String>,long []> monitors = new LinkedHashMap<>();
+                for( final var event : RecordingFile.readAllEvents( file ) )
+                {
+                    if( nonNull( event.getThread() ) && isInvolved( event.getThread().getJavaThreadId() ) )
+                    {
+                        final var frames = nonNull( event.getStackTrace() ) ? event.getStackTrace().getFrames() : List.<RecordedFrame>of();
+                        final var location = frames.isEmpty()
+                            ? "(unknown)"
+                            : format( "%s.%s(line %d)", frames.get( 0 ).getMethod().getType().getName(), frames.get( 0 ).getMethod().getName(), frames.get( 0 ).getLineNumber() );
+                        final var monitorClass = nonNull( event.getClass( "monitorClass" ) ) ? event.getClass( "monitorClass" ).getName() : "(unknown)";
+                        final var values = monitors.computeIfAbsent( List.of( monitorClass, location ), $ -> new long [2] );
+                        ++values [0];
+                        values [1] += event.getDuration().toNanos();
+                    }
+                }
+                retValue = monitors.entrySet()
+                    .stream()
+                    .map( entry -> new MonitorContention( entry.getKey().get( 0 ), entry.getKey().get( 1 ), entry.getValue() [0], entry.getValue() [1] ) )
+                    .sorted( comparingLong( MonitorContention::nanos ).reversed() )
+                    .limit( MAX_MONITORS )
+                    .toList();
+            }
+            finally
+            {
+                Files.deleteIfExists( file );
+            }
+        }
+        catch( final IOException e )
+        {
+            throw new UncheckedIOException( "Evaluation of the monitor profile failed", e );
+        }
+        finally
+        {
+            m_Recording.close();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  evaluateRecording()
+
+    /**
+     *  Returns the profile for the lock contention since the tracking was
+     *  started. On the first call, the profile is determined, and the
+     *  tracking is ended; later calls return the same profile. This has to
+     *  be called on the thread that executed the test.
+     *
+     *  @return The profile.
+     *  @throws UncheckedIOException    The recording for the monitors could
+     *      not be evaluated.
+     */
+    final ContentionProfile getProfile()
+    {
+        if( isNull( m_Profile ) )
+        {
+            var blockedCount = 0L;
+            var blockedTime = 0L;
+            var waitedCount = 0L;
+            var waitedTime = 0L;
+            for( final var info : getThreadInfos() )
+            {
+                final var before = info.getThreadId() == m_TestThreadId ? m_InfoBefore : null;
+                blockedCount += info.getBlockedCount() - (nonNull( before ) ? before.getBlockedCount() : 0L);
+                blockedTime += info.getBlockedTime() - (nonNull( before ) ? Math.max( 0L, before.getBlockedTime() ) : 0L);
+                waitedCount += info.getWaitedCount() - (nonNull( before ) ? before.getWaitedCount() : 0L);
+                waitedTime += info.getWaitedTime() - (nonNull( before ) ? Math.max( 0L, before.getWaitedTime() ) : 0L);
+            }
+            final var isTimeSupported = getThreadMXBean().isThreadContentionMonitoringEnabled();
+            m_Profile = new ContentionProfile( blockedCount, isTimeSupported ? blockedTime : -1L, waitedCount, isTimeSupported ? waitedTime : -1L, nonNull( m_Recording ) ? evaluateRecording() : List.of() );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return m_Profile;
+    }   //  getProfile()
+
+    /**
+     *  Returns the information on the living threads that are involved in
+     *  the test; their stack traces are not taken.
+     *
+     *  @return The information on the threads.
+     */
+    private final List<ThreadInfo> getThreadInfos()
+    {
+        final var threadIds = LongStream.of( getLiveThreadIds() )
+            .filter( this::isInvolved )
+            .toArray();
+
+        //---* Threads that died in the meantime are reported as null *--------
+        final var retValue = Stream.of( getThreadMXBean().getThreadInfo( threadIds, 0 ) )
+            .filter( Objects::nonNull )
+            .toList();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getThreadInfos()
+
+    /**
+     *  Checks whether the thread with the given id is involved in the test:
+     *  either it is the test thread, or it was not alive when the tracking
+     *  started.
+     *
+     *  @param  threadId    The id of the thread; a negative value for a
+     *      thread that is not a Java thread.
+     *  @return {@code true} if the thread is involved in the test,
+     *      {@code false} otherwise.
+     */
+    private final boolean isInvolved( final long threadId )
+    {
+        final var retValue = (threadId == m_TestThreadId) || ((threadId >= 0) && (binarySearch( m_ThreadIdsBefore, threadId ) < 0));
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isInvolved()
+}
+//  class ContentionTracker
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,883 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.min;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static org.tquadrat.foundation.testutil.ReflectiveComparison.determineTestClass;
+import static org.tquadrat.foundation.testutil.ReflectiveComparison.isAccessibleRecordPair;
+import static org.tquadrat.foundation.testutil.ReflectiveComparison.isComponentEqual;
+import static org.tquadrat.foundation.testutil.ReflectiveComparison.isFieldEqual;
+import static org.tquadrat.foundation.testutil.ReflectiveComparison.isValueEqual;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.tquadrat.foundation.testutil.ClassMetadata.ComponentInfo;
+
+/**
+ *  The implementation of the walk through two object graphs, as it is used
+ *  by
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}
+ *  when
+ *  {@link ReflectionOptions#deepComparison()}
+ *  is set, and by
+ *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)}.<br>
+ *  <br>Starting with the two root objects, the fields of each pair of objects
+ *  are compared according to the options; primitive fields are compared
+ *  immediately, while the values of reference fields are queued as new pairs
+ *  that will be compared the same way. The pairs are kept on an explicit
+ *  stack, so the depth of the graph is not limited by the size of the call
+ *  stack. When only equality is determined, the walk stops at the first
+ *  difference; otherwise, the differences are reported one by one, as they
+ *  are requested.<br>
+ *  <br>The values of reference fields are handled as follows:
+ *  <ul>
+ *  <li>Identical references, or two {@code null} references, are equal.</li>
+ *  <li>Arrays of objects and instances of
+ *  {@link List}
+ *  are compared element by element; arrays of a primitive type are compared
+ *  with
+ *  {@link java.util.Arrays#equals(int[], int[]) Arrays.equals()};
+ *  when the differences are reported, the first differing element is
+ *  located with
+ *  {@link java.util.Arrays#mismatch(int[], int[]) Arrays.mismatch()}
+ *  instead, on any depth.</li>
+ *  <li>For instances of
+ *  {@link Map},
+ *  the keys are compared with their own {@code equals()} methods, and the
+ *  values are compared deeply.</li>
+ *  <li>Objects whose class overrides
+ *  {@link Object#equals(Object)}
+ *  (with the exception of records and of the root objects), and objects
+ *  whose classes are not open for deep reflection, like most classes from
+ *  the JDK, are compared by calling their {@code equals()} methods.</li>
+ *  <li>Records of the same class are compared component by component,
+ *  through their accessors.</li>
+ *  <li>All other objects are compared field by field.</li>
+ *  </ul>
+ *  Pairs of objects that were already visited are not compared again; this
+ *  makes the comparison safe for cyclic graphs. Pairs that are located deeper
+ *  than the
+ *  {@linkplain ReflectionOptions#maxDepth() maximum depth}
+ *  are compared with
+ *  {@link java.util.Objects#deepEquals(Object, Object)}
+ *  (or, for arrays of floating point values, with the
+ *  {@linkplain ReflectionOptions#withTolerance(double) tolerance})
+ *  instead of being walked; if the deep comparison is not switched on, this
+ *  applies to all objects that are referenced by the root objects.<br>
+ *  <br>When only equality is determined, large arrays and lists are
+ *  {@linkplain ParallelComparison compared in parallel}
+ *  if the
+ *  {@linkplain ReflectionOptions#parallelism() parallelism}
+ *  allows it.<br>
+ *  <br>Instances of this class are meant for a single comparison only; they
+ *  are not thread-safe.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class DeepComparison
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The path segment for the value of a map entry.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  key The key of the entry.
+     */
+    private record Key( Object key ) {}
+
+    /**
+     *  A pair of objects that has to be compared.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  depth   The depth of the pair in the graph; the root pair has
+     *      the depth 0.
+     *  @param  parent  The pair that references this pair; {@code null} for
+     *      the root pair, or if no paths are tracked.
+     *  @param  segment The last segment of the path to this pair: either the
+     *      name of a field as a
+     *      {@link String},
+     *      an index as an
+     *      {@link Integer},
+     *      or a
+     *      {@link Key}.
+     *      Will be {@code null} for the root pair, or if no paths are
+     *      tracked.
+     */
+    private record Pair( Object lhs, Object rhs, int depth, Pair parent, Object segment ) {}
+
+    /**
+     *  The set of right-hand objects that were already compared with the same
+     *  left-hand object.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  objects The right-hand objects.
+     */
+    private record Partners( Set<Object> objects ) {}
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The flag that indicates that a difference was found.
+     */
+    private boolean m_DifferenceFound = false;
+
+    /**
+     *  The differences that were found but not yet reported; {@code null} if
+     *  only equality is determined.
+     */
+    private final Deque<FieldDifference> m_Differences;
+
+    /**
+     *  The effective maximum depth for the walk.
+     */
+    private final int m_MaxDepth;
+
+    /**
+     *  The options for the comparison.
+     */
+    private final ReflectionOptions m_Options;
+
+    /**
+     *  The pairs that still have to be compared.
+     */
+    private final Deque<Pair> m_Pending = new ArrayDeque<>();
+
+    /**
+     *  The pairs that were already visited; the key is the left-hand object,
+     *  the value is either the right-hand object, or an instance of
+     *  {@link Partners}
+     *  if the left-hand object was compared with more than one other object.
+     */
+    private final Map<Object,Object> m_Visited = new IdentityHashMap<>();
+
+    /**
+     *  The pairs that were already visited by the enclosing walk, in the same
+     *  format as
+     *  {@link #m_Visited};
+     *  this map is only read. It is empty, unless this instance compares a
+     *  chunk of the elements of an array or a list that is
+     *  {@linkplain ParallelComparison compared in parallel}.
+     */
+    private final Map<Object,Object> m_VisitedBefore;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The cache for the flag that indicates whether instances of a class are
+     *  compared with their own {@code equals()} method, instead of being
+     *  walked.
+     */
+    private static final ClassValue<Boolean> m_UsesEquals = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final Boolean computeValue( final Class<?> type ) { return Boolean.valueOf( usesEquals( type ) ); }
+    };
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code DeepComparison} instance.
+     *
+     *  @param  options The options for the comparison.
+     *  @param  reportDifferences   {@code true} if the differences should be
+     *      reported, {@code false} if only equality should be determined.
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    DeepComparison( final ReflectionOptions options, final boolean reportDifferences )
+    {
+        m_Options = options;
+        m_Differences = reportDifferences ? new ArrayDeque<>() : null;
+        m_MaxDepth = options.deepComparison() ? options.maxDepth() : 0;
+        m_VisitedBefore = Map.of();
+    }   //  DeepComparison()
+
+    /**
+     *  Creates a new {@code DeepComparison} instance for the elements of an
+     *  array or a list that is
+     *  {@linkplain ParallelComparison compared in parallel}
+     *  by the given walk. The pairs that were already visited by that walk,
+     *  including the pairs on the path from its root, are treated as visited
+     *  by the new instance, too; otherwise, each element that references
+     *  back into the graph would cause the new instance to walk the whole
+     *  graph again.<br>
+     *  <br>The enclosing walk must not proceed while the new instance is in
+     *  use.
+     *
+     *  @param  enclosing   The enclosing walk.
+     */
+    DeepComparison( final DeepComparison enclosing )
+    {
+        m_Options = enclosing.m_Options.withParallelism( 1 );
+        m_Differences = null;
+        m_MaxDepth = enclosing.m_MaxDepth;
+        m_VisitedBefore = enclosing.m_Visited;
+    }   //  DeepComparison()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Compares the given object graphs.
+     *
+     *  @param  lhs The left-hand root object.
+     *  @param  rhs The right-hand root object.
+     *  @return {@code true} if the two graphs are equal, {@code false}
+     *      otherwise.
+     */
+    final boolean areEqual( final Object lhs, final Object rhs ) { return areEqual( lhs, rhs, 0 ); }
+
+    /**
+     *  Compares the given object graphs, assuming that the root objects are
+     *  located on the given depth. This is used for the elements of arrays and
+     *  lists that are
+     *  {@linkplain ParallelComparison compared in parallel}.
+     *  The same instance can be used for several pairs of objects, as long as
+     *  no difference was found.
+     *
+     *  @param  lhs The left-hand root object.
+     *  @param  rhs The right-hand root object.
+     *  @param  depth   The depth of the root objects.
+     *  @return {@code true} if the two graphs are equal, {@code false}
+     *      otherwise.
+     */
+    final boolean areEqual( final Object lhs, final Object rhs, final int depth )
+    {
+        m_Pending.push( new Pair( lhs, rhs, depth, null, null ) );
+        while( !isFinished() && !m_Pending.isEmpty() )
+        {
+            comparePair( m_Pending.pop() );
+        }
+        m_Pending.clear();
+
+        //---* Done *----------------------------------------------------------
+        return !m_DifferenceFound;
+    }   //  areEqual()
+
+    /**
+     *  Compares the components of the given records. Primitive components are
+     *  compared immediately, the values of the other components are queued.
+     *
+     *  @param  pair    The pair of records.
+     *  @param  components  The components of the records, without the
+     *      excluded ones.
+     */
+    private final void compareComponents( final Pair pair, final ComponentInfo [] components )
+    {
+        for( var i = 0; (i < components.length) && !isFinished(); ++i )
+        {
+            final var component = components [i];
+            if( component.kind() != ClassMetadata.Kind.REFERENCE )
+            {
+                if( !isComponentEqual( component, pair.lhs(), pair.rhs(), m_Options ) )
+                {
+                    report( pair, component.name(), component.value( pair.lhs() ), component.value( pair.rhs() ) );
+                }
+            }
+        }
+
+        //---* The references are pushed in reverse order *--------------------
+        for( var i = components.length - 1; (i >= 0) && !isFinished(); --i )
+        {
+            final var component = components [i];
+            if( component.kind() == ClassMetadata.Kind.REFERENCE )
+            {
+                enqueue( pair, component.name(), component.value( pair.lhs() ), component.value( pair.rhs() ) );
+            }
+        }
+    }   //  compareComponents()
+
+    /**
+     *  Compares the fields of the given objects on the given level of their
+     *  class hierarchy. Primitive fields are compared immediately, the
+     *  values of reference fields are queued.
+     *
+     *  @param  pair    The pair of objects.
+     *  @param  metadata    The metadata for the level of the class hierarchy.
+     *  @throws IllegalArgumentException    One of the objects is not an
+     *      instance of the class that defines the details.
+     */
+    private final void compareFields( final Pair pair, final ClassMetadata metadata )
+    {
+        final var fields = metadata.fields( m_Options.testTransients(), m_Options.excludedFields() );
+        try
+        {
+            for( var i = 0; (i < fields.length) && !isFinished(); ++i )
+            {
+                final var field = fields [i];
+                if( field.kind() != ClassMetadata.Kind.REFERENCE )
+                {
+                    if( !isFieldEqual( field, pair.lhs(), pair.rhs(), m_Options ) )
+                    {
+                        report( pair, field.name(), field.field().get( pair.lhs() ), field.field().get( pair.rhs() ) );
+                    }
+                }
+            }
+
+            /*
+             * The reference fields are pushed in reverse order, so that they
+             * will be compared in the order of their declaration.
+             */
+            for( var i = fields.length - 1; (i >= 0) && !isFinished(); --i )
+            {
+                final var field = fields [i];
+                if( field.kind() == ClassMetadata.Kind.REFERENCE )
+                {
+                    enqueue( pair, field.name(), field.field().get( pair.lhs() ), field.field().get( pair.rhs() ) );
+                }
+            }
+        }
+        catch( final IllegalAccessException e )
+        {
+            /*
+             * This can't happen. We would get a SecurityException instead.
+             * But we prefer to throw a runtime exception in case the
+             * impossible happens, instead of silently swallowing it.
+             */
+            throw new InternalError( "Unexpected IllegalAccessException", e );
+        }
+    }   //  compareFields()
+
+    /**
+     *  Compares the given lists element by element.
+     *
+     *  @param  pair    The pair of lists.
+     *  @param  lhsList The left-hand list.
+     *  @param  rhsList The right-hand list.
+     */
+    private final void compareLists( final Pair pair, final List<?> lhsList, final List<?> rhsList )
+    {
+        final var lhsSize = lhsList.size();
+        final var rhsSize = rhsList.size();
+        if( lhsSize != rhsSize )
+        {
+            report( pair, "size()", Integer.valueOf( lhsSize ), Integer.valueOf( rhsSize ) );
+        }
+
+        //---* The elements are pushed in reverse order *----------------------
+        var index = min( lhsSize, rhsSize );
+        final var lhsIterator = lhsList.listIterator( index );
+        final var rhsIterator = rhsList.listIterator( index );
+        while( !isFinished() && lhsIterator.hasPrevious() && rhsIterator.hasPrevious() )
+        {
+            enqueue( pair, Integer.valueOf( --index ), lhsIterator.previous(), rhsIterator.previous() );
+        }
+    }   //  compareLists()
+
+    /**
+     *  Compares the given maps entry by entry.
+     *
+     *  @param  pair    The pair of maps.
+     *  @param  lhsMap  The left-hand map.
+     *  @param  rhsMap  The right-hand map.
+     */
+    private final void compareMaps( final Pair pair, final Map<?,?> lhsMap, final Map<?,?> rhsMap )
+    {
+        final var trackPaths = trackPaths();
+        final List<Pair> values = new ArrayList<>();
+        for( final var iterator = lhsMap.entrySet().iterator(); iterator.hasNext() && !isFinished(); )
+        {
+            final var entry = iterator.next();
+            if( rhsMap.containsKey( entry.getKey() ) )
+            {
+                values.add( new Pair( entry.getValue(), rhsMap.get( entry.getKey() ), pair.depth() + 1, trackPaths ? pair : null, trackPaths ? new Key( entry.getKey() ) : null ) );
+            }
+            else
+            {
+                report( pair, new Key( entry.getKey() ), entry.getValue(), null );
+            }
+        }
+
+        //---* Keys that are only in the right-hand map *----------------------
+        if( !isFinished() && (values.size() != rhsMap.size()) )
+        {
+            for( final var iterator = rhsMap.entrySet().iterator(); iterator.hasNext() && !isFinished(); )
+            {
+                final var entry = iterator.next();
+                if( !lhsMap.containsKey( entry.getKey() ) )
+                {
+                    report( pair, new Key( entry.getKey() ), null, entry.getValue() );
+                }
+            }
+        }
+
+        //---* The values are pushed in reverse order *------------------------
+        for( var i = values.size() - 1; (i >= 0) && !isFinished(); --i )
+        {
+            m_Pending.push( values.get( i ) );
+        }
+    }   //  compareMaps()
+
+    /**
+     *  Compares the given pair of objects, and queues the pairs that are
+     *  reachable from it.
+     *
+     *  @param  pair    The pair of objects.
+     */
+    @SuppressWarnings( {"OverlyComplexMethod", "IfStatementWithTooManyBranches", "ChainOfInstanceofChecks", "OverlyNestedMethod"} )
+    private final void comparePair( final Pair pair )
+    {
+        final var lhs = pair.lhs();
+        final var rhs = pair.rhs();
+        if( lhs != rhs )
+        {
+            if( isNull( lhs ) || isNull( rhs ) )
+            {
+                report( pair, null, lhs, rhs );
+            }
+            else if( trackPaths() && isPrimitiveArrayPair( lhs, rhs ) )
+            {
+                comparePrimitiveArrays( pair, lhs, rhs );
+            }
+            else if( pair.depth() > m_MaxDepth )
+            {
+                if( !isValueEqual( lhs, rhs, m_Options ) ) report( pair, null, lhs, rhs );
+            }
+            else if( !isVisited( lhs, rhs ) )
+            {
+                /*
+                 * If the pair was already visited, a difference would have
+                 * been detected already, or it will be detected when its
+                 * comparison is finished.
+                 */
+                final var lhsClass = lhs.getClass();
+                if( !trackPaths() && ParallelComparison.isCandidate( lhs, rhs, m_Options ) )
+                {
+                    if( !ParallelComparison.areEqual( lhs, rhs, m_Options, pair.depth() + 1, this ) ) report( pair, null, lhs, rhs );
+                }
+                else if( lhsClass.isArray() || rhs.getClass().isArray() )
+                {
+                    if( lhsClass != rhs.getClass() )
+                    {
+                        report( pair, null, lhs, rhs );
+                    }
+                    else if( lhs instanceof final Object [] lhsArray )
+                    {
+                        final var rhsArray = (Object []) rhs;
+                        if( lhsArray.length != rhsArray.length )
+                        {
+                            report( pair, "length", Integer.valueOf( lhsArray.length ), Integer.valueOf( rhsArray.length ) );
+                        }
+                        for( var i = min( lhsArray.length, rhsArray.length ) - 1; (i >= 0) && !isFinished(); --i )
+                        {
+                            enqueue( pair, Integer.valueOf( i ), lhsArray [i], rhsArray [i] );
+                        }
+                    }
+                    else if( !isValueEqual( lhs, rhs, m_Options ) )
+                    {
+                        report( pair, null, lhs, rhs );
+                    }
+                }
+                else if( lhs instanceof final List<?> lhsList )
+                {
+                    if( rhs instanceof final List<?> rhsList )
+                    {
+                        compareLists( pair, lhsList, rhsList );
+                    }
+                    else
+                    {
+                        report( pair, null, lhs, rhs );
+                    }
+                }
+                else if( lhs instanceof final Map<?,?> lhsMap )
+                {
+                    if( rhs instanceof final Map<?,?> rhsMap )
+                    {
+                        compareMaps( pair, lhsMap, rhsMap );
+                    }
+                    else
+                    {
+                        report( pair, null, lhs, rhs );
+                    }
+                }
+                else if( ((pair.depth() > 0) && isComparedWithEquals( lhsClass )) || !isOpen( lhsClass ) )
+                {
+                    if( !lhs.equals( rhs ) ) report( pair, null, lhs, rhs );
+                }
+                else
+                {
+                    compareReflective( pair );
+                }
+            }
+        }
+    }   //  comparePair()
+
+    /**
+     *  Compares the given arrays of the same primitive type, and reports the
+     *  first differing element, if any, and a difference in length. The
+     *  arrays are scanned with
+     *  {@link ArrayComparison#mismatch(Object, Object, ReflectionOptions)},
+     *  so a tolerance applies to arrays of floating point values.
+     *
+     *  @param  pair    The pair of arrays.
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     */
+    private final void comparePrimitiveArrays( final Pair pair, final Object lhs, final Object rhs )
+    {
+        final var lhsLength = Array.getLength( lhs );
+        final var rhsLength = Array.getLength( rhs );
+        if( lhsLength != rhsLength )
+        {
+            report( pair, "length", Integer.valueOf( lhsLength ), Integer.valueOf( rhsLength ) );
+        }
+        final var index = ArrayComparison.mismatch( lhs, rhs, m_Options );
+        if( (index >= 0) && (index < min( lhsLength, rhsLength )) )
+        {
+            report( pair, Integer.valueOf( index ), Array.get( lhs, index ), Array.get( rhs, index ) );
+        }
+    }   //  comparePrimitiveArrays()
+
+    /**
+     *  Compares the given pair of objects field by field, along their class
+     *  hierarchy.
+     *
+     *  @param  pair    The pair of objects.
+     */
+    private final void compareReflective( final Pair pair )
+    {
+        var testClass = determineTestClass( pair.lhs(), pair.rhs() );
+        if( isAccessibleRecordPair( pair.lhs(), pair.rhs() ) )
+        {
+            compareComponents( pair, ClassMetadata.forClass( testClass ).components( m_Options.excludedFields() ) );
+        }
+        else if( isNull( testClass ) )
+        {
+            report( pair, null, pair.lhs(), pair.rhs() );
+        }
+        else
+        {
+            final var reflectUpToClass = m_Options.reflectUpToClass();
+            try
+            {
+                compareFields( pair, ClassMetadata.forClass( testClass ) );
+                while( !isFinished() && nonNull( testClass.getSuperclass() ) && (testClass != reflectUpToClass) )
+                {
+                    testClass = testClass.getSuperclass();
+                    compareFields( pair, ClassMetadata.forClass( testClass ) );
+                }
+            }
+            catch( final IllegalArgumentException ignored )
+            {
+                //---* A subclass was compared with a superclass *-------------
+                report( pair, null, pair.lhs(), pair.rhs() );
+            }
+        }
+    }   //  compareReflective()
+
+    /**
+     *  Returns the differences between the given object graphs. The
+     *  differences are determined lazily, while the returned stream is
+     *  consumed, and the stream ends after the
+     *  {@linkplain ReflectionOptions#maxDifferences() maximum number of differences}.
+     *
+     *  @param  lhs The left-hand root object.
+     *  @param  rhs The right-hand root object.
+     *  @return The differences.
+     */
+    final Stream<FieldDifference> differences( final Object lhs, final Object rhs )
+    {
+        m_Pending.push( new Pair( lhs, rhs, 0, null, null ) );
+        final var spliterator = new Spliterators.AbstractSpliterator<FieldDifference>( Long.MAX_VALUE, ORDERED | NONNULL )
+        {
+            /**
+             *  {@inheritDoc}
+             */
+            @Override
+            public final boolean tryAdvance( final Consumer<? super FieldDifference> action )
+            {
+                final var difference = nextDifference();
+                final var retValue = nonNull( difference );
+                if( retValue ) action.accept( difference );
+
+                //---* Done *--------------------------------------------------
+                return retValue;
+            }   //  tryAdvance()
+        };
+        final var retValue = StreamSupport.stream( spliterator, false ).limit( m_Options.maxDifferences() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  differences()
+
+    /**
+     *  Queues the given pair of objects for the comparison.
+     *
+     *  @param  parent  The pair that references the new pair.
+     *  @param  segment The path segment for the new pair.
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     */
+    private final void enqueue( final Pair parent, final Object segment, final Object lhs, final Object rhs )
+    {
+        if( lhs != rhs )
+        {
+            final var trackPaths = trackPaths();
+            m_Pending.push( new Pair( lhs, rhs, parent.depth() + 1, trackPaths ? parent : null, trackPaths ? segment : null ) );
+        }
+    }   //  enqueue()
+
+    /**
+     *  Checks whether instances of the given class are compared with their
+     *  own {@code equals()} method when they are not the root objects, instead
+     *  of being walked.
+     *
+     *  @param  type    The class.
+     *  @return {@code true} if {@code equals()} is used, {@code false} if the
+     *      instances will be walked.
+     */
+    static final boolean isComparedWithEquals( final Class<?> type ) { return m_UsesEquals.get( type ).booleanValue(); }
+
+    /**
+     *  Checks whether the walk is finished because a difference was found
+     *  and no differences have to be reported.
+     *
+     *  @return {@code true} if the walk is finished, {@code false} otherwise.
+     */
+    private final boolean isFinished() { return m_DifferenceFound && isNull( m_Differences ); }
+
+    /**
+     *  Checks whether the given class is open for deep reflection.
+     *
+     *  @param  type    The class.
+     *  @return {@code true} if the fields of the class can be made
+     *      accessible, {@code false} otherwise.
+     */
+    static final boolean isOpen( final Class<?> type )
+    {
+        final var module = type.getModule();
+        final var retValue = !module.isNamed() || module.isOpen( type.getPackageName(), DeepComparison.class.getModule() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isOpen()
+
+    /**
+     *  Checks whether the given objects are arrays of the same primitive
+     *  type.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return {@code true} if both objects are arrays of the same primitive
+     *      type, {@code false} otherwise.
+     */
+    private static final boolean isPrimitiveArrayPair( final Object lhs, final Object rhs )
+    {
+        final var type = lhs.getClass();
+        final var retValue = (type == rhs.getClass()) && type.isArray() && type.getComponentType().isPrimitive();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isPrimitiveArrayPair()
+
+    /**
+     *  Checks whether the given pair of objects was already visited, and marks
+     *  it as visited if not.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return {@code true} if the pair was already visited, {@code false}
+     *      otherwise.
+     */
+    private final boolean isVisited( final Object lhs, final Object rhs )
+    {
+        final boolean retValue;
+
+        //---* The pairs of the enclosing walk are not marked again *----------
+        final var previousBefore = m_VisitedBefore.get( lhs );
+        if( (previousBefore == rhs) || ((previousBefore instanceof final Partners partnersBefore) && partnersBefore.objects().contains( rhs )) )
+        {
+            retValue = true;
+        }
+        else
+        {
+            final var previous = m_Visited.putIfAbsent( lhs, rhs );
+            if( isNull( previous ) || (previous == rhs) )
+            {
+                retValue = nonNull( previous );
+            }
+            else if( previous instanceof final Partners partners )
+            {
+                retValue = !partners.objects().add( rhs );
+            }
+            else
+            {
+                final var partners = new Partners( newSetFromMap( new IdentityHashMap<>() ) );
+                partners.objects().add( previous );
+                partners.objects().add( rhs );
+                m_Visited.put( lhs, partners );
+                retValue = false;
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isVisited()
+
+    /**
+     *  Returns the next difference.
+     *
+     *  @return The next difference, or {@code null} if there are no more
+     *      differences.
+     */
+    private final FieldDifference nextDifference()
+    {
+        while( m_Differences.isEmpty() && !m_Pending.isEmpty() )
+        {
+            comparePair( m_Pending.pop() );
+        }
+        final var retValue = m_Differences.poll();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  nextDifference()
+
+    /**
+     *  Builds the path for the given location.
+     *
+     *  @param  pair    The pair.
+     *  @param  segment The additional path segment below the pair; can be
+     *      {@code null}.
+     *  @return The path.
+     */
+    private static final String path( final Pair pair, final Object segment )
+    {
+        final Deque<Object> segments = new ArrayDeque<>();
+        if( nonNull( segment ) ) segments.push( segment );
+        for( var current = pair; nonNull( current ) && nonNull( current.segment() ); current = current.parent() )
+        {
+            segments.push( current.segment() );
+        }
+        final var buffer = new StringBuilder();
+        for( final var current : segments )
+        {
+            switch( current )
+            {
+                case final Integer index -> buffer.append( '[' ).append( index ).append( ']' );
+                case final Key key -> buffer.append( '[' ).append( TestUtils.toString( key.key(), ToStringOptions.defaults() ) ).append( ']' );
+                default ->
+                {
+                    if( !buffer.isEmpty() ) buffer.append( '.' );
+                    buffer.append( current );
+                }
+            }
+        }
+        final var retValue = buffer.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  path()
+
+    /**
+     *  Records a difference.
+     *
+     *  @param  pair    The pair in that the difference was detected.
+     *  @param  segment The additional path segment below the pair; can be
+     *      {@code null}.
+     *  @param  lhsValue    The left-hand value.
+     *  @param  rhsValue    The right-hand value.
+     */
+    private final void report( final Pair pair, final Object segment, final Object lhsValue, final Object rhsValue )
+    {
+        m_DifferenceFound = true;
+        if( nonNull( m_Differences ) )
+        {
+            m_Differences.add( new FieldDifference( path( pair, segment ), lhsValue, rhsValue ) );
+        }
+    }   //  report()
+
+    /**
+     *  Checks whether the paths to the pairs have to be tracked.
+     *
+     *  @return {@code true} if the paths are tracked, {@code false} otherwise.
+     */
+    private final boolean trackPaths() { return nonNull( m_Differences ); }
+
+    /**
+     *  Determines whether instances of the given class are compared with their
+     *  own {@code equals()} method instead of being walked. This is the case
+     *  if the class overrides
+     *  {@link Object#equals(Object)}
+     *  and is not a record, or if the class is not open for deep reflection.
+     *
+     *  @param  type    The class.
+     *  @return {@code true} if {@code equals()} is used, {@code false} if the
+     *      instances will be walked.
+     */
+    private static final boolean usesEquals( final Class<?> type )
+    {
+        var retValue = !isOpen( type );
+        if( !retValue && !type.isRecord() )
+        {
+            try
+            {
+                retValue = type.getMethod( "equals", Object.class ).getDeclaringClass() != Object.class;
+            }
+            catch( final NoSuchMethodException e )
+            {
+                //---* Every class has an equals() method *--------------------
+                throw new InternalError( "Unexpected NoSuchMethodException", e );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  usesEquals()
+}
+//  class DeepComparison
+
+/*
+ *  End of File
+ */
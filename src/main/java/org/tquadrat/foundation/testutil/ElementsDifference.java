@@ -0,0 +1,108 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static org.apiguardian.api.API.Status.STABLE;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The result of the comparison of two collections without regard to the
+ *  order of their elements, as it is returned by
+ *  {@link TestUtils#compareIgnoringOrder(java.util.Collection, java.util.Collection, ReflectionOptions)}.<br>
+ *  <br>The counts are always exact, while the lists with the missing and the
+ *  extra elements hold at most
+ *  {@linkplain ReflectionOptions#maxDifferences() the maximum number of differences}
+ *  elements each;
+ *  {@link #toString()}
+ *  shows them with the
+ *  {@linkplain ToStringOptions#defaults() default options}
+ *  for
+ *  {@link TestUtils#toString(Object, ToStringOptions)}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @param  missingCount    The number of expected elements that have no
+ *      counterpart in the actual collection.
+ *  @param  extraCount  The number of actual elements that have no
+ *      counterpart in the expected collection.
+ *  @param  missing Samples of the missing elements.
+ *  @param  extra   Samples of the extra elements.
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public record ElementsDifference( int missingCount, int extraCount, List<Object> missing, List<Object> extra )
+{
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ElementsDifference} instance.
+     *
+     *  @param  missingCount    The number of expected elements that have no
+     *      counterpart in the actual collection.
+     *  @param  extraCount  The number of actual elements that have no
+     *      counterpart in the expected collection.
+     *  @param  missing Samples of the missing elements; the list will be
+     *      copied.
+     *  @param  extra   Samples of the extra elements; the list will be
+     *      copied.
+     */
+    public ElementsDifference
+    {
+        missing = unmodifiableList( new ArrayList<>( missing ) );
+        extra = unmodifiableList( new ArrayList<>( extra ) );
+    }   //  ElementsDifference()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Checks whether the two collections hold the same elements.
+     *
+     *  @return {@code true} if there are neither missing nor extra elements,
+     *      {@code false} otherwise.
+     */
+    public final boolean isEmpty() { return (missingCount == 0) && (extraCount == 0); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = format( "%d element(s) missing, %d element(s) extra; missing: %s, extra: %s", missingCount, extraCount, TestUtils.toString( missing, ToStringOptions.defaults() ), TestUtils.toString( extra, ToStringOptions.defaults() ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  record ElementsDifference
+
+/*
+ *  End of File
+ */
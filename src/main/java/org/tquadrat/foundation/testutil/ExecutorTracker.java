@@ -0,0 +1,305 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Timer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ *  Keeps track of the instances of
+ *  {@link ExecutorService}
+ *  and
+ *  {@link Timer}
+ *  that are created by a test, and reports those that were not shut down,
+ *  or cancelled, respectively, until the end of the test.<br>
+ *  <br>An executor that was shut down is given time until the deadline to
+ *  terminate. After the check, all executors are shut down and all timers
+ *  are cancelled, so that the left over ones do not pile up over the
+ *  tests.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class ExecutorTracker
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  A
+     *  {@link Timer}
+     *  that remembers whether it was cancelled; the class {@code Timer}
+     *  itself does not tell that.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     */
+    private static final class TrackedTimer extends Timer
+    {
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The flag that indicates whether the timer was cancelled.
+         */
+        private volatile boolean m_IsCancelled = false;
+
+        /**
+         *  The name of the timer.
+         */
+        private final String m_Name;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new {@code TrackedTimer} instance.
+         *
+         *  @param  name    The name of the timer's thread.
+         *  @param  isDaemon    {@code true} if the timer's thread should run
+         *      as a daemon.
+         */
+        public TrackedTimer( final String name, final boolean isDaemon )
+        {
+            super( name, isDaemon );
+            m_Name = name;
+        }   //  TrackedTimer()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public final void cancel()
+        {
+            m_IsCancelled = true;
+            super.cancel();
+        }   //  cancel()
+
+        /**
+         *  Returns the name of the timer.
+         *
+         *  @return The name.
+         */
+        public final String getName() { return m_Name; }
+
+        /**
+         *  Returns whether the timer was cancelled.
+         *
+         *  @return {@code true} if the timer was cancelled, {@code false}
+         *      otherwise.
+         */
+        public final boolean isCancelled() { return m_IsCancelled; }
+    }
+    //  class TrackedTimer
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The tracked executors.
+     */
+    private final Collection<ExecutorService> m_Executors = new ConcurrentLinkedQueue<>();
+
+    /**
+     *  The tracked timers.
+     */
+    private final Collection<TrackedTimer> m_Timers = new ConcurrentLinkedQueue<>();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ExecutorTracker} instance.
+     */
+    ExecutorTracker() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the report on the executors that were not shut down or did not
+     *  terminate, and on the timers that were not cancelled. Afterwards, all
+     *  tracked executors are shut down, all tracked timers are cancelled, and
+     *  the tracking starts over.
+     *
+     *  @param  deadline    The time until the executors that were shut down
+     *      may take to terminate, as a value of
+     *      {@link System#nanoTime()}.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all executors have terminated, and
+     *      all timers were cancelled.
+     */
+    final Optional<String> check( final long deadline )
+    {
+        final Collection<String> findings = new ArrayList<>();
+        try
+        {
+            for( final var executor : m_Executors )
+            {
+                if( !executor.isShutdown() )
+                {
+                    findings.add( format( Locale.ROOT, "%s: not shut down, %s", describe( executor ), queuedTasks( executor ) ) );
+                }
+                else if( !isTerminated( executor, deadline ) )
+                {
+                    findings.add( format( Locale.ROOT, "%s: shut down, but not terminated, %s", describe( executor ), queuedTasks( executor ) ) );
+                }
+            }
+            for( final var timer : m_Timers )
+            {
+                if( !timer.isCancelled() ) findings.add( format( "Timer '%s': not cancelled", timer.getName() ) );
+            }
+        }
+        finally
+        {
+            //---* Clean up *--------------------------------------------------
+            m_Executors.forEach( ExecutorService::shutdownNow );
+            m_Executors.clear();
+            m_Timers.forEach( Timer::cancel );
+            m_Timers.clear();
+        }
+
+        final var retValue = findings.isEmpty()
+            ? Optional.<String>empty()
+            : Optional.of( format( Locale.ROOT, "Detected %,d executors or timers that were not shut down after test:%n\t%s", findings.size(), String.join( format( "%n\t" ), findings ) ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Returns the description of the given executor.
+     *
+     *  @param  executor    The executor.
+     *  @return The description.
+     */
+    private static final String describe( final ExecutorService executor )
+    {
+        final var retValue = format( "%s@%x", executor.getClass().getName(), System.identityHashCode( executor ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  describe()
+
+    /**
+     *  Waits until the given executor has terminated, or until the deadline
+     *  has passed.
+     *
+     *  @param  executor    The executor.
+     *  @param  deadline    The deadline, as a value of
+     *      {@link System#nanoTime()}.
+     *  @return {@code true} if the executor has terminated, {@code false}
+     *      otherwise.
+     */
+    private static final boolean isTerminated( final ExecutorService executor, final long deadline )
+    {
+        var retValue = executor.isTerminated();
+        final var remaining = deadline - System.nanoTime();
+        if( !retValue && (remaining > 0) && !Thread.currentThread().isInterrupted() )
+        {
+            try
+            {
+                retValue = executor.awaitTermination( remaining, NANOSECONDS );
+            }
+            catch( final InterruptedException ignored )
+            {
+                //---* Stop waiting, but keep the interrupt *------------------
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isTerminated()
+
+    /**
+     *  Creates a new
+     *  {@link Timer}
+     *  and tracks it.
+     *
+     *  @param  name    The name of the timer's thread.
+     *  @param  isDaemon    {@code true} if the timer's thread should run as a
+     *      daemon.
+     *  @return The new timer.
+     */
+    final Timer newTimer( final String name, final boolean isDaemon )
+    {
+        final var retValue = new TrackedTimer( name, isDaemon );
+        m_Timers.add( retValue );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  newTimer()
+
+    /**
+     *  Returns the number of the tasks that are queued for the given
+     *  executor, as text.
+     *
+     *  @param  executor    The executor.
+     *  @return The number of queued tasks.
+     */
+    private static final String queuedTasks( final ExecutorService executor )
+    {
+        final var retValue = switch( executor )
+        {
+            case final ThreadPoolExecutor pool -> format( Locale.ROOT, "%,d tasks queued, %,d active", pool.getQueue().size(), pool.getActiveCount() );
+            case final ForkJoinPool pool -> format( Locale.ROOT, "%,d tasks queued, %,d active", pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount(), pool.getActiveThreadCount() );
+            default -> "unknown number of tasks queued";
+        };
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  queuedTasks()
+
+    /**
+     *  Tracks the given executor.
+     *
+     *  @param  <E> The type of the executor.
+     *  @param  executor    The executor.
+     *  @return The executor.
+     */
+    final <E extends ExecutorService> E track( final E executor )
+    {
+        m_Executors.add( executor );
+
+        //---* Done *----------------------------------------------------------
+        return executor;
+    }   //  track()
+}
+//  class ExecutorTracker
+
+/*
+ *  End of File
+ */
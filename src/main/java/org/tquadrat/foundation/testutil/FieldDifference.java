@@ -0,0 +1,81 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static org.apiguardian.api.API.Status.STABLE;
+
+import org.apiguardian.api.API;
+
+/**
+ *  A single difference between two objects, as it is reported by
+ *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)}.<br>
+ *  <br>The path locates the difference, starting at the compared root
+ *  objects; field names are separated by dots, indexes of arrays and
+ *  {@link java.util.List}s
+ *  and the keys of
+ *  {@link java.util.Map}s
+ *  are given in square brackets, like in
+ *  {@code orders[42].lines[3].amount}.
+ *  When the lengths of two arrays differ, the segment {@code length} is
+ *  appended to the path of the arrays, for lists, it is {@code size()}. A
+ *  difference between the root objects themselves has the empty String as
+ *  its path. For arrays of a primitive type, only the first differing
+ *  element is reported.<br>
+ *  <br>When a map key exists only on one side, the value for the other side
+ *  is {@code null}.<br>
+ *  <br>{@link #toString()}
+ *  converts the values with
+ *  {@link TestUtils#reflectionToString(Object)},
+ *  so objects without an own {@code toString()} method show their fields,
+ *  and huge arrays or collections are shown abbreviated.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @param  path    The path to the differing values.
+ *  @param  lhsValue    The left-hand value.
+ *  @param  rhsValue    The right-hand value.
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public record FieldDifference( String path, Object lhsValue, Object rhsValue )
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = format( "%s: %s <> %s", path.isEmpty() ? "<root>" : path, TestUtils.reflectionToString( lhsValue ), TestUtils.reflectionToString( rhsValue ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+}
+//  record FieldDifference
+
+/*
+ *  End of File
+ */
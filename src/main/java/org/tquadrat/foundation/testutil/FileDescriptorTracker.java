@@ -0,0 +1,277 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getOperatingSystemMXBean;
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+
+/**
+ *  Detects the file descriptors that are opened while a test is running, and
+ *  that were not closed until the end of the test.<br>
+ *  <br>On Linux, the open file descriptors and their targets are read from
+ *  {@value #FD_DIRECTORY},
+ *  so the report lists the files, sockets and pipes that were left open. On
+ *  other Unix systems, only the number of the open file descriptors can be
+ *  compared, as provided by
+ *  {@link UnixOperatingSystemMXBean#getOpenFileDescriptorCount()};
+ *  on all other systems, the check is not performed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class FileDescriptorTracker
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The directory with the open file descriptors of the current process
+     *  on Linux: {@value}.
+     */
+    private static final String FD_DIRECTORY = "/proc/self/fd";
+
+    /**
+     *  The maximum pause between two checks, in nanoseconds: {@value}.
+     */
+    private static final long MAX_PAUSE = 50_000_000L;
+
+    /**
+     *  The initial pause between two checks, in nanoseconds: {@value}.
+     */
+    private static final long MIN_PAUSE = 1_000_000L;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    static
+    {
+        /*
+         * On the first use of a socket, the JDK opens another socket for its
+         * own purposes, and keeps it open until the JVM terminates; this is
+         * triggered here, before the first snapshot is taken, otherwise that
+         * socket would be reported for the first test that uses sockets.
+         */
+        try
+        {
+            SocketChannel.open().close();
+        }
+        catch( final IOException ignored )
+        {
+            //---* Sockets are not available at all *-------------------------
+        }
+    }
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The number of the file descriptors that were open when the tracking
+     *  started; -1 if the number is not available.
+     */
+    private final long m_CountBefore;
+
+    /**
+     *  The targets of the file descriptors that were open when the tracking
+     *  started, by the number of the file descriptor; {@code null} if they
+     *  are not available.
+     */
+    private final Map<Integer,String> m_TargetsBefore;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code FileDescriptorTracker} instance, and takes the
+     *  snapshot of the open file descriptors.
+     */
+    FileDescriptorTracker()
+    {
+        m_TargetsBefore = readTargets().orElse( null );
+        m_CountBefore = nonNull( m_TargetsBefore ) ? m_TargetsBefore.size() : countFileDescriptors();
+    }   //  FileDescriptorTracker()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the report on the file descriptors that were opened since the
+     *  tracking was started, but that were not closed yet.<br>
+     *  <br>As long as the deadline has not passed, the check is repeated
+     *  after increasing pauses, so file descriptors that are closed
+     *  asynchronously get the time to do so.
+     *
+     *  @param  deadline    The time until the file descriptors may take to
+     *      be closed, as a value of
+     *      {@link System#nanoTime()}.
+     *  @param  isAllowed   Tells whether a file descriptor with the given
+     *      target may be left open.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all file descriptors were closed,
+     *      or if the check is not supported on this system.
+     */
+    final Optional<String> check( final long deadline, final Predicate<String> isAllowed )
+    {
+        var pause = MIN_PAUSE;
+        var retValue = evaluate( isAllowed );
+        while( retValue.isPresent() && (System.nanoTime() < deadline) && !Thread.currentThread().isInterrupted() )
+        {
+            LockSupport.parkNanos( Math.min( pause, deadline - System.nanoTime() ) );
+            pause = Math.min( pause * 2, MAX_PAUSE );
+            retValue = evaluate( isAllowed );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Returns the number of the open file descriptors of the current
+     *  process.
+     *
+     *  @return The number of open file descriptors; -1 if the number is not
+     *      available.
+     */
+    private static final long countFileDescriptors()
+    {
+        final var retValue = getOperatingSystemMXBean() instanceof final UnixOperatingSystemMXBean unixBean
+            ? unixBean.getOpenFileDescriptorCount()
+            : -1L;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  countFileDescriptors()
+
+    /**
+     *  Compares the current file descriptors with those that were open when
+     *  the tracking started.
+     *
+     *  @param  isAllowed   Tells whether a file descriptor with the given
+     *      target may be left open.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all file descriptors were closed.
+     */
+    private final Optional<String> evaluate( final Predicate<String> isAllowed )
+    {
+        Optional<String> retValue = Optional.empty();
+        if( nonNull( m_TargetsBefore ) )
+        {
+            final var leaked = new ArrayList<Map.Entry<Integer,String>>();
+            for( final var entry : readTargets().orElse( Map.of() ).entrySet() )
+            {
+                if( !entry.getValue().equals( m_TargetsBefore.get( entry.getKey() ) ) && !isAllowed.test( entry.getValue() ) )
+                {
+                    leaked.add( entry );
+                }
+            }
+            if( !leaked.isEmpty() )
+            {
+                leaked.sort( comparingInt( Map.Entry::getKey ) );
+                final var buffer = new StringBuilder( format( Locale.ROOT, "Detected %,d unexpected open file descriptors after test:", leaked.size() ) );
+                leaked.forEach( entry -> buffer.append( format( "%n\t%d -> %s", entry.getKey(), entry.getValue() ) ) );
+                retValue = Optional.of( buffer.toString() );
+            }
+        }
+        else if( m_CountBefore >= 0 )
+        {
+            final var difference = countFileDescriptors() - m_CountBefore;
+            if( difference > 0 )
+            {
+                retValue = Optional.of( format( Locale.ROOT, "Detected %,d more open file descriptors after test than before", difference ) );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  evaluate()
+
+    /**
+     *  Reads the targets of the open file descriptors of the current
+     *  process.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the targets by the number of the file descriptor;
+     *      empty if they are not available on this system.
+     *  @throws UncheckedIOException    The file descriptors could not be
+     *      read.
+     */
+    private static final Optional<Map<Integer,String>> readTargets()
+    {
+        Optional<Map<Integer,String>> retValue = Optional.empty();
+        final var directory = Path.of( FD_DIRECTORY );
+        if( Files.isDirectory( directory ) )
+        {
+            /*
+             * The file descriptors are listed first, and resolved after the
+             * listing was closed: so the file descriptor for the listing
+             * itself can no longer be resolved, and is skipped.
+             */
+            final var descriptors = new ArrayList<Path>();
+            try( final var stream = Files.newDirectoryStream( directory ) )
+            {
+                stream.forEach( descriptors::add );
+            }
+            catch( final IOException e )
+            {
+                throw new UncheckedIOException( "Cannot list the open file descriptors", e );
+            }
+            final Map<Integer,String> targets = new HashMap<>();
+            for( final var descriptor : descriptors )
+            {
+                try
+                {
+                    targets.put( Integer.valueOf( descriptor.getFileName().toString() ), Files.readSymbolicLink( descriptor ).toString() );
+                }
+                catch( final IOException ignored )
+                {
+                    //---* The file descriptor was closed in the meantime *----
+                }
+            }
+            retValue = Optional.of( targets );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  readTargets()
+}
+//  class FileDescriptorTracker
+
+/*
+ *  End of File
+ */
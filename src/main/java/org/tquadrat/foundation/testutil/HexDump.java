@@ -0,0 +1,754 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Long.max;
+import static java.lang.Long.min;
+import static java.lang.String.format;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.isNull;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.testutil.TestUtils.requireNonNullArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import org.apiguardian.api.API;
+
+/**
+ *  Hex dumps of binary data, for the diagnosis of failed tests on binary
+ *  protocols and file formats.<br>
+ *  <br>The dumps have the layout that is known from {@code hexdump -C}:
+ *  each line shows the offset of its first byte, up to
+ *  {@value #BYTES_PER_LINE}
+ *  bytes as hexadecimal values, and the same bytes as ASCII characters,
+ *  where non-printable characters are replaced by a dot:
+ *  <pre><code>00000000  48 65 6c 6c 6f 2c 20 57  6f 72 6c 64 21 0a 00 01  |Hello, World!...|</code></pre>
+ *  Each dump is restricted to a window, given by its offset and its length;
+ *  only the bytes inside this window are read. The source of the bytes can
+ *  be an array, a heap or a direct
+ *  {@link ByteBuffer},
+ *  or a file. Files are mapped into memory in chunks of 64&nbsp;MiB, so even
+ *  capture files with several gigabytes can be inspected without loading
+ *  them onto the heap. A
+ *  {@code java.lang.foreign.MemorySegment}
+ *  can be dumped through the buffer that is returned by its
+ *  {@code asByteBuffer()} method.<br>
+ *  <br>The {@code dumpDifferences()} methods compare two sources, and dump
+ *  only the lines that differ, each one for both sources, followed by a line
+ *  that marks the differing bytes with {@code ^}. The sources are scanned
+ *  with
+ *  {@link ByteBuffer#mismatch(ByteBuffer)},
+ *  that is intrinsified by the JVM, so long identical ranges are skipped
+ *  quickly.<br>
+ *  <br>For buffers, the bytes from the current position up to the limit are
+ *  dumped, and offsets are relative to the position; the position of the
+ *  buffer is not changed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@SuppressWarnings( "UtilityClass" )
+@API( status = STABLE, since = "0.2.0" )
+public final class HexDump
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The source for the bytes of a dump: either a buffer, or a file that is
+     *  mapped into memory chunk by chunk.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     */
+    private static final class Source
+    {
+            /*------------*\
+        ====** Attributes **===================================================
+            \*------------*/
+        /**
+         *  The buffer; {@code null} for a file.
+         */
+        private final ByteBuffer m_Buffer;
+
+        /**
+         *  The channel for the file; {@code null} for a buffer.
+         */
+        private final FileChannel m_Channel;
+
+        /**
+         *  The currently mapped chunk of the file.
+         */
+        private ByteBuffer m_Chunk;
+
+        /**
+         *  The offset of the currently mapped chunk of the file; -1 if no
+         *  chunk is mapped.
+         */
+        private long m_ChunkOffset = -1L;
+
+        /**
+         *  The number of bytes.
+         */
+        private final long m_Size;
+
+            /*--------------*\
+        ====** Constructors **=================================================
+            \*--------------*/
+        /**
+         *  Creates a new {@code Source} instance for the given buffer.
+         *
+         *  @param  buffer  The buffer; the bytes between its position and its
+         *      limit are used.
+         */
+        public Source( final ByteBuffer buffer )
+        {
+            m_Buffer = buffer.slice();
+            m_Channel = null;
+            m_Size = m_Buffer.remaining();
+        }   //  Source()
+
+        /**
+         *  Creates a new {@code Source} instance for the given file.
+         *
+         *  @param  channel The channel for the file.
+         *  @throws IOException The size of the file cannot be determined.
+         */
+        public Source( final FileChannel channel ) throws IOException
+        {
+            m_Buffer = null;
+            m_Channel = channel;
+            m_Size = channel.size();
+        }   //  Source()
+
+            /*---------*\
+        ====** Methods **======================================================
+            \*---------*/
+        /**
+         *  Returns the byte at the given offset.
+         *
+         *  @param  offset  The offset.
+         *  @return The byte.
+         *  @throws IOException The file cannot be mapped.
+         */
+        public final byte get( final long offset ) throws IOException
+        {
+            final var retValue = isNull( m_Channel )
+                ? m_Buffer.get( (int) offset )
+                : mapChunk( offset ).get( (int) (offset - m_ChunkOffset) );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  get()
+
+        /**
+         *  Returns a buffer with the bytes from the given offset up to the
+         *  end of the chunk that contains it; the buffer has at least one
+         *  byte.
+         *
+         *  @param  offset  The offset; must be less than the size.
+         *  @return The buffer.
+         *  @throws IOException The file cannot be mapped.
+         */
+        public final ByteBuffer getChunk( final long offset ) throws IOException
+        {
+            final ByteBuffer retValue;
+            if( isNull( m_Channel ) )
+            {
+                retValue = m_Buffer.slice( (int) offset, (int) (m_Size - offset) );
+            }
+            else
+            {
+                final var chunk = mapChunk( offset );
+                final var start = (int) (offset - m_ChunkOffset);
+                retValue = chunk.slice( start, chunk.capacity() - start );
+            }
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  getChunk()
+
+        /**
+         *  Maps the chunk of the file that contains the given offset, if it
+         *  is not already mapped.
+         *
+         *  @param  offset  The offset.
+         *  @return The chunk.
+         *  @throws IOException The file cannot be mapped.
+         */
+        private final ByteBuffer mapChunk( final long offset ) throws IOException
+        {
+            if( (m_ChunkOffset < 0L) || (offset < m_ChunkOffset) || (offset >= m_ChunkOffset + m_Chunk.capacity()) )
+            {
+                final var chunkOffset = offset - (offset % CHUNK_SIZE);
+                m_Chunk = m_Channel.map( READ_ONLY, chunkOffset, min( CHUNK_SIZE, m_Size - chunkOffset ) );
+                m_ChunkOffset = chunkOffset;
+            }
+
+            //---* Done *------------------------------------------------------
+            return m_Chunk;
+        }   //  mapChunk()
+
+        /**
+         *  Returns the number of bytes.
+         *
+         *  @return The size.
+         */
+        public final long size() { return m_Size; }
+    }
+    //  class Source
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The number of bytes per line: {@value}.
+     */
+    public static final int BYTES_PER_LINE = 16;
+
+    /**
+     *  The default for the maximum number of differing lines that are dumped
+     *  by the {@code dumpDifferences()} methods: {@value}.
+     */
+    public static final int DEFAULT_MAX_LINES = 32;
+
+    /**
+     *  The size of the chunks in which files are mapped into memory: {@value}
+     *  bytes; this is a multiple of
+     *  {@link #BYTES_PER_LINE}.
+     */
+    private static final int CHUNK_SIZE = 1 << 26;
+
+    /**
+     *  The hexadecimal digits.
+     */
+    private static final char [] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private HexDump() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Appends the given value as two hexadecimal digits.
+     *
+     *  @param  target  The target.
+     *  @param  value   The value.
+     *  @throws IOException Writing to the target failed.
+     */
+    private static final void appendHex( final Appendable target, final byte value ) throws IOException
+    {
+        target.append( HEX_DIGITS [(value >> 4) & 0xF] ).append( HEX_DIGITS [value & 0xF] );
+    }   //  appendHex()
+
+    /**
+     *  Appends a single line of the dump.
+     *
+     *  @param  target  The target.
+     *  @param  prefix  The prefix for the line.
+     *  @param  source  The source.
+     *  @param  lineStart   The offset of the first byte in the line.
+     *  @param  lineEnd The offset behind the last byte in the line; bytes
+     *      behind the end of the source are shown as blanks.
+     *  @throws IOException Writing to the target, or reading the source
+     *      failed.
+     */
+    private static final void appendLine( final Appendable target, final String prefix, final Source source, final long lineStart, final long lineEnd ) throws IOException
+    {
+        final var available = min( lineEnd, source.size() );
+        target.append( prefix );
+        appendOffset( target, lineStart );
+        target.append( "  " );
+        for( var i = 0; i < BYTES_PER_LINE; ++i )
+        {
+            if( i == BYTES_PER_LINE / 2 ) target.append( ' ' );
+            final var offset = lineStart + i;
+            if( offset < available )
+            {
+                appendHex( target, source.get( offset ) );
+            }
+            else
+            {
+                target.append( "  " );
+            }
+            target.append( ' ' );
+        }
+        target.append( " |" );
+        for( var offset = lineStart; offset < available; ++offset )
+        {
+            final var value = source.get( offset );
+            target.append( (value >= 0x20) && (value < 0x7F) ? (char) value : '.' );
+        }
+        target.append( '|' ).append( System.lineSeparator() );
+    }   //  appendLine()
+
+    /**
+     *  Appends the line that marks the differing bytes of a line with
+     *  {@code ^}.
+     *
+     *  @param  target  The target.
+     *  @param  lhs The left-hand source.
+     *  @param  rhs The right-hand source.
+     *  @param  lineStart   The offset of the first byte in the line.
+     *  @param  lineEnd The offset behind the last byte in the line.
+     *  @throws IOException Writing to the target, or reading one of the
+     *      sources failed.
+     */
+    private static final void appendMarkers( final Appendable target, final Source lhs, final Source rhs, final long lineStart, final long lineEnd ) throws IOException
+    {
+        final var hexMarkers = new StringBuilder();
+        final var asciiMarkers = new StringBuilder();
+        for( var i = 0; i < BYTES_PER_LINE; ++i )
+        {
+            if( i == BYTES_PER_LINE / 2 ) hexMarkers.append( ' ' );
+            final var offset = lineStart + i;
+            final var isDifferent = (offset < lineEnd) && isDifferent( lhs, rhs, offset );
+            hexMarkers.append( isDifferent ? "^^ " : "   " );
+            if( offset < max( min( lineEnd, lhs.size() ), min( lineEnd, rhs.size() ) ) ) asciiMarkers.append( isDifferent ? '^' : ' ' );
+        }
+        final var offsetWidth = Math.max( 8, Long.toHexString( lineStart ).length() );
+        target.append( " ".repeat( 2 + offsetWidth + 2 ) )
+            .append( hexMarkers )
+            .append( "  " )
+            .append( asciiMarkers.toString().stripTrailing() )
+            .append( System.lineSeparator() );
+    }   //  appendMarkers()
+
+    /**
+     *  Appends the given offset as a hexadecimal number with at least eight
+     *  digits.
+     *
+     *  @param  target  The target.
+     *  @param  offset  The offset.
+     *  @throws IOException Writing to the target failed.
+     */
+    private static final void appendOffset( final Appendable target, final long offset ) throws IOException
+    {
+        final var digits = Long.toHexString( offset );
+        for( var i = digits.length(); i < 8; ++i ) target.append( '0' );
+        target.append( digits );
+    }   //  appendOffset()
+
+    /**
+     *  Checks the given window.
+     *
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    private static final void checkWindow( final long offset, final long length )
+    {
+        if( (offset < 0L) || (length < 0L) )
+        {
+            throw new IllegalArgumentException( format( "Invalid window: offset %d, length %d", offset, length ) );
+        }
+    }   //  checkWindow()
+
+    /**
+     *  Dumps the bytes inside the given window of the given source to the
+     *  given target.
+     *
+     *  @param  target  The target.
+     *  @param  source  The source.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @throws IOException Writing to the target, or reading the source
+     *      failed.
+     */
+    private static final void dump( final Appendable target, final Source source, final long offset, final long length ) throws IOException
+    {
+        checkWindow( offset, length );
+        final var end = endOfWindow( offset, length, source.size() );
+        for( var lineStart = offset; lineStart < end; lineStart += BYTES_PER_LINE )
+        {
+            appendLine( target, "", source, lineStart, min( lineStart + BYTES_PER_LINE, end ) );
+        }
+    }   //  dump()
+
+    /**
+     *  Dumps the given bytes.
+     *
+     *  @param  data    The bytes.
+     *  @return The dump.
+     */
+    public static final String dump( final byte [] data )
+    {
+        return dump( requireNonNullArgument( data, "data" ), 0, data.length );
+    }   //  dump()
+
+    /**
+     *  Dumps the bytes inside the given window of the given array. The window
+     *  is clipped to the array.
+     *
+     *  @param  data    The bytes.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @return The dump.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    public static final String dump( final byte [] data, final int offset, final int length )
+    {
+        return dump( ByteBuffer.wrap( requireNonNullArgument( data, "data" ) ), offset, length );
+    }   //  dump()
+
+    /**
+     *  Dumps the bytes inside the given window of the given buffer to the
+     *  given target. The window is clipped to the remaining bytes of the
+     *  buffer.
+     *
+     *  @param  target  The target.
+     *  @param  buffer  The buffer.
+     *  @param  offset  The offset of the window, relative to the position of
+     *      the buffer.
+     *  @param  length  The length of the window.
+     *  @throws IOException Writing to the target failed.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    public static final void dump( final Appendable target, final ByteBuffer buffer, final int offset, final int length ) throws IOException
+    {
+        dump( requireNonNullArgument( target, "target" ), new Source( requireNonNullArgument( buffer, "buffer" ) ), offset, length );
+    }   //  dump()
+
+    /**
+     *  Dumps the bytes inside the given window of the given buffer. The
+     *  window is clipped to the remaining bytes of the buffer.
+     *
+     *  @param  buffer  The buffer.
+     *  @param  offset  The offset of the window, relative to the position of
+     *      the buffer.
+     *  @param  length  The length of the window.
+     *  @return The dump.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    public static final String dump( final ByteBuffer buffer, final int offset, final int length )
+    {
+        final var target = new StringBuilder();
+        try
+        {
+            dump( target, buffer, offset, length );
+        }
+        catch( final IOException e )
+        {
+            //---* A StringBuilder does not throw an IOException *------------
+            throw new InternalError( "Unexpected IOException", e );
+        }
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  dump()
+
+    /**
+     *  Dumps the bytes inside the given window of the given file to the given
+     *  target. The window is clipped to the file; only the chunks of the file
+     *  that overlap the window are mapped into memory.
+     *
+     *  @param  target  The target.
+     *  @param  file    The file.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @throws IOException Writing to the target, or reading the file
+     *      failed.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    public static final void dump( final Appendable target, final Path file, final long offset, final long length ) throws IOException
+    {
+        requireNonNullArgument( target, "target" );
+        try( final var channel = FileChannel.open( requireNonNullArgument( file, "file" ), READ ) )
+        {
+            dump( target, new Source( channel ), offset, length );
+        }
+    }   //  dump()
+
+    /**
+     *  Dumps the bytes inside the given window of the given file. The window
+     *  is clipped to the file; only the chunks of the file that overlap the
+     *  window are mapped into memory.
+     *
+     *  @param  file    The file.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @return The dump.
+     *  @throws IOException Reading the file failed.
+     *  @throws IllegalArgumentException    The offset or the length is
+     *      negative.
+     */
+    public static final String dump( final Path file, final long offset, final int length ) throws IOException
+    {
+        final var target = new StringBuilder();
+        dump( target, file, offset, length );
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  dump()
+
+    /**
+     *  Dumps the lines inside the given window in which the given sources
+     *  differ to the given target.
+     *
+     *  @param  target  The target.
+     *  @param  lhs The left-hand source.
+     *  @param  rhs The right-hand source.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @param  maxLines    The maximum number of differing lines.
+     *  @throws IOException Writing to the target, or reading one of the
+     *      sources failed.
+     */
+    private static final void dumpDifferences( final Appendable target, final Source lhs, final Source rhs, final long offset, final long length, final int maxLines ) throws IOException
+    {
+        checkWindow( offset, length );
+        if( maxLines < 0 ) throw new IllegalArgumentException( format( "Invalid maximum number of lines: %d", maxLines ) );
+
+        final var common = endOfWindow( offset, length, min( lhs.size(), rhs.size() ) );
+        final var end = endOfWindow( offset, length, max( lhs.size(), rhs.size() ) );
+        var position = offset;
+        var lines = 0;
+        var hasMore = false;
+        while( (position < end) && !hasMore )
+        {
+            var index = mismatch( lhs, rhs, position, common );
+            if( (index < 0L) && (common < end) ) index = max( position, common );
+            if( index < 0L )
+            {
+                position = end;
+            }
+            else if( lines == maxLines )
+            {
+                hasMore = true;
+            }
+            else
+            {
+                final var lineStart = index - ((index - offset) % BYTES_PER_LINE);
+                final var lineEnd = min( lineStart + BYTES_PER_LINE, end );
+                appendLine( target, "- ", lhs, lineStart, lineEnd );
+                appendLine( target, "+ ", rhs, lineStart, lineEnd );
+                appendMarkers( target, lhs, rhs, lineStart, lineEnd );
+                ++lines;
+                position = lineEnd;
+            }
+        }
+        if( hasMore ) target.append( format( "... more differences after offset %08x%n", position ) );
+    }   //  dumpDifferences()
+
+    /**
+     *  Dumps the lines in which the given arrays differ, at most
+     *  {@value #DEFAULT_MAX_LINES}
+     *  of them; if the arrays are equal, the result is empty.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return The dump.
+     */
+    public static final String dumpDifferences( final byte [] lhs, final byte [] rhs )
+    {
+        return dumpDifferences( ByteBuffer.wrap( requireNonNullArgument( lhs, "lhs" ) ), ByteBuffer.wrap( requireNonNullArgument( rhs, "rhs" ) ), DEFAULT_MAX_LINES );
+    }   //  dumpDifferences()
+
+    /**
+     *  Dumps the lines in which the remaining bytes of the given buffers
+     *  differ; if the buffers are equal, the result is empty.<br>
+     *  <br>For each differing line, the line of the left-hand buffer,
+     *  prefixed by {@code - }, is followed by the line of the right-hand
+     *  buffer, prefixed by {@code + }, and by a line that marks the
+     *  differing bytes with {@code ^}. Bytes behind the end of the shorter
+     *  buffer are shown as blanks, and they are marked as differing. When
+     *  more lines differ than requested, this is indicated by a final line.
+     *
+     *  @param  lhs The left-hand buffer.
+     *  @param  rhs The right-hand buffer.
+     *  @param  maxLines    The maximum number of differing lines.
+     *  @return The dump.
+     *  @throws IllegalArgumentException    The maximum number of lines is
+     *      negative.
+     */
+    public static final String dumpDifferences( final ByteBuffer lhs, final ByteBuffer rhs, final int maxLines )
+    {
+        final var lhsSource = new Source( requireNonNullArgument( lhs, "lhs" ) );
+        final var rhsSource = new Source( requireNonNullArgument( rhs, "rhs" ) );
+        final var target = new StringBuilder();
+        try
+        {
+            dumpDifferences( target, lhsSource, rhsSource, 0L, max( lhsSource.size(), rhsSource.size() ), maxLines );
+        }
+        catch( final IOException e )
+        {
+            //---* A StringBuilder does not throw an IOException *------------
+            throw new InternalError( "Unexpected IOException", e );
+        }
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  dumpDifferences()
+
+    /**
+     *  Dumps the lines inside the given window in which the given files
+     *  differ to the given target; see
+     *  {@link #dumpDifferences(ByteBuffer, ByteBuffer, int)}
+     *  for the format. The files are mapped into memory chunk by chunk, and
+     *  the scan stops as soon as the maximum number of differing lines is
+     *  exceeded.
+     *
+     *  @param  target  The target.
+     *  @param  lhs The left-hand file.
+     *  @param  rhs The right-hand file.
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @param  maxLines    The maximum number of differing lines.
+     *  @throws IOException Writing to the target, or reading one of the
+     *      files failed.
+     *  @throws IllegalArgumentException    The offset, the length or the
+     *      maximum number of lines is negative.
+     */
+    public static final void dumpDifferences( final Appendable target, final Path lhs, final Path rhs, final long offset, final long length, final int maxLines ) throws IOException
+    {
+        requireNonNullArgument( target, "target" );
+        try( final var lhsChannel = FileChannel.open( requireNonNullArgument( lhs, "lhs" ), READ );
+             final var rhsChannel = FileChannel.open( requireNonNullArgument( rhs, "rhs" ), READ ) )
+        {
+            dumpDifferences( target, new Source( lhsChannel ), new Source( rhsChannel ), offset, length, maxLines );
+        }
+    }   //  dumpDifferences()
+
+    /**
+     *  Dumps the lines in which the given files differ, at most
+     *  {@value #DEFAULT_MAX_LINES}
+     *  of them; if the files are equal, the result is empty. See
+     *  {@link #dumpDifferences(ByteBuffer, ByteBuffer, int)}
+     *  for the format.
+     *
+     *  @param  lhs The left-hand file.
+     *  @param  rhs The right-hand file.
+     *  @return The dump.
+     *  @throws IOException Reading one of the files failed.
+     */
+    public static final String dumpDifferences( final Path lhs, final Path rhs ) throws IOException
+    {
+        final var target = new StringBuilder();
+        dumpDifferences( target, lhs, rhs, 0L, Long.MAX_VALUE, DEFAULT_MAX_LINES );
+        final var retValue = target.toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  dumpDifferences()
+
+    /**
+     *  Returns the offset behind the last byte of the given window that is
+     *  inside a source with the given size. Unlike
+     *  {@code min( size, offset + length )}, this cannot overflow, so a
+     *  window with the length
+     *  {@link Long#MAX_VALUE}
+     *  just reaches to the end of the source.
+     *
+     *  @param  offset  The offset of the window.
+     *  @param  length  The length of the window.
+     *  @param  size    The size of the source.
+     *  @return The end of the window; it is {@code offset} if the window
+     *      starts behind the end of the source.
+     */
+    private static final long endOfWindow( final long offset, final long length, final long size )
+    {
+        final var retValue = offset + min( length, max( 0L, size - offset ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  endOfWindow()
+
+    /**
+     *  Checks whether the given sources differ at the given offset; a byte
+     *  that exists in one source only is different.
+     *
+     *  @param  lhs The left-hand source.
+     *  @param  rhs The right-hand source.
+     *  @param  offset  The offset.
+     *  @return {@code true} if the bytes differ, {@code false} otherwise.
+     *  @throws IOException Reading one of the sources failed.
+     */
+    private static final boolean isDifferent( final Source lhs, final Source rhs, final long offset ) throws IOException
+    {
+        final var lhsExists = offset < lhs.size();
+        final var rhsExists = offset < rhs.size();
+        final var retValue = (lhsExists != rhsExists) || (lhsExists && (lhs.get( offset ) != rhs.get( offset )));
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isDifferent()
+
+    /**
+     *  Determines the offset of the first mismatch between the given sources
+     *  inside the given range.
+     *
+     *  @param  lhs The left-hand source.
+     *  @param  rhs The right-hand source.
+     *  @param  from    The offset of the range (inclusive).
+     *  @param  to  The end of the range (exclusive); not greater than the
+     *      size of any of the sources.
+     *  @return The offset of the first mismatch; -1 if the ranges are equal.
+     *  @throws IOException Reading one of the sources failed.
+     */
+    private static final long mismatch( final Source lhs, final Source rhs, final long from, final long to ) throws IOException
+    {
+        var retValue = -1L;
+        var position = from;
+        while( (retValue < 0L) && (position < to) )
+        {
+            final var lhsChunk = lhs.getChunk( position );
+            final var rhsChunk = rhs.getChunk( position );
+            final var length = (int) min( to - position, Math.min( lhsChunk.remaining(), rhsChunk.remaining() ) );
+            final var index = lhsChunk.limit( length ).mismatch( rhsChunk.limit( length ) );
+            if( index >= 0 )
+            {
+                retValue = position + index;
+            }
+            else
+            {
+                position += length;
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  mismatch()
+}
+//  class HexDump
+
+/*
+ *  End of File
+ */
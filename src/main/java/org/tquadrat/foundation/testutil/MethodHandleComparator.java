@@ -0,0 +1,271 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Objects;
+
+import org.tquadrat.foundation.testutil.ClassMetadata.FieldInfo;
+
+/**
+ *  Composes the comparators for the engine
+ *  {@link ReflectionEngine#METHOD_HANDLES}.<br>
+ *  <br>For a given set of fields, a single
+ *  {@link MethodHandle}
+ *  with the type {@code (Object,Object)boolean} is built. For each field, the
+ *  getter is applied to both arguments, and the results are passed to a
+ *  comparison method that matches the type of the field; the comparisons are
+ *  chained with
+ *  {@link MethodHandles#guardWithTest(MethodHandle, MethodHandle, MethodHandle)}
+ *  so that the first difference terminates the chain. Primitive values are
+ *  never boxed on this path.<br>
+ *  <br>Floating point values are compared based on their bit patterns, as
+ *  {@link Double#equals(Object)}
+ *  and
+ *  {@link Float#equals(Object)}
+ *  do; therefore, the result is the same as for
+ *  {@link ReflectionEngine#REFLECTION}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class MethodHandleComparator
+{
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The lookup for the comparison methods.
+     */
+    private static final MethodHandles.Lookup m_Lookup = MethodHandles.lookup();
+
+    /**
+     *  The handle that returns {@code false} for any two objects.
+     */
+    private static final MethodHandle m_False = dropArguments( constant( boolean.class, false ), 0, Object.class, Object.class );
+
+    /**
+     *  The handle that returns {@code true} for any two objects.
+     */
+    private static final MethodHandle m_True = dropArguments( constant( boolean.class, true ), 0, Object.class, Object.class );
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private MethodHandleComparator() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the comparator for the given fields.
+     *
+     *  @param  fields  The fields to compare; these have to be accessible
+     *      already.
+     *  @return The comparator; it has the type {@code (Object,Object)boolean}.
+     *      When the arguments are not instances of the class that declares
+     *      the fields, it throws a
+     *      {@link ClassCastException}.
+     */
+    static final MethodHandle create( final FieldInfo [] fields )
+    {
+        final var getters = new MethodHandle [fields.length];
+        try
+        {
+            for( var i = 0; i < fields.length; ++i )
+            {
+                final var field = fields [i].field();
+                final var type = field.getType().isPrimitive() ? field.getType() : Object.class;
+                getters [i] = m_Lookup.unreflectGetter( field ).asType( methodType( type, Object.class ) );
+            }
+        }
+        catch( final IllegalAccessException e )
+        {
+            //---* The fields are accessible, so this cannot happen *----------
+            throw new InternalError( "Unexpected IllegalAccessException", e );
+        }
+        final var retValue = create( getters );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  create()
+
+    /**
+     *  Creates the comparator for the values that are returned by the given
+     *  getters.
+     *
+     *  @param  getters The getters; each has the type {@code (Object)type},
+     *      where {@code type} is either a primitive type or
+     *      {@link Object}.
+     *  @return The comparator; it has the type {@code (Object,Object)boolean}.
+     *      When the arguments are not instances of the class the getters
+     *      belong to, it throws a
+     *      {@link ClassCastException}.
+     */
+    static final MethodHandle create( final MethodHandle [] getters )
+    {
+        var retValue = m_True;
+        try
+        {
+            for( var i = getters.length - 1; i >= 0; --i )
+            {
+                final var getter = getters [i];
+                final var comparison = filterArguments( equalsFor( getter.type().returnType() ), 0, getter, getter );
+                retValue = guardWithTest( comparison, retValue, m_False );
+            }
+        }
+        catch( final IllegalAccessException | NoSuchMethodException e )
+        {
+            //---* The comparison methods exist, so this cannot happen *-------
+            throw new InternalError( "Unexpected " + e.getClass().getSimpleName(), e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  create()
+
+    /**
+     *  Returns the comparison method for the given type.
+     *
+     *  @param  type    The type; either a primitive type or
+     *      {@link Object}.
+     *  @return The comparison method; it has the type
+     *      {@code (type,type)boolean}.
+     *  @throws IllegalAccessException  The comparison method is not accessible.
+     *  @throws NoSuchMethodException   There is no comparison method for the
+     *      given type.
+     */
+    private static final MethodHandle equalsFor( final Class<?> type ) throws IllegalAccessException, NoSuchMethodException
+    {
+        final var retValue = m_Lookup.findStatic( MethodHandleComparator.class, "isEqual", methodType( boolean.class, type, type ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  equalsFor()
+
+    /**
+     *  Compares two {@code boolean} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final boolean lhs, final boolean rhs ) { return lhs == rhs; }
+
+    /**
+     *  Compares two {@code byte} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final byte lhs, final byte rhs ) { return lhs == rhs; }
+
+    /**
+     *  Compares two {@code char} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final char lhs, final char rhs ) { return lhs == rhs; }
+
+    /**
+     *  Compares two {@code double} values based on their bit patterns.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final double lhs, final double rhs ) { return doubleToLongBits( lhs ) == doubleToLongBits( rhs ); }
+
+    /**
+     *  Compares two {@code float} values based on their bit patterns.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final float lhs, final float rhs ) { return floatToIntBits( lhs ) == floatToIntBits( rhs ); }
+
+    /**
+     *  Compares two {@code int} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final int lhs, final int rhs ) { return lhs == rhs; }
+
+    /**
+     *  Compares two {@code long} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final long lhs, final long rhs ) { return lhs == rhs; }
+
+    /**
+     *  Compares two objects through
+     *  {@link Objects#deepEquals(Object, Object)}.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final Object lhs, final Object rhs ) { return Objects.deepEquals( lhs, rhs ); }
+
+    /**
+     *  Compares two {@code short} values.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    @SuppressWarnings( "unused" )
+    private static final boolean isEqual( final short lhs, final short rhs ) { return lhs == rhs; }
+}
+//  class MethodHandleComparator
+
+/*
+ *  End of File
+ */
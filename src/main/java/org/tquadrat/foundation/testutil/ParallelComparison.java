@@ -0,0 +1,352 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.min;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *  The parallel comparison of large arrays and
+ *  {@link List}s,
+ *  as it is used by
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}
+ *  when the
+ *  {@linkplain ReflectionOptions#parallelism() parallelism}
+ *  is greater than 1.<br>
+ *  <br>Two arrays of the same type, or two lists that both implement
+ *  {@link RandomAccess},
+ *  with at least
+ *  {@linkplain ReflectionOptions#parallelThreshold() threshold}
+ *  elements are split into chunks that are compared concurrently. As soon as
+ *  one chunk finds a mismatch, the other chunks stop their work. With the
+ *  {@linkplain ReflectionOptions#deepComparison() deep comparison},
+ *  the pairs that were already visited by the enclosing walk are not walked
+ *  again by the chunks, so that elements which reference back into the
+ *  graph do not cause each chunk to walk the whole graph.<br>
+ *  <br>For each comparison, a new
+ *  {@link ForkJoinPool}
+ *  is created; it is shut down, and all its worker threads are joined before
+ *  the comparison returns. This means that no threads are left behind that
+ *  could trip
+ *  {@link TestBaseClass#assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()}.
+ *  The same mechanism is used by
+ *  {@link UnorderedComparison}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class ParallelComparison
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The number of chunks per thread: {@value}.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     *  The number of primitive array elements that are compared before the
+     *  cancellation flag is checked again: {@value}.
+     */
+    private static final int STRIDE = 8192;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ParallelComparison() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Compares the given arrays or lists in parallel. The caller has to make
+     *  sure that
+     *  {@link #isCandidate(Object, Object, ReflectionOptions)}
+     *  returns {@code true} for the arguments.
+     *
+     *  @param  lhs The left-hand array or list.
+     *  @param  rhs The right-hand array or list.
+     *  @param  options The options for the comparison.
+     *  @param  depth   The depth of the elements in the compared graph.
+     *  @param  enclosing   The walk that found the arrays or lists; its
+     *      visited pairs are not walked again when the elements are compared
+     *      deeply. May be {@code null} if the
+     *      {@linkplain ReflectionOptions#deepComparison() deep comparison}
+     *      is not switched on.
+     *  @return {@code true} if the arrays or lists are equal, {@code false}
+     *      otherwise.
+     */
+    static final boolean areEqual( final Object lhs, final Object rhs, final ReflectionOptions options, final int depth, final DeepComparison enclosing )
+    {
+        final var length = lhs instanceof final List<?> list ? list.size() : Array.getLength( lhs );
+        var retValue = length == (rhs instanceof final List<?> list ? list.size() : Array.getLength( rhs ));
+        if( retValue )
+        {
+            final var parallelism = options.parallelism();
+            final var chunkSize = Math.max( 1, (length + (parallelism * CHUNKS_PER_THREAD) - 1) / (parallelism * CHUNKS_PER_THREAD) );
+            final var mismatch = new AtomicBoolean( false );
+            final Collection<Callable<Boolean>> tasks = new ArrayList<>();
+            for( var from = 0; from < length; from += chunkSize )
+            {
+                final var start = from;
+                final var end = min( length, from + chunkSize );
+                tasks.add( () ->
+                {
+                    final var result = compareChunk( lhs, rhs, start, end, options, depth, enclosing, mismatch );
+                    if( !result ) mismatch.set( true );
+                    return Boolean.valueOf( result );
+                } );
+            }
+            invokeAll( parallelism, tasks );
+            retValue = !mismatch.get();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  areEqual()
+
+    /**
+     *  Compares a chunk of the given arrays or lists.
+     *
+     *  @param  lhs The left-hand array or list.
+     *  @param  rhs The right-hand array or list.
+     *  @param  from    The index of the first element in the chunk.
+     *  @param  to  The index after the last element in the chunk.
+     *  @param  options The options for the comparison.
+     *  @param  depth   The depth of the elements in the compared graph.
+     *  @param  enclosing   The walk that found the arrays or lists.
+     *  @param  mismatch    The flag that is set when another chunk detected a
+     *      mismatch.
+     *  @return {@code true} if the chunks are equal, or if the comparison was
+     *      cancelled, {@code false} if a mismatch was detected.
+     */
+    @SuppressWarnings( {"OverlyComplexMethod", "IfStatementWithTooManyBranches", "ChainOfInstanceofChecks"} )
+    private static final boolean compareChunk( final Object lhs, final Object rhs, final int from, final int to, final ReflectionOptions options, final int depth, final DeepComparison enclosing, final AtomicBoolean mismatch )
+    {
+        var retValue = true;
+        if( (lhs instanceof Object []) || (lhs instanceof List<?>) )
+        {
+            final var lhsList = lhs instanceof final Object [] array ? Arrays.asList( array ) : (List<?>) lhs;
+            final var rhsList = rhs instanceof final Object [] array ? Arrays.asList( array ) : (List<?>) rhs;
+            final var isArray = lhs instanceof Object [];
+            final var walker = options.deepComparison() ? new DeepComparison( enclosing ) : null;
+            for( var i = from; (i < to) && retValue && !mismatch.get(); ++i )
+            {
+                if( nonNull( walker ) )
+                {
+                    retValue = walker.areEqual( lhsList.get( i ), rhsList.get( i ), depth );
+                }
+                else
+                {
+                    retValue = isArray ? Objects.deepEquals( lhsList.get( i ), rhsList.get( i ) ) : Objects.equals( lhsList.get( i ), rhsList.get( i ) );
+                }
+            }
+        }
+        else
+        {
+            for( var start = from; (start < to) && retValue && !mismatch.get(); start += STRIDE )
+            {
+                final var end = min( to, start + STRIDE );
+                retValue = switch( lhs )
+                {
+                    case final byte [] array -> Arrays.equals( array, start, end, (byte []) rhs, start, end );
+                    case final short [] array -> Arrays.equals( array, start, end, (short []) rhs, start, end );
+                    case final int [] array -> Arrays.equals( array, start, end, (int []) rhs, start, end );
+                    case final long [] array -> Arrays.equals( array, start, end, (long []) rhs, start, end );
+                    case final char [] array -> Arrays.equals( array, start, end, (char []) rhs, start, end );
+                    case final float [] array when options.hasTolerance() -> ArrayComparison.mismatch( array, (float []) rhs, start, end, options ) < 0;
+                    case final float [] array -> Arrays.equals( array, start, end, (float []) rhs, start, end );
+                    case final double [] array when options.hasTolerance() -> ArrayComparison.mismatch( array, (double []) rhs, start, end, options ) < 0;
+                    case final double [] array -> Arrays.equals( array, start, end, (double []) rhs, start, end );
+                    case final boolean [] array -> Arrays.equals( array, start, end, (boolean []) rhs, start, end );
+                    default -> throw new IllegalArgumentException( "Unsupported type: " + lhs.getClass().getName() );
+                };
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  compareChunk()
+
+    /**
+     *  Executes the given tasks on a new
+     *  {@link ForkJoinPool}
+     *  with the given number of threads, and waits until all of them are
+     *  finished. Afterwards, the pool is shut down, and its worker threads are
+     *  joined.
+     *
+     *  @param  <T> The type of the results of the tasks.
+     *  @param  parallelism The number of threads.
+     *  @param  tasks   The tasks.
+     *  @return The results of the tasks, in the order of the tasks.
+     *  @throws IllegalStateException   The current thread was interrupted
+     *      while waiting for the tasks.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"} )
+    static final <T> List<T> invokeAll( final int parallelism, final Collection<? extends Callable<T>> tasks )
+    {
+        final List<T> retValue = new ArrayList<>( tasks.size() );
+        final Collection<Thread> workers = new ConcurrentLinkedQueue<>();
+        final var pool = new ForkJoinPool( parallelism, p ->
+        {
+            final var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( p );
+            worker.setName( "reflectionEquals-" + worker.getName() );
+            workers.add( worker );
+            return worker;
+        }, null, false );
+        try
+        {
+            for( final Future<T> future : pool.invokeAll( tasks ) )
+            {
+                try
+                {
+                    retValue.add( future.get() );
+                }
+                catch( final CancellationException ignored )
+                {
+                    retValue.add( null );
+                }
+                catch( final ExecutionException e )
+                {
+                    final var cause = e.getCause();
+                    if( cause instanceof final RuntimeException runtimeException ) throw runtimeException;
+                    if( cause instanceof final Error error ) throw error;
+                    throw new InternalError( "Unexpected " + cause.getClass().getSimpleName(), cause );
+                }
+            }
+        }
+        catch( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Parallel comparison was interrupted", e );
+        }
+        finally
+        {
+            shutdown( pool, workers );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  invokeAll()
+
+    /**
+     *  Checks whether the given objects should be compared in parallel.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the objects are arrays of the same type, or
+     *      lists that implement
+     *      {@link RandomAccess},
+     *      the parallelism is greater than 1, and the left-hand array or list
+     *      has at least the threshold number of elements, {@code false}
+     *      otherwise.
+     */
+    static final boolean isCandidate( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        var retValue = false;
+        if( (options.parallelism() > 1) && nonNull( lhs ) && nonNull( rhs ) )
+        {
+            if( lhs.getClass().isArray() )
+            {
+                retValue = (lhs.getClass() == rhs.getClass()) && (Array.getLength( lhs ) >= options.parallelThreshold());
+            }
+            else if( (lhs instanceof final List<?> list) && (lhs instanceof RandomAccess) )
+            {
+                retValue = (rhs instanceof List<?>) && (rhs instanceof RandomAccess) && (list.size() >= options.parallelThreshold());
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isCandidate()
+
+    /**
+     *  Shuts down the given pool and waits until all its worker threads are
+     *  terminated, even if the current thread is interrupted; in that case,
+     *  the interrupt status is restored afterwards.
+     *
+     *  @param  pool    The pool.
+     *  @param  workers The worker threads of the pool.
+     */
+    private static final void shutdown( final ForkJoinPool pool, final Iterable<Thread> workers )
+    {
+        pool.shutdownNow();
+
+        /*
+         * An interrupt must not end the waiting, otherwise worker threads
+         * would be left behind; it is restored when all of them are gone.
+         */
+        var interrupted = false;
+        var terminated = false;
+        while( !terminated )
+        {
+            try
+            {
+                terminated = pool.awaitTermination( 1, SECONDS );
+            }
+            catch( final InterruptedException ignored )
+            {
+                interrupted = true;
+            }
+        }
+        for( final var worker : workers )
+        {
+            while( worker.isAlive() )
+            {
+                try
+                {
+                    worker.join();
+                }
+                catch( final InterruptedException ignored )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if( interrupted ) Thread.currentThread().interrupt();
+    }   //  shutdown()
+}
+//  class ParallelComparison
+
+/*
+ *  End of File
+ */
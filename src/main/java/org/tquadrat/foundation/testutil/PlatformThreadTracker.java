@@ -0,0 +1,227 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static java.util.Arrays.binarySearch;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.joining;
+import static org.tquadrat.foundation.testutil.TestUtils.EMPTY_STRING;
+import static org.tquadrat.foundation.testutil.TestUtils.getLiveThreadIds;
+
+import java.lang.management.ThreadInfo;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ *  Detects the platform threads that are started while a test is running,
+ *  and that did not terminate until the end of the test.<br>
+ *  <br>Only the ids of the threads are compared, as returned by
+ *  {@link TestUtils#getLiveThreadIds()};
+ *  the stack traces are taken only for the threads that were found to be
+ *  left over; for the same reason, the threads are enumerated only when new
+ *  ids were found. Before a thread is reported, the tracker waits until it
+ *  terminates, or until the given deadline has passed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class PlatformThreadTracker
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The name of the class for the carrier threads of the scheduler for
+     *  the virtual threads: {@value}.
+     */
+    private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The ids of the threads that were alive when the tracking started,
+     *  sorted in ascending order.
+     */
+    private final long [] m_ThreadIdsBefore;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code PlatformThreadTracker} instance, and takes the
+     *  snapshot of the living threads.
+     */
+    PlatformThreadTracker()
+    {
+        m_ThreadIdsBefore = getLiveThreadIds();
+    }   //  PlatformThreadTracker()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the report on the threads that were started since the
+     *  tracking was started, but that did not terminate yet.<br>
+     *  <br>Before a thread is reported, the tracker waits until it has
+     *  terminated, or until the deadline has passed. The carrier threads of
+     *  the scheduler for the virtual threads are never reported, as they are
+     *  managed by the JVM.
+     *
+     *  @param  deadline    The time until the threads may take to terminate,
+     *      as a value of
+     *      {@link System#nanoTime()}.
+     *  @param  isAllowed   Tells whether a thread with the given name may be
+     *      left over.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all threads have terminated.
+     */
+    final Optional<String> check( final long deadline, final Predicate<String> isAllowed )
+    {
+        Optional<String> retValue = Optional.empty();
+
+        final var newThreadIds = LongStream.of( getLiveThreadIds() )
+            .filter( id -> binarySearch( m_ThreadIdsBefore, id ) < 0 )
+            .toArray();
+        if( newThreadIds.length > 0 )
+        {
+            final var leakedThreads = Stream.of( getPlatformThreads() )
+                .filter( thread -> binarySearch( newThreadIds, thread.threadId() ) >= 0 )
+                .filter( thread -> !thread.getClass().getName().equals( CARRIER_THREAD_CLASS ) )
+                .filter( thread -> !isAllowed.test( thread.getName() ) )
+                .filter( thread -> !isTerminated( thread, deadline ) )
+                .mapToLong( Thread::threadId )
+                .toArray();
+            if( leakedThreads.length > 0 )
+            {
+                //---* Threads that died in the meantime are reported as null *
+                final var infos = Stream.of( getThreadMXBean().getThreadInfo( leakedThreads, Integer.MAX_VALUE ) )
+                    .filter( Objects::nonNull )
+                    .toList();
+                if( !infos.isEmpty() )
+                {
+                    final var message = new StringBuilder( infos.stream()
+                        .map( PlatformThreadTracker::describeThread )
+                        .collect( joining( ", ", "Detected unexpected living threads after test: ", EMPTY_STRING ) ) );
+                    for( final var info : infos )
+                    {
+                        message.append( format( "%n%n\"%s\" (%d) %s", info.getThreadName(), info.getThreadId(), info.getThreadState() ) );
+                        for( final var element : info.getStackTrace() )
+                        {
+                            message.append( format( "%n\tat %s", element ) );
+                        }
+                    }
+                    retValue = Optional.of( message.toString() );
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Returns the short description of a thread for the report.
+     *
+     *  @param  info    The information on the thread.
+     *  @return The description.
+     */
+    private static final String describeThread( final ThreadInfo info )
+    {
+        final var buffer = new StringBuilder( info.getThreadName() )
+            .append( " (" )
+            .append( info.getThreadId() );
+        if( info.isDaemon() )
+        {
+            buffer.append( "/DAEMON" );
+        }
+        final var retValue = buffer.append( ")" ).toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  describeThread()
+
+    /**
+     *  Returns all living platform threads. Their stack traces are not
+     *  taken.
+     *
+     *  @return The threads.
+     */
+    private static final Thread [] getPlatformThreads()
+    {
+        //---* Determine the root thread group *-------------------------------
+        var group = Thread.currentThread().getThreadGroup();
+        while( nonNull( group.getParent() ) ) group = group.getParent();
+
+        /*
+         * Some headroom is added, for the threads that are started while the
+         * threads are enumerated.
+         */
+        final var threads = new Thread [group.activeCount() + 16];
+        final var retValue = Arrays.copyOf( threads, group.enumerate( threads, true ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getPlatformThreads()
+
+    /**
+     *  Waits until the given thread has terminated, or until the deadline has
+     *  passed.
+     *
+     *  @param  thread  The thread.
+     *  @param  deadline    The deadline, as a value of
+     *      {@link System#nanoTime()}.
+     *  @return {@code true} if the thread has terminated, {@code false} if it
+     *      is still alive.
+     */
+    private static final boolean isTerminated( final Thread thread, final long deadline )
+    {
+        final var remaining = deadline - System.nanoTime();
+        if( (remaining > 0) && !Thread.currentThread().isInterrupted() )
+        {
+            try
+            {
+                thread.join( Duration.ofNanos( remaining ) );
+            }
+            catch( final InterruptedException ignored )
+            {
+                //---* Stop waiting, but keep the interrupt *------------------
+                Thread.currentThread().interrupt();
+            }
+        }
+        final var retValue = !thread.isAlive();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isTerminated()
+}
+//  class PlatformThreadTracker
+
+/*
+ *  End of File
+ */
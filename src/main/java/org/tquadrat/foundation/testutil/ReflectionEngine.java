@@ -0,0 +1,86 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The engines that can be used by
+ *  {@link TestUtils#reflectionEquals(Object, Object, boolean, Class, String[])}
+ *  and its siblings to compare the fields of two objects.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @see TestUtils#setReflectionEngine(ReflectionEngine)
+ *  @see TestUtils#PROPERTY_REFLECTION_ENGINE
+ *
+ *  @UMLGraph.link
+ */
+@API( status = EXPERIMENTAL, since = "0.2.0" )
+public enum ReflectionEngine
+{
+        /*------------------*\
+    ====** Enum Declaration **=================================================
+        \*------------------*/
+    /**
+     *  The fields are read through
+     *  {@link java.lang.reflect.Field}.
+     *  Primitive fields are read with the type specific methods, like
+     *  {@link java.lang.reflect.Field#getInt(Object) getInt()},
+     *  so they are not boxed; {@code float} and {@code double} values are
+     *  compared based on their bit patterns, or within the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+     *  if one is set. Reference fields are read with
+     *  {@link java.lang.reflect.Field#get(Object)}
+     *  and compared with
+     *  {@link java.util.Objects#deepEquals(Object, Object)},
+     *  except for large arrays and lists that are
+     *  {@linkplain ReflectionOptions#withParallelism(int) compared in parallel},
+     *  and for arrays of floating point values when a tolerance is set.
+     *  This is the default.
+     */
+    REFLECTION,
+
+    /**
+     *  For each class, a comparator is composed from
+     *  {@link java.lang.invoke.MethodHandle}s;
+     *  primitive fields are compared directly, without boxing, reference
+     *  fields through
+     *  {@link java.util.Objects#deepEquals(Object, Object)}.<br>
+     *  <br>The comparator will be created on first use and is cached
+     *  afterwards. It is not used when fields are excluded explicitly from
+     *  the comparison, when a
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+     *  for floating point values is set, or when the
+     *  {@linkplain ReflectionOptions#withParallelism(int) parallelism}
+     *  is greater than 1; in these cases,
+     *  {@link #REFLECTION}
+     *  will be used.
+     */
+    METHOD_HANDLES
+}
+//  enum ReflectionEngine
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,805 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.testutil.TestUtils.requireNonNullArgument;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The options for the reflective comparison of objects with
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}.<br>
+ *  <br>Instances of this class are immutable; the {@code with…()} methods
+ *  return a modified copy of the instance they were called on. Start with
+ *  {@link #defaults()}
+ *  to get the default settings:
+ *  <ul>
+ *  <li>transient fields are not tested,</li>
+ *  <li>all superclasses up to
+ *  {@link Object}
+ *  are reflected,</li>
+ *  <li>no fields are excluded explicitly,</li>
+ *  <li>{@code float} and {@code double} values are compared based on their
+ *  bit patterns, as
+ *  {@link Double#equals(Object)}
+ *  does, without any tolerance,</li>
+ *  <li>referenced objects are compared with
+ *  {@link java.util.Objects#deepEquals(Object, Object)},
+ *  not deeply,</li>
+ *  <li>arrays and lists are compared sequentially, on the calling
+ *  thread.</li>
+ *  </ul>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public final class ReflectionOptions
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  An entry in the cache for
+     *  {@link ReflectionOptions#of(boolean, Class, String[])}.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  testTransients  {@code true} whether to include transient
+     *      fields, {@code false} otherwise.
+     *  @param  reflectUpToClass    The superclass to reflect up to
+     *      (inclusive); may be {@code null}.
+     *  @param  excludeFields   A copy of the names of the excluded fields;
+     *      {@code null} if no field is excluded.
+     *  @param  options The options for these arguments.
+     */
+    private record CachedOptions( boolean testTransients, Class<?> reflectUpToClass, String [] excludeFields, ReflectionOptions options )
+    {
+        /**
+         *  Checks whether this entry was created for the given arguments.
+         *
+         *  @param  flag    {@code true} whether to include transient fields,
+         *      {@code false} otherwise.
+         *  @param  upToClass   The superclass to reflect up to (inclusive);
+         *      may be {@code null}.
+         *  @param  names   The names of the excluded fields; {@code null} if
+         *      no field is excluded.
+         *  @return {@code true} if the arguments match, {@code false}
+         *      otherwise.
+         */
+        @SuppressWarnings( "BooleanParameter" )
+        final boolean matches( final boolean flag, final Class<?> upToClass, final String [] names )
+        {
+            final var retValue = (testTransients == flag) && (reflectUpToClass == upToClass) && Arrays.equals( excludeFields, names );
+
+            //---* Done *------------------------------------------------------
+            return retValue;
+        }   //  matches()
+    }
+    //  record CachedOptions
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default for the maximum number of differences that will be
+     *  reported by
+     *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)}:
+     *  {@value}.
+     */
+    public static final int DEFAULT_MAX_DIFFERENCES = 100;
+
+    /**
+     *  The default for the minimum number of elements that an array or a list
+     *  must have to be compared in parallel: {@value}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 100_000;
+
+    /**
+     *  The maximum number of entries in the cache for
+     *  {@link #of(boolean, Class, String[])}:
+     *  {@value}.
+     */
+    private static final int MAX_CACHED_OPTIONS = 16;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The flag that controls whether referenced objects will be compared
+     *  deeply.
+     */
+    private final boolean m_DeepComparison;
+
+    /**
+     *  The names of the fields that are excluded from the comparison.
+     */
+    private final Set<String> m_ExcludedFields;
+
+    /**
+     *  The maximum depth for the deep comparison.
+     */
+    private final int m_MaxDepth;
+
+    /**
+     *  The maximum number of differences that will be reported.
+     */
+    private final int m_MaxDifferences;
+
+    /**
+     *  The number of threads for the parallel comparison of large arrays and
+     *  lists; 1 means that they are compared sequentially.
+     */
+    private final int m_Parallelism;
+
+    /**
+     *  The minimum number of elements that an array or a list must have to be
+     *  compared in parallel.
+     */
+    private final int m_ParallelThreshold;
+
+    /**
+     *  The superclass to reflect up to (inclusive); {@code null} stands for
+     *  {@link Object}.
+     */
+    private final Class<?> m_ReflectUpToClass;
+
+    /**
+     *  The relative tolerance for the comparison of {@code float} and
+     *  {@code double} values.
+     */
+    private final double m_RelativeTolerance;
+
+    /**
+     *  The flag that controls whether transient fields will be tested.
+     */
+    private final boolean m_TestTransients;
+
+    /**
+     *  The absolute tolerance for the comparison of {@code float} and
+     *  {@code double} values.
+     */
+    private final double m_Tolerance;
+
+    /**
+     *  The tolerance for the comparison of {@code float} and {@code double}
+     *  values, in units in the last place.
+     */
+    private final long m_UlpTolerance;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The default options.
+     */
+    private static final ReflectionOptions m_Defaults = new ReflectionOptions();
+
+    /**
+     *  The default options, but with the test of transient fields.
+     */
+    private static final ReflectionOptions m_DefaultsWithTransients = m_Defaults.withTestTransients( true );
+
+    /**
+     *  The cache for the options that were recently returned by
+     *  {@link #of(boolean, Class, String[])},
+     *  the most recent one last.
+     */
+    @SuppressWarnings( "StaticCollection" )
+    private static volatile CachedOptions [] m_OfCache = new CachedOptions [0];
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ReflectionOptions} instance with the default
+     *  settings.
+     */
+    private ReflectionOptions()
+    {
+        this( false, emptySet(), Integer.MAX_VALUE, DEFAULT_MAX_DIFFERENCES, 1, DEFAULT_PARALLEL_THRESHOLD, null, 0.0, false, 0.0, 0L );
+    }   //  ReflectionOptions()
+
+    /**
+     *  Creates a new {@code ReflectionOptions} instance with the given
+     *  settings. The arguments are not checked; this is done by the
+     *  {@code with…()} methods.
+     *
+     *  @param  deepComparison  {@code true} if referenced objects will be
+     *      compared deeply, {@code false} otherwise.
+     *  @param  excludedFields  The names of the fields that are excluded
+     *      from the comparison; the set must not be modifiable.
+     *  @param  maxDepth    The maximum depth for the deep comparison.
+     *  @param  maxDifferences  The maximum number of differences that will
+     *      be reported.
+     *  @param  parallelism The number of threads for the parallel
+     *      comparison.
+     *  @param  parallelThreshold   The minimum number of elements for the
+     *      parallel comparison.
+     *  @param  reflectUpToClass    The superclass to reflect up to
+     *      (inclusive); {@code null} stands for
+     *      {@link Object}.
+     *  @param  relativeTolerance   The relative tolerance for {@code float}
+     *      and {@code double} values.
+     *  @param  testTransients  {@code true} if transient fields will be
+     *      tested, {@code false} otherwise.
+     *  @param  tolerance   The absolute tolerance for {@code float} and
+     *      {@code double} values.
+     *  @param  ulpTolerance    The tolerance for {@code float} and
+     *      {@code double} values, in units in the last place.
+     */
+    @SuppressWarnings( {"BooleanParameter", "ConstructorWithTooManyParameters"} )
+    private ReflectionOptions( final boolean deepComparison, final Set<String> excludedFields, final int maxDepth, final int maxDifferences, final int parallelism, final int parallelThreshold, final Class<?> reflectUpToClass, final double relativeTolerance, final boolean testTransients, final double tolerance, final long ulpTolerance )
+    {
+        m_DeepComparison = deepComparison;
+        m_ExcludedFields = excludedFields;
+        m_MaxDepth = maxDepth;
+        m_MaxDifferences = maxDifferences;
+        m_Parallelism = parallelism;
+        m_ParallelThreshold = parallelThreshold;
+        m_ReflectUpToClass = reflectUpToClass;
+        m_RelativeTolerance = relativeTolerance;
+        m_TestTransients = testTransients;
+        m_Tolerance = tolerance;
+        m_UlpTolerance = ulpTolerance;
+    }   //  ReflectionOptions()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the flag that controls whether referenced objects will be
+     *  compared deeply.
+     *
+     *  @return {@code true} if referenced objects are compared deeply,
+     *      {@code false} if they are compared with
+     *      {@link java.util.Objects#deepEquals(Object, Object)}.
+     *
+     *  @see #withDeepComparison(boolean)
+     */
+    public final boolean deepComparison() { return m_DeepComparison; }
+
+    /**
+     *  Returns the default options.
+     *
+     *  @return The default options.
+     */
+    public static final ReflectionOptions defaults() { return m_Defaults; }
+
+    /**
+     *  Returns the names of the fields that are excluded from the comparison.
+     *
+     *  @return The field names; the returned set is not modifiable.
+     */
+    public final Set<String> excludedFields() { return m_ExcludedFields; }
+
+    /**
+     *  Checks whether any tolerance for the comparison of {@code float} and
+     *  {@code double} values is set.
+     *
+     *  @return {@code true} if at least one of the tolerances is set,
+     *      {@code false} if the values are compared based on their bit
+     *      patterns.
+     */
+    final boolean hasTolerance() { return (m_Tolerance > 0.0) || (m_RelativeTolerance > 0.0) || (m_UlpTolerance > 0L); }
+
+    /**
+     *  Returns the maximum depth for the deep comparison.
+     *
+     *  @return The maximum depth.
+     *
+     *  @see #withMaxDepth(int)
+     */
+    public final int maxDepth() { return m_MaxDepth; }
+
+    /**
+     *  Returns the maximum number of differences that will be reported by
+     *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)}.
+     *
+     *  @return The maximum number of differences.
+     *
+     *  @see #withMaxDifferences(int)
+     */
+    public final int maxDifferences() { return m_MaxDifferences; }
+
+    /**
+     *  Returns the options that correspond to the arguments of
+     *  {@link TestUtils#reflectionEquals(Object, Object, boolean, Class, String[])}.
+     *  For the most common argument combinations, no new instance will be
+     *  created. The options for other arguments are cached, up to
+     *  {@value #MAX_CACHED_OPTIONS}
+     *  of them; so repeated calls with the same names of excluded fields
+     *  return the same instance, and they do not allocate anything. This
+     *  allows
+     *  {@link ClassMetadata}
+     *  to find the fields that remain after the exclusion by the identity of
+     *  the set of their names.
+     *
+     *  @param  testTransients  {@code true} whether to include transient
+     *      fields, {@code false} otherwise.
+     *  @param  reflectUpToClass    The superclass to reflect up to
+     *      (inclusive), may be {@code null}
+     *  @param  excludeFields   An array of String field names to exclude from
+     *      testing; may be {@code null}.
+     *  @return The options.
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    static final ReflectionOptions of( final boolean testTransients, final Class<?> reflectUpToClass, final String [] excludeFields )
+    {
+        var retValue = testTransients ? m_DefaultsWithTransients : m_Defaults;
+        final var names = nonNull( excludeFields ) && (excludeFields.length > 0) ? excludeFields : null;
+        if( nonNull( reflectUpToClass ) || nonNull( names ) )
+        {
+            final var cache = m_OfCache;
+            ReflectionOptions cached = null;
+            for( var i = cache.length - 1; (i >= 0) && isNull( cached ); --i )
+            {
+                if( cache [i].matches( testTransients, reflectUpToClass, names ) ) cached = cache [i].options();
+            }
+
+            if( isNull( cached ) )
+            {
+                if( nonNull( reflectUpToClass ) ) retValue = retValue.withReflectUpToClass( reflectUpToClass );
+                if( nonNull( names ) ) retValue = retValue.withExcludedFields( asList( names ) );
+
+                /*
+                 * The cache is replaced as a whole, and the oldest entry is
+                 * dropped when it is full. When two threads add an entry at
+                 * the same time, one of these entries may get lost; this does
+                 * not do any harm, therefore no synchronisation is required.
+                 */
+                final var retained = Math.min( cache.length, MAX_CACHED_OPTIONS - 1 );
+                final var newCache = Arrays.copyOfRange( cache, cache.length - retained, cache.length + 1 );
+                newCache [retained] = new CachedOptions( testTransients, reflectUpToClass, isNull( names ) ? null : names.clone(), retValue );
+                m_OfCache = newCache;
+            }
+            else
+            {
+                retValue = cached;
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  of()
+
+    /**
+     *  Returns the number of threads for the parallel comparison of large
+     *  arrays and lists.
+     *
+     *  @return The number of threads; 1 means that arrays and lists are
+     *      compared sequentially.
+     *
+     *  @see #withParallelism(int)
+     */
+    public final int parallelism() { return m_Parallelism; }
+
+    /**
+     *  Returns the minimum number of elements that an array or a list must
+     *  have to be compared in parallel.
+     *
+     *  @return The threshold.
+     *
+     *  @see #withParallelThreshold(int)
+     */
+    public final int parallelThreshold() { return m_ParallelThreshold; }
+
+    /**
+     *  Returns the superclass up to which (inclusive) the fields will be
+     *  reflected.
+     *
+     *  @return The superclass; {@code null} stands for
+     *      {@link Object}.
+     */
+    public final Class<?> reflectUpToClass() { return m_ReflectUpToClass; }
+
+    /**
+     *  Returns the relative tolerance for the comparison of {@code float} and
+     *  {@code double} values.
+     *
+     *  @return The relative tolerance; 0.0 means that no relative tolerance
+     *      is applied.
+     *
+     *  @see #withRelativeTolerance(double)
+     */
+    public final double relativeTolerance() { return m_RelativeTolerance; }
+
+    /**
+     *  Returns the flag that controls whether transient fields will be
+     *  tested.
+     *
+     *  @return {@code true} if transient fields are tested, {@code false}
+     *      if they are ignored.
+     */
+    public final boolean testTransients() { return m_TestTransients; }
+
+    /**
+     *  Returns the absolute tolerance for the comparison of {@code float} and
+     *  {@code double} values.
+     *
+     *  @return The tolerance; 0.0 means that no absolute tolerance is
+     *      applied.
+     *
+     *  @see #withTolerance(double)
+     */
+    public final double tolerance() { return m_Tolerance; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = format( "%s[testTransients=%b, reflectUpToClass=%s, excludedFields=%s, tolerance=%s, relativeTolerance=%s, ulpTolerance=%d, deepComparison=%b, maxDepth=%d, maxDifferences=%d, parallelism=%d, parallelThreshold=%d]", getClass().getSimpleName(), m_TestTransients, isNull( m_ReflectUpToClass ) ? Object.class.getName() : m_ReflectUpToClass.getName(), m_ExcludedFields, m_Tolerance, m_RelativeTolerance, m_UlpTolerance, m_DeepComparison, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+
+    /**
+     *  Returns the tolerance for the comparison of {@code float} and
+     *  {@code double} values, in units in the last place.
+     *
+     *  @return The tolerance in ULPs; 0 means that no tolerance in ULPs is
+     *      applied.
+     *
+     *  @see #withUlpTolerance(long)
+     */
+    public final long ulpTolerance() { return m_UlpTolerance; }
+
+    /**
+     *  Returns a copy of these options with the given setting for the deep
+     *  comparison.<br>
+     *  <br>When the deep comparison is switched on, the objects that are
+     *  referenced by the fields of the compared objects are compared
+     *  reflectively, too, instead of relying on their {@code equals()}
+     *  methods; this continues recursively through the whole object graph.
+     *  Objects of classes that override {@code equals()}, and objects of
+     *  classes that are not open for deep reflection are still compared with
+     *  their {@code equals()} methods, while the elements of arrays, of
+     *  {@link java.util.List}s
+     *  and the values of
+     *  {@link java.util.Map}s
+     *  are compared deeply. The comparison is safe for cyclic graphs, and it
+     *  stops at the first difference.
+     *
+     *  @param  flag    {@code true} if referenced objects should be compared
+     *      deeply, {@code false} if they should be compared with
+     *      {@link java.util.Objects#deepEquals(Object, Object)}.
+     *  @return The new options.
+     *
+     *  @see #withMaxDepth(int)
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    public final ReflectionOptions withDeepComparison( final boolean flag )
+    {
+        final var retValue = new ReflectionOptions( flag, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withDeepComparison()
+
+    /**
+     *  Returns a copy of these options with the given names of fields that
+     *  will be excluded from the comparison. Fields with these names will be
+     *  ignored on all levels of the class hierarchy.
+     *
+     *  @param  excludeFields   The names of the fields to exclude; may be
+     *      empty, but not {@code null}.
+     *  @return The new options.
+     */
+    public final ReflectionOptions withExcludedFields( final Collection<String> excludeFields )
+    {
+        final Set<String> excludedFields = requireNonNullArgument( excludeFields, "excludeFields" ).isEmpty() ? emptySet() : unmodifiableSet( new HashSet<>( excludeFields ) );
+        final var retValue = new ReflectionOptions( m_DeepComparison, excludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withExcludedFields()
+
+    /**
+     *  Returns a copy of these options with the given names of fields that
+     *  will be excluded from the comparison. Fields with these names will be
+     *  ignored on all levels of the class hierarchy.
+     *
+     *  @param  excludeFields   The names of the fields to exclude.
+     *  @return The new options.
+     */
+    public final ReflectionOptions withExcludedFields( final String... excludeFields )
+    {
+        return withExcludedFields( asList( requireNonNullArgument( excludeFields, "excludeFields" ) ) );
+    }   //  withExcludedFields()
+
+    /**
+     *  Returns a copy of these options with the given maximum depth for the
+     *  deep comparison. The root objects have the depth 0, the objects that
+     *  are referenced by their fields have the depth 1, and so on. Objects
+     *  that are located deeper in the graph than the given limit are
+     *  compared with
+     *  {@link java.util.Objects#deepEquals(Object, Object)}.
+     *  The default is
+     *  {@link Integer#MAX_VALUE}.<br>
+     *  <br>The setting has no effect if the
+     *  {@linkplain #withDeepComparison(boolean) deep comparison}
+     *  is not switched on.
+     *
+     *  @param  maxDepth    The maximum depth.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The maximum depth is negative.
+     */
+    public final ReflectionOptions withMaxDepth( final int maxDepth )
+    {
+        if( maxDepth < 0 )
+        {
+            throw new IllegalArgumentException( format( "Invalid maximum depth: %d", maxDepth ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, maxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withMaxDepth()
+
+    /**
+     *  Returns a copy of these options with the given maximum number of
+     *  differences that will be reported by
+     *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)};
+     *  the comparison stops after that number of differences was found. The
+     *  default is
+     *  {@value #DEFAULT_MAX_DIFFERENCES}.<br>
+     *  <br>The setting has no effect on
+     *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)},
+     *  as that stops at the first difference anyway.
+     *
+     *  @param  maxDifferences  The maximum number of differences.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The number is negative.
+     */
+    public final ReflectionOptions withMaxDifferences( final int maxDifferences )
+    {
+        if( maxDifferences < 0 )
+        {
+            throw new IllegalArgumentException( format( "Invalid maximum number of differences: %d", maxDifferences ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, maxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withMaxDifferences()
+
+    /**
+     *  Returns a copy of these options with the given number of threads for
+     *  the parallel comparison of large arrays and lists. The default is 1,
+     *  meaning that the parallel comparison is switched off.<br>
+     *  <br>When the number is greater than 1,
+     *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}
+     *  splits arrays of the same type, and lists that implement
+     *  {@link java.util.RandomAccess},
+     *  with at least
+     *  {@linkplain #withParallelThreshold(int) threshold}
+     *  elements into chunks, and compares these on a
+     *  {@link java.util.concurrent.ForkJoinPool}
+     *  with the given number of threads; the remaining chunks are skipped as
+     *  soon as one chunk is found to be different. The pool is created for
+     *  the comparison, and it is shut down before the comparison returns, so
+     *  no threads remain alive afterwards.<br>
+     *  <br>This pays off only for really large arrays or lists, or when the
+     *  elements are expensive to compare. The elements must not be modified
+     *  during the comparison.
+     *  {@link TestUtils#reflectionDiff(Object, Object, ReflectionOptions)}
+     *  always works sequentially.
+     *
+     *  @param  parallelism The number of threads.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The number is less than 1.
+     */
+    public final ReflectionOptions withParallelism( final int parallelism )
+    {
+        if( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( format( "Invalid parallelism: %d", parallelism ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withParallelism()
+
+    /**
+     *  Returns a copy of these options with the given minimum number of
+     *  elements that an array or a list must have to be compared in parallel.
+     *  The default is
+     *  {@value #DEFAULT_PARALLEL_THRESHOLD}.<br>
+     *  <br>The setting has no effect if the
+     *  {@linkplain #withParallelism(int) parallelism}
+     *  is 1.
+     *
+     *  @param  threshold   The threshold.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The threshold is less than 1.
+     */
+    public final ReflectionOptions withParallelThreshold( final int threshold )
+    {
+        if( threshold < 1 )
+        {
+            throw new IllegalArgumentException( format( "Invalid parallel threshold: %d", threshold ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, threshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withParallelThreshold()
+
+    /**
+     *  Returns a copy of these options with the given superclass up to which
+     *  (inclusive) the fields will be reflected.
+     *
+     *  @param  reflectUpToClass    The superclass; {@code null} stands for
+     *      {@link Object}.
+     *  @return The new options.
+     */
+    public final ReflectionOptions withReflectUpToClass( final Class<?> reflectUpToClass )
+    {
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, reflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withReflectUpToClass()
+
+    /**
+     *  Returns a copy of these options with the given relative tolerance for
+     *  the comparison of {@code float} and {@code double} values. Two values
+     *  are considered equal when the absolute value of their difference is
+     *  not greater than the tolerance multiplied with the larger of the
+     *  absolute values of both; a tolerance of {@code 1.0e-9} means that the
+     *  values may differ in their ninth significant digit.<br>
+     *  <br>See
+     *  {@link #withTolerance(double)}
+     *  for the values the tolerances apply to, and how they are combined.
+     *
+     *  @param  tolerance   The relative tolerance; 0.0 means that no relative
+     *      tolerance is applied.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The tolerance is negative or
+     *      {@link Double#NaN NaN}.
+     */
+    public final ReflectionOptions withRelativeTolerance( final double tolerance )
+    {
+        if( !(tolerance >= 0.0) )
+        {
+            throw new IllegalArgumentException( format( "Invalid relative tolerance: %s", tolerance ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, tolerance, m_TestTransients, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withRelativeTolerance()
+
+    /**
+     *  Returns a copy of these options with the given setting for the test
+     *  of transient fields.
+     *
+     *  @param  flag    {@code true} if transient fields should be tested,
+     *      {@code false} if they should be ignored.
+     *  @return The new options.
+     */
+    @SuppressWarnings( "BooleanParameter" )
+    public final ReflectionOptions withTestTransients( final boolean flag )
+    {
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, flag, m_Tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withTestTransients()
+
+    /**
+     *  Returns a copy of these options with the given absolute tolerance for
+     *  the comparison of {@code float} and {@code double} values. Two values
+     *  are considered equal when the absolute value of their difference is
+     *  not greater than the tolerance.<br>
+     *  <br>The absolute tolerance may be combined with a
+     *  {@linkplain #withRelativeTolerance(double) relative tolerance}
+     *  and a
+     *  {@linkplain #withUlpTolerance(long) tolerance in units in the last place};
+     *  two values are equal when they have the same bit pattern, or when
+     *  they are equal within at least one of the tolerances that are set. The
+     *  values are compared without boxing them. {@link Double#NaN NaN} is
+     *  equal to {@code NaN} only, while {@code 0.0} and {@code -0.0} are
+     *  equal as soon as any tolerance is set.<br>
+     *  <br>The tolerances apply to record components and fields with a
+     *  primitive floating point type, and to the elements of
+     *  {@code float[]} and {@code double[]} arrays that are referenced by
+     *  these, or, with the
+     *  {@linkplain #withDeepComparison(boolean) deep comparison},
+     *  that are found anywhere in the object graph. The values in wrapper
+     *  objects, and in arrays that are nested into arrays of objects without
+     *  the deep comparison, are compared based on their bit patterns. As the
+     *  equality within a tolerance is not transitive,
+     *  {@link TestUtils#reflectionHashCode(Object, ReflectionOptions)}
+     *  ignores all values the tolerances apply to as soon as one of them is
+     *  set.
+     *
+     *  @param  tolerance   The tolerance; 0.0 means that no absolute tolerance
+     *      is applied.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The tolerance is negative or
+     *      {@link Double#NaN NaN}.
+     */
+    public final ReflectionOptions withTolerance( final double tolerance )
+    {
+        if( !(tolerance >= 0.0) )
+        {
+            throw new IllegalArgumentException( format( "Invalid tolerance: %s", tolerance ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, tolerance, m_UlpTolerance );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withTolerance()
+
+    /**
+     *  Returns a copy of these options with the given tolerance for the
+     *  comparison of {@code float} and {@code double} values, in units in the
+     *  last place (ULP). Two values are considered equal when there are not
+     *  more than the given number of representable values of their type
+     *  between them; the tolerance scales with the magnitude of the values,
+     *  so it is well suited to absorb the rounding differences between
+     *  sequential and vectorised or fused computations.<br>
+     *  <br>See
+     *  {@link #withTolerance(double)}
+     *  for the values the tolerances apply to, and how they are combined.
+     *
+     *  @param  ulps    The tolerance in ULPs; 0 means that no tolerance in
+     *      ULPs is applied.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The tolerance is negative.
+     */
+    public final ReflectionOptions withUlpTolerance( final long ulps )
+    {
+        if( ulps < 0L )
+        {
+            throw new IllegalArgumentException( format( "Invalid ULP tolerance: %d", ulps ) );
+        }
+        final var retValue = new ReflectionOptions( m_DeepComparison, m_ExcludedFields, m_MaxDepth, m_MaxDifferences, m_Parallelism, m_ParallelThreshold, m_ReflectUpToClass, m_RelativeTolerance, m_TestTransients, m_Tolerance, ulps );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withUlpTolerance()
+}
+//  class ReflectionOptions
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,565 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.util.Objects.deepEquals;
+import static java.util.Objects.nonNull;
+
+import org.tquadrat.foundation.testutil.ClassMetadata.ComponentInfo;
+import org.tquadrat.foundation.testutil.ClassMetadata.FieldInfo;
+
+/**
+ *  The implementation of the reflective comparison of two objects, as it is
+ *  provided by
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}.<br>
+ *  <br>Fields with a primitive type are read with the type specific methods
+ *  of
+ *  {@link java.lang.reflect.Field},
+ *  like
+ *  {@link java.lang.reflect.Field#getInt(Object) getInt()}
+ *  or
+ *  {@link java.lang.reflect.Field#getDouble(Object) getDouble()},
+ *  so the comparison of objects that have only primitive fields does not
+ *  allocate any memory.<br>
+ *  <br>Two records of the same class are compared through the accessors of
+ *  their components, without walking the class hierarchy and without making
+ *  any field accessible; see
+ *  {@link ClassMetadata#components()}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class ReflectiveComparison
+{
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ReflectiveComparison() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Compares the given objects.
+     *
+     *  @param  lhs <code>this</code> object.
+     *  @param  rhs The other object
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the two objects have tested equals,
+     *      {@code false} otherwise.
+     */
+    static final boolean areEqual( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        var retValue = lhs == rhs;
+        if( !retValue && nonNull( lhs ) && nonNull( rhs ) && options.deepComparison() )
+        {
+            retValue = new DeepComparison( options, false ).areEqual( lhs, rhs );
+        }
+        else if( !retValue && nonNull( lhs ) && nonNull( rhs ) && isAccessibleRecordPair( lhs, rhs ) )
+        {
+            retValue = testComponents( lhs, rhs, ClassMetadata.forClass( lhs.getClass() ), options );
+        }
+        else if( !retValue && nonNull( lhs ) && nonNull( rhs ) )
+        {
+            var testClass = determineTestClass( lhs, rhs );
+            if( nonNull( testClass ) )
+            {
+                //---* The two classes are related *---------------------------
+                final var reflectUpToClass = options.reflectUpToClass();
+                try
+                {
+                    retValue = testFields( lhs, rhs, ClassMetadata.forClass( testClass ), options );
+                    while( retValue && nonNull( testClass.getSuperclass() ) && (testClass != reflectUpToClass) )
+                    {
+                        testClass = testClass.getSuperclass();
+                        retValue = testFields( lhs, rhs, ClassMetadata.forClass( testClass ), options );
+                    }
+                }
+                catch( final IllegalArgumentException ignored )
+                {
+                    /*
+                     * In this case, we tried to test a subclass vs. a
+                     * superclass and the subclass has ivars or the ivars are
+                     * transient, and we are testing transients.
+                     * If a subclass has ivars that we are trying to test them,
+                     * we get an exception, and we know that the objects are not
+                     * equal.
+                     */
+                    retValue = false;
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  areEqual()
+
+    /**
+     *  Determines the class that is used to compare the given objects.<br>
+     *  <br>This is the leaf class since there may be transients in the leaf
+     *  class or in classes between the leaf and root. If we are not testing
+     *  transients or a subclass has no ivars, then a subclass can test equals
+     *  to a superclass.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return The class to start the comparison with, or {@code null} if the
+     *      classes of the two objects are not related.
+     */
+    static final Class<?> determineTestClass( final Object lhs, final Object rhs )
+    {
+        final var lhsClass = lhs.getClass();
+        final var rhsClass = rhs.getClass();
+        Class<?> retValue = null;
+        if( lhsClass.isInstance( rhs ) )
+        {
+            retValue = lhsClass;
+            if( !rhsClass.isInstance( lhs ) )
+            {
+                //---* rhsClass is a subclass of lhsClass *--------------------
+                retValue = rhsClass;
+            }
+        }
+        else if( rhsClass.isInstance( lhs ) )
+        {
+            retValue = rhsClass;
+            if( !lhsClass.isInstance( rhs ) )
+            {
+                //---* lhsClass is a subclass of rhsClass *--------------------
+                retValue = lhsClass;
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  determineTestClass()
+
+    /**
+     *  Checks whether the given objects are records of the same class whose
+     *  components can be accessed through their accessors.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return {@code true} if the objects are records that can be compared
+     *      by their components, {@code false} otherwise.
+     */
+    static final boolean isAccessibleRecordPair( final Object lhs, final Object rhs )
+    {
+        final var type = lhs.getClass();
+        final var retValue = type.isRecord() && (type == rhs.getClass()) && nonNull( ClassMetadata.forClass( type ).components() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isAccessibleRecordPair()
+
+    /**
+     *  Compares the values of the given record component for two records.
+     *  Primitive values are not boxed.
+     *
+     *  @param  info    The component.
+     *  @param  lhs The left-hand record.
+     *  @param  rhs The right-hand record.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values of the component are equal,
+     *      {@code false} otherwise.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"} )
+    static final boolean isComponentEqual( final ComponentInfo info, final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        final var accessor = info.accessor();
+        final boolean retValue;
+        try
+        {
+            retValue = switch( info.kind() )
+            {
+                case BOOLEAN -> (boolean) accessor.invokeExact( lhs ) == (boolean) accessor.invokeExact( rhs );
+                case BYTE -> (byte) accessor.invokeExact( lhs ) == (byte) accessor.invokeExact( rhs );
+                case CHAR -> (char) accessor.invokeExact( lhs ) == (char) accessor.invokeExact( rhs );
+                case DOUBLE -> isEqual( (double) accessor.invokeExact( lhs ), (double) accessor.invokeExact( rhs ), options );
+                case FLOAT -> isEqual( (float) accessor.invokeExact( lhs ), (float) accessor.invokeExact( rhs ), options );
+                case INT -> (int) accessor.invokeExact( lhs ) == (int) accessor.invokeExact( rhs );
+                case LONG -> (long) accessor.invokeExact( lhs ) == (long) accessor.invokeExact( rhs );
+                case SHORT -> (short) accessor.invokeExact( lhs ) == (short) accessor.invokeExact( rhs );
+                case REFERENCE -> isReferenceEqual( (Object) accessor.invokeExact( lhs ), (Object) accessor.invokeExact( rhs ), options );
+            };
+        }
+        catch( final RuntimeException | Error e )
+        {
+            throw e;
+        }
+        catch( final Throwable t )
+        {
+            //---* Record accessors cannot throw checked exceptions *----------
+            throw new InternalError( "Unexpected " + t.getClass().getSimpleName(), t );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isComponentEqual()
+
+    /**
+     *  Compares two {@code double} values. Without any tolerance, the values
+     *  are compared based on their bit patterns; otherwise they are equal if
+     *  they are equal within at least one of the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerances}.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    static final boolean isEqual( final double lhs, final double rhs, final ReflectionOptions options )
+    {
+        var retValue = doubleToLongBits( lhs ) == doubleToLongBits( rhs );
+        if( !retValue && options.hasTolerance() )
+        {
+            final var difference = abs( lhs - rhs );
+            retValue = (difference <= options.tolerance())
+                || (difference <= options.relativeTolerance() * max( abs( lhs ), abs( rhs ) ))
+                || (ulpDistance( lhs, rhs ) <= options.ulpTolerance());
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isEqual()
+
+    /**
+     *  Compares two {@code float} values. Without any tolerance, the values
+     *  are compared based on their bit patterns; otherwise they are equal if
+     *  they are equal within at least one of the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerances}.
+     *  The ULPs are those of the type {@code float}.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    static final boolean isEqual( final float lhs, final float rhs, final ReflectionOptions options )
+    {
+        var retValue = floatToIntBits( lhs ) == floatToIntBits( rhs );
+        if( !retValue && options.hasTolerance() )
+        {
+            final var difference = abs( (double) lhs - (double) rhs );
+            retValue = (difference <= options.tolerance())
+                || (difference <= options.relativeTolerance() * max( abs( (double) lhs ), abs( (double) rhs ) ))
+                || (ulpDistance( lhs, rhs ) <= options.ulpTolerance());
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isEqual()
+
+    /**
+     *  Compares the values of the given field for two objects.
+     *
+     *  @param  info    The field.
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values of the field are equal,
+     *      {@code false} otherwise.
+     *  @throws IllegalAccessException  The field is not accessible.
+     */
+    static final boolean isFieldEqual( final FieldInfo info, final Object lhs, final Object rhs, final ReflectionOptions options ) throws IllegalAccessException
+    {
+        final var field = info.field();
+        final var retValue = switch( info.kind() )
+        {
+            case BOOLEAN -> field.getBoolean( lhs ) == field.getBoolean( rhs );
+            case BYTE -> field.getByte( lhs ) == field.getByte( rhs );
+            case CHAR -> field.getChar( lhs ) == field.getChar( rhs );
+            case DOUBLE -> isEqual( field.getDouble( lhs ), field.getDouble( rhs ), options );
+            case FLOAT -> isEqual( field.getFloat( lhs ), field.getFloat( rhs ), options );
+            case INT -> field.getInt( lhs ) == field.getInt( rhs );
+            case LONG -> field.getLong( lhs ) == field.getLong( rhs );
+            case SHORT -> field.getShort( lhs ) == field.getShort( rhs );
+            case REFERENCE -> isReferenceEqual( field.get( lhs ), field.get( rhs ), options );
+        };
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isFieldEqual()
+
+    /**
+     *  Compares the values of a reference field. Large arrays and lists are
+     *  {@linkplain ParallelComparison compared in parallel}
+     *  if the options allow it, all other values are compared with
+     *  {@link #isValueEqual(Object, Object, ReflectionOptions)}.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    private static final boolean isReferenceEqual( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        final var retValue = ParallelComparison.isCandidate( lhs, rhs, options )
+            ? ParallelComparison.areEqual( lhs, rhs, options, 1, null )
+            : isValueEqual( lhs, rhs, options );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isReferenceEqual()
+
+    /**
+     *  Compares two values with
+     *  {@link java.util.Objects#deepEquals(Object, Object)},
+     *  except for two arrays of {@code double} or of {@code float} values,
+     *  that are compared element by element with
+     *  {@link #isEqual(double, double, ReflectionOptions)}
+     *  or
+     *  {@link #isEqual(float, float, ReflectionOptions)}
+     *  when a tolerance is set.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the values are equal, {@code false} otherwise.
+     */
+    static final boolean isValueEqual( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        final var retValue = options.hasTolerance() && ArrayComparison.isFloatingPointArrayPair( lhs, rhs )
+            ? ArrayComparison.mismatch( lhs, rhs, options ) < 0
+            : deepEquals( lhs, rhs );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isValueEqual()
+
+    /**
+     *  Tests the components of the given records on equal.
+     *
+     *  @param  lhs The left-hand record.
+     *  @param  rhs The right-hand record.
+     *  @param  metadata    The metadata for the record class.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if all relevant components are equal,
+     *      {@code false} otherwise.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"} )
+    private static final boolean testComponents( final Object lhs, final Object rhs, final ClassMetadata metadata, final ReflectionOptions options )
+    {
+        final var excludeFields = options.excludedFields();
+        var retValue = true;
+        if( excludeFields.isEmpty() && !options.hasTolerance() && (options.parallelism() == 1) )
+        {
+            try
+            {
+                retValue = (boolean) metadata.componentComparator().invokeExact( lhs, rhs );
+            }
+            catch( final RuntimeException | Error e )
+            {
+                throw e;
+            }
+            catch( final Throwable t )
+            {
+                throw new InternalError( "Unexpected " + t.getClass().getSimpleName(), t );
+            }
+        }
+        else
+        {
+            final var components = metadata.components( excludeFields );
+            for( var i = 0; (i < components.length) && retValue; ++i )
+            {
+                retValue = isComponentEqual( components [i], lhs, rhs, options );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  testComponents()
+
+    /**
+     *  Tests the fields on the given instances on equal.<br>
+     *  <br>The relevant fields of the class are taken from the
+     *  {@linkplain ClassMetadata cached metadata},
+     *  so no reflection lookups are required for a class that was already
+     *  inspected before.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  metadata    The metadata for the class that defines the
+     *      details.
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if all relevant fields are equal,
+     *      {@code false} otherwise.
+     *  @throws IllegalArgumentException    One of the objects is not an
+     *      instance of the class that defines the details.
+     */
+    private static final boolean testFields( final Object lhs, final Object rhs, final ClassMetadata metadata, final ReflectionOptions options )
+    {
+        final var excludeFields = options.excludedFields();
+        var retValue = true;
+        if( excludeFields.isEmpty() && !options.hasTolerance() && (options.parallelism() == 1) && (TestUtils.getReflectionEngine() == ReflectionEngine.METHOD_HANDLES) )
+        {
+            retValue = testWithMethodHandles( lhs, rhs, metadata, options.testTransients() );
+        }
+        else
+        {
+            final var fields = metadata.fields( options.testTransients(), excludeFields );
+            for( var i = 0; (i < fields.length) && retValue; ++i )
+            {
+                try
+                {
+                    retValue = isFieldEqual( fields [i], lhs, rhs, options );
+                }
+                catch( final IllegalAccessException e )
+                {
+                    /*
+                     * This can't happen. We would get a SecurityException
+                     * instead. But we prefer to throw a runtime exception in
+                     * case the impossible happens, instead of silently
+                     * swallowing it.
+                     */
+                    throw new InternalError( "Unexpected IllegalAccessException", e );
+                }
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  testFields()
+
+    /**
+     *  Tests the fields on the given instances on equal, using the engine
+     *  {@link ReflectionEngine#METHOD_HANDLES}.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  metadata    The metadata for the class that defines the
+     *      details.
+     *  @param  useTransients   {@code true} if to test transient fields
+     *      also, {@code false} otherwise.
+     *  @return {@code true} if all relevant fields are equal,
+     *      {@code false} otherwise.
+     *  @throws IllegalArgumentException    One of the objects is not an
+     *      instance of the class that defines the details.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown", "BooleanParameter"} )
+    private static final boolean testWithMethodHandles( final Object lhs, final Object rhs, final ClassMetadata metadata, final boolean useTransients )
+    {
+        /*
+         * Same as for Field.get() on an object of the wrong type. This is
+         * checked in advance, as a ClassCastException from the invocation
+         * could also come from an equals() method of a field's value.
+         */
+        final var type = metadata.getType();
+        if( !type.isInstance( lhs ) || !type.isInstance( rhs ) )
+        {
+            throw new IllegalArgumentException( format( "Not an instance of %s: %s", type.getName(), (type.isInstance( lhs ) ? rhs : lhs).getClass().getName() ) );
+        }
+
+        final boolean retValue;
+        try
+        {
+            retValue = (boolean) metadata.comparator( useTransients ).invokeExact( lhs, rhs );
+        }
+        catch( final RuntimeException | Error e )
+        {
+            throw e;
+        }
+        catch( final Throwable t )
+        {
+            throw new InternalError( "Unexpected " + t.getClass().getSimpleName(), t );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  testWithMethodHandles()
+
+    /**
+     *  Returns the distance between two {@code double} values in units in
+     *  the last place, that is the number of representable {@code double}
+     *  values between them, plus one. {@code 0.0} and {@code -0.0} have the
+     *  distance 0.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return The distance; {@link Long#MAX_VALUE} if one of the values is
+     *      {@link Double#NaN NaN}, or if the distance exceeds the range of
+     *      {@code long}.
+     */
+    static final long ulpDistance( final double lhs, final double rhs )
+    {
+        var retValue = Long.MAX_VALUE;
+        if( !Double.isNaN( lhs ) && !Double.isNaN( rhs ) )
+        {
+            /*
+             * Maps the sign-magnitude bit patterns onto a monotonic scale of
+             * two's complement values, with both zeroes mapped onto 0.
+             */
+            var lhsBits = doubleToRawLongBits( lhs );
+            if( lhsBits < 0L ) lhsBits = Long.MIN_VALUE - lhsBits;
+            var rhsBits = doubleToRawLongBits( rhs );
+            if( rhsBits < 0L ) rhsBits = Long.MIN_VALUE - rhsBits;
+            final var difference = lhsBits - rhsBits;
+            final var overflow = ((lhsBits ^ rhsBits) & (lhsBits ^ difference)) < 0L;
+            if( !overflow && (difference != Long.MIN_VALUE) ) retValue = abs( difference );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  ulpDistance()
+
+    /**
+     *  Returns the distance between two {@code float} values in units in the
+     *  last place, that is the number of representable {@code float} values
+     *  between them, plus one. {@code 0.0f} and {@code -0.0f} have the
+     *  distance 0.
+     *
+     *  @param  lhs The left-hand value.
+     *  @param  rhs The right-hand value.
+     *  @return The distance; {@link Long#MAX_VALUE} if one of the values is
+     *      {@link Float#NaN NaN}.
+     */
+    static final long ulpDistance( final float lhs, final float rhs )
+    {
+        var retValue = Long.MAX_VALUE;
+        if( !Float.isNaN( lhs ) && !Float.isNaN( rhs ) )
+        {
+            //---* See ulpDistance(double,double) *----------------------------
+            var lhsBits = floatToRawIntBits( lhs );
+            if( lhsBits < 0 ) lhsBits = Integer.MIN_VALUE - lhsBits;
+            var rhsBits = floatToRawIntBits( rhs );
+            if( rhsBits < 0 ) rhsBits = Integer.MIN_VALUE - rhsBits;
+            retValue = abs( (long) lhsBits - (long) rhsBits );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  ulpDistance()
+}
+//  class ReflectiveComparison
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,350 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.min;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.tquadrat.foundation.testutil.ClassMetadata.ComponentInfo;
+
+/**
+ *  The implementation of the reflective hash code, as it is provided by
+ *  {@link TestUtils#reflectionHashCode(Object, ReflectionOptions)}.<br>
+ *  <br>The hash code is built from the same fields, taken from the same
+ *  {@linkplain ClassMetadata cached metadata},
+ *  that
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}
+ *  compares, and each value contributes in a way that is consistent with the
+ *  comparison of that value:
+ *  <ul>
+ *  <li>Primitive values are hashed without boxing; {@code float} and
+ *  {@code double} values are hashed based on their bit patterns, as
+ *  {@link Double#hashCode(double)}
+ *  does. When a
+ *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+ *  is set, floating point fields and components are ignored, as values that
+ *  are equal within the tolerance may have different bit patterns; for the
+ *  same reason, only the lengths of arrays of {@code float} and
+ *  {@code double} values contribute to the hash code then.</li>
+ *  <li>Values that are compared with
+ *  {@link java.util.Objects#deepEquals(Object, Object)}
+ *  are hashed with
+ *  {@link Arrays#deepHashCode(Object[])},
+ *  {@link Arrays#hashCode(int[])},
+ *  or their own {@code hashCode()} method.</li>
+ *  <li>For the
+ *  {@linkplain ReflectionOptions#deepComparison() deep comparison},
+ *  the object graph is hashed the same way as it is walked, but only down to
+ *  the depth
+ *  {@value #DEEP_HASH_DEPTH}
+ *  below the root; deeper objects do not contribute to the hash code. As the
+ *  graph is unfolded into a tree for this, cycles are harmless, and two
+ *  graphs that are equal will get the same hash code, even when they are
+ *  shaped differently.</li>
+ *  </ul>
+ *  Records whose components are accessible are hashed through the accessors
+ *  of their components, like they are compared. Other objects have their
+ *  fields hashed along the class hierarchy, starting with the class of
+ *  the object; the class itself does not contribute to the hash code, as a
+ *  subclass without additional fields can be equal to its superclass.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class ReflectiveHashCode
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The depth below the root up to which a deeply compared object graph is
+     *  considered for the hash code: {@value}.
+     */
+    static final int DEEP_HASH_DEPTH = 3;
+
+    /**
+     *  The multiplier that is used to combine hash codes: {@value}.
+     */
+    private static final int MULTIPLIER = 31;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private ReflectiveHashCode() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Calculates the hash code for the given value, as it would be compared
+     *  by
+     *  {@link ReflectiveComparison#isValueEqual(Object, Object, ReflectionOptions)}.
+     *
+     *  @param  value   The value; may be {@code null}.
+     *  @param  options The options.
+     *  @return The hash code.
+     */
+    private static final int deepHashCode( final Object value, final ReflectionOptions options )
+    {
+        final var retValue = switch( value )
+        {
+            case null -> 0;
+            case final Object [] array -> Arrays.deepHashCode( array );
+            case final boolean [] array -> Arrays.hashCode( array );
+            case final byte [] array -> Arrays.hashCode( array );
+            case final char [] array -> Arrays.hashCode( array );
+            case final double [] array when options.hasTolerance() -> array.length;
+            case final double [] array -> Arrays.hashCode( array );
+            case final float [] array when options.hasTolerance() -> array.length;
+            case final float [] array -> Arrays.hashCode( array );
+            case final int [] array -> Arrays.hashCode( array );
+            case final long [] array -> Arrays.hashCode( array );
+            case final short [] array -> Arrays.hashCode( array );
+            default -> value.hashCode();
+        };
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  deepHashCode()
+
+    /**
+     *  Calculates the hash code for the components of the given record.
+     *
+     *  @param  record  The record.
+     *  @param  components  The components of the record, without the
+     *      excluded ones.
+     *  @param  options The options.
+     *  @param  depth   The depth of the record in the graph.
+     *  @return The hash code.
+     */
+    @SuppressWarnings( {"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"} )
+    private static final int hashComponents( final Object record, final ComponentInfo [] components, final ReflectionOptions options, final int depth )
+    {
+        final var ignoreFloatingPoint = options.hasTolerance();
+        var retValue = 0;
+        try
+        {
+            for( final var component : components )
+            {
+                final var accessor = component.accessor();
+                retValue = switch( component.kind() )
+                {
+                    case BOOLEAN -> (MULTIPLIER * retValue) + Boolean.hashCode( (boolean) accessor.invokeExact( record ) );
+                    case BYTE -> (MULTIPLIER * retValue) + Byte.hashCode( (byte) accessor.invokeExact( record ) );
+                    case CHAR -> (MULTIPLIER * retValue) + Character.hashCode( (char) accessor.invokeExact( record ) );
+                    case DOUBLE -> ignoreFloatingPoint ? retValue : (MULTIPLIER * retValue) + Double.hashCode( (double) accessor.invokeExact( record ) );
+                    case FLOAT -> ignoreFloatingPoint ? retValue : (MULTIPLIER * retValue) + Float.hashCode( (float) accessor.invokeExact( record ) );
+                    case INT -> (MULTIPLIER * retValue) + Integer.hashCode( (int) accessor.invokeExact( record ) );
+                    case LONG -> (MULTIPLIER * retValue) + Long.hashCode( (long) accessor.invokeExact( record ) );
+                    case SHORT -> (MULTIPLIER * retValue) + Short.hashCode( (short) accessor.invokeExact( record ) );
+                    case REFERENCE -> (MULTIPLIER * retValue) + hashValue( (Object) accessor.invokeExact( record ), options, depth + 1 );
+                };
+            }
+        }
+        catch( final RuntimeException | Error e )
+        {
+            throw e;
+        }
+        catch( final Throwable t )
+        {
+            //---* Record accessors cannot throw checked exceptions *----------
+            throw new InternalError( "Unexpected " + t.getClass().getSimpleName(), t );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashComponents()
+
+    /**
+     *  Calculates the hash code for the fields of the given object on one
+     *  level of its class hierarchy.
+     *
+     *  @param  object  The object.
+     *  @param  metadata    The metadata for the level of the class hierarchy.
+     *  @param  options The options.
+     *  @param  depth   The depth of the object in the graph.
+     *  @param  hashCode    The hash code so far.
+     *  @return The new hash code.
+     */
+    private static final int hashFields( final Object object, final ClassMetadata metadata, final ReflectionOptions options, final int depth, final int hashCode )
+    {
+        final var ignoreFloatingPoint = options.hasTolerance();
+        var retValue = hashCode;
+        try
+        {
+            for( final var info : metadata.fields( options.testTransients(), options.excludedFields() ) )
+            {
+                final var field = info.field();
+                retValue = switch( info.kind() )
+                {
+                    case BOOLEAN -> (MULTIPLIER * retValue) + Boolean.hashCode( field.getBoolean( object ) );
+                    case BYTE -> (MULTIPLIER * retValue) + Byte.hashCode( field.getByte( object ) );
+                    case CHAR -> (MULTIPLIER * retValue) + Character.hashCode( field.getChar( object ) );
+                    case DOUBLE -> ignoreFloatingPoint ? retValue : (MULTIPLIER * retValue) + Double.hashCode( field.getDouble( object ) );
+                    case FLOAT -> ignoreFloatingPoint ? retValue : (MULTIPLIER * retValue) + Float.hashCode( field.getFloat( object ) );
+                    case INT -> (MULTIPLIER * retValue) + Integer.hashCode( field.getInt( object ) );
+                    case LONG -> (MULTIPLIER * retValue) + Long.hashCode( field.getLong( object ) );
+                    case SHORT -> (MULTIPLIER * retValue) + Short.hashCode( field.getShort( object ) );
+                    case REFERENCE -> (MULTIPLIER * retValue) + hashValue( field.get( object ), options, depth + 1 );
+                };
+            }
+        }
+        catch( final IllegalAccessException e )
+        {
+            /*
+             * This can't happen. We would get a SecurityException instead. But
+             * we prefer to throw a runtime exception in case the impossible
+             * happens, instead of silently swallowing it.
+             */
+            throw new InternalError( "Unexpected IllegalAccessException", e );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashFields()
+
+    /**
+     *  Calculates the hash code for the given object.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  options The options.
+     *  @return The hash code.
+     */
+    static final int hashCode( final Object object, final ReflectionOptions options )
+    {
+        final var retValue = options.deepComparison()
+            ? hashValue( object, options, 0 )
+            : hashReflective( object, options, 0 );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashCode()
+
+    /**
+     *  Calculates the hash code for the fields of the given object along its
+     *  class hierarchy.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  options The options.
+     *  @param  depth   The depth of the object in the graph.
+     *  @return The hash code.
+     */
+    private static final int hashReflective( final Object object, final ReflectionOptions options, final int depth )
+    {
+        var retValue = 0;
+        if( nonNull( object ) && nonNull( ClassMetadata.forClass( object.getClass() ).components() ) )
+        {
+            retValue = hashComponents( object, ClassMetadata.forClass( object.getClass() ).components( options.excludedFields() ), options, depth );
+        }
+        else if( nonNull( object ) )
+        {
+            final var reflectUpToClass = options.reflectUpToClass();
+            Class<?> testClass = object.getClass();
+            retValue = hashFields( object, ClassMetadata.forClass( testClass ), options, depth, retValue );
+            while( nonNull( testClass.getSuperclass() ) && (testClass != reflectUpToClass) )
+            {
+                testClass = testClass.getSuperclass();
+                retValue = hashFields( object, ClassMetadata.forClass( testClass ), options, depth, retValue );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashReflective()
+
+    /**
+     *  Calculates the hash code for a value on the given depth of the graph.
+     *  The value is handled in the same way as
+     *  {@link DeepComparison}
+     *  compares it.
+     *
+     *  @param  value   The value; may be {@code null}.
+     *  @param  options The options.
+     *  @param  depth   The depth of the value in the graph.
+     *  @return The hash code.
+     */
+    @SuppressWarnings( {"IfStatementWithTooManyBranches", "ChainOfInstanceofChecks"} )
+    private static final int hashValue( final Object value, final ReflectionOptions options, final int depth )
+    {
+        final var maxDepth = options.deepComparison() ? options.maxDepth() : 0;
+        int retValue;
+        if( isNull( value ) )
+        {
+            retValue = 0;
+        }
+        else if( depth > maxDepth )
+        {
+            retValue = deepHashCode( value, options );
+        }
+        else if( depth > min( maxDepth, DEEP_HASH_DEPTH ) )
+        {
+            //---* Too deep; the value does not contribute *-------------------
+            retValue = 0;
+        }
+        else if( value instanceof final Object [] array )
+        {
+            retValue = 1;
+            for( final var element : array ) retValue = (MULTIPLIER * retValue) + hashValue( element, options, depth + 1 );
+        }
+        else if( value.getClass().isArray() )
+        {
+            retValue = deepHashCode( value, options );
+        }
+        else if( value instanceof final List<?> list )
+        {
+            retValue = 1;
+            for( final var element : list ) retValue = (MULTIPLIER * retValue) + hashValue( element, options, depth + 1 );
+        }
+        else if( value instanceof final Map<?,?> map )
+        {
+            retValue = 0;
+            for( final var entry : map.entrySet() )
+            {
+                retValue += Objects.hashCode( entry.getKey() ) ^ hashValue( entry.getValue(), options, depth + 1 );
+            }
+        }
+        else if( ((depth > 0) && DeepComparison.isComparedWithEquals( value.getClass() )) || !DeepComparison.isOpen( value.getClass() ) )
+        {
+            retValue = value.hashCode();
+        }
+        else
+        {
+            retValue = hashReflective( value, options, depth );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashValue()
+}
+//  class ReflectiveHashCode
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,176 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.util.Objects.nonNull;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ *  A
+ *  {@link Spliterator}
+ *  that replays an element that was already taken from another
+ *  spliterator, and then continues lazily with the remaining elements of
+ *  that other spliterator. It is used by
+ *  {@link TestUtils#requireNotEmptyStreamArgument(java.util.stream.Stream, String)}
+ *  to check a stream on emptiness without consuming it.<br>
+ *  <br>The characteristics of the other spliterator are retained, and
+ *  {@link #estimateSize()}
+ *  accounts for the replayed element, so a sized stream stays sized. When
+ *  the replayed element was not yet returned, a split moves it to the
+ *  prefix, so the encounter order is preserved, too.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @param  <T> The type of the elements.
+ */
+final class ReplayingSpliterator<T> implements Spliterator<T>
+{
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The element that was already taken from the other spliterator.
+     */
+    private T m_Head;
+
+    /**
+     *  The flag that indicates whether the head element still has to be
+     *  returned.
+     */
+    private boolean m_HeadPending;
+
+    /**
+     *  The spliterator with the remaining elements.
+     */
+    private final Spliterator<T> m_Remainder;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ReplayingSpliterator} instance.
+     *
+     *  @param  head    The element that was already taken from the other
+     *      spliterator; may be {@code null}.
+     *  @param  remainder   The spliterator with the remaining elements.
+     */
+    ReplayingSpliterator( final T head, final Spliterator<T> remainder )
+    {
+        m_Head = head;
+        m_HeadPending = true;
+        m_Remainder = remainder;
+    }   //  ReplayingSpliterator()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final int characteristics() { return m_Remainder.characteristics(); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final long estimateSize()
+    {
+        final var size = m_Remainder.estimateSize();
+        final var retValue = m_HeadPending && (size < Long.MAX_VALUE) ? size + 1 : size;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  estimateSize()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void forEachRemaining( final Consumer<? super T> action )
+    {
+        if( m_HeadPending ) action.accept( takeHead() );
+        m_Remainder.forEachRemaining( action );
+    }   //  forEachRemaining()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final Comparator<? super T> getComparator() { return m_Remainder.getComparator(); }
+
+    /**
+     *  Returns the head element, and marks it as returned.
+     *
+     *  @return The head element.
+     */
+    private final T takeHead()
+    {
+        final var retValue = m_Head;
+        m_Head = null;
+        m_HeadPending = false;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  takeHead()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final boolean tryAdvance( final Consumer<? super T> action )
+    {
+        final boolean retValue;
+        if( m_HeadPending )
+        {
+            action.accept( takeHead() );
+            retValue = true;
+        }
+        else
+        {
+            retValue = m_Remainder.tryAdvance( action );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  tryAdvance()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final Spliterator<T> trySplit()
+    {
+        var retValue = m_Remainder.trySplit();
+        if( nonNull( retValue ) && m_HeadPending ) retValue = new ReplayingSpliterator<>( takeHead(), retValue );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  trySplit()
+}
+//  class ReplayingSpliterator
+
+/*
+ *  End of File
+ */
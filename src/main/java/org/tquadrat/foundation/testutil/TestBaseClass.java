@@ -33,11 +33,8 @@ import static java.util.Arrays.asList;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.joining;
 import static org.apiguardian.api.API.Status.STABLE;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.tquadrat.foundation.testutil.TestUtils.EMPTY_STRING;
-import static org.tquadrat.foundation.testutil.TestUtils.getLiveThreads;
 import static org.tquadrat.foundation.testutil.TestUtils.isAssertionOn;
 
 import java.io.InputStream;
@@ -45,20 +42,29 @@ import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.SocketException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.TimeZone;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.apiguardian.api.API;
 import org.easymock.EasyMockSupport;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
 
 /**
  *  A base class for JUnit test classes.
@@ -71,11 +77,61 @@ import org.junit.jupiter.api.BeforeEach;
  */
 @SuppressWarnings( {"AbstractClassWithoutAbstractMethods", "UseOfSystemOutOrSystemErr", "AbstractClassExtendsConcreteClass"} )
 @API( status = STABLE, since = "0.0.5" )
+@ExtendWith( TestMetricsExtension.class )
 public abstract class TestBaseClass extends EasyMockSupport
 {
         /*-----------*\
     ====** Constants **========================================================
         \*-----------*/
+    /**
+     *  The default for the patterns of the targets of those file descriptors
+     *  that may be left open by a test; these are the files that are opened
+     *  by the JVM on demand, like the JAR files for the classes that are
+     *  loaded during the test, the files of the Java Flight Recorder, the
+     *  sources for
+     *  {@link java.security.SecureRandom},
+     *  or the poller for the I/O of virtual threads.
+     *
+     *  @see #getFileDescriptorAllowlist()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final List<Pattern> DEFAULT_FILE_DESCRIPTOR_ALLOWLIST = Stream.of( ".+\\.jar", ".+\\.jmod", ".+\\.jfr", "/dev/u?random", "anon_inode:\\[eventpoll]" )
+        .map( Pattern::compile )
+        .toList();
+
+    /**
+     *  The default for the patterns of the names of those threads that may
+     *  be left over by a test; these are the threads that are started by
+     *  the JVM on demand, like the workers of
+     *  {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     *  or the thread for the common
+     *  {@link java.lang.ref.Cleaner}.
+     *
+     *  @see #getThreadAllowlist()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final List<Pattern> DEFAULT_THREAD_ALLOWLIST = Stream.of( "ForkJoinPool\\.commonPool-worker-\\d+", "Common-Cleaner", "process reaper", "Attach Listener", "JFR .+" )
+        .map( Pattern::compile )
+        .toList();
+
+    /**
+     *  The default for the grace period for the termination of the threads
+     *  that were started by a test: 100 milliseconds.
+     *
+     *  @see #getThreadGracePeriod()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Duration DEFAULT_THREAD_GRACE_PERIOD = Duration.ofMillis( 100 );
+
     /**
      *  The message for an exception that was not thrown: {@value}.
      */
@@ -94,9 +150,149 @@ public abstract class TestBaseClass extends EasyMockSupport
     @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
     public static final String MSG_WrongExceptionThrown = "Wrong Exception type; caught '%2$s' but '%1$s' was expected";
 
+    /**
+     *  The system property for the capacity in bytes by that the buffer
+     *  pools may grow during a test: {@value}. If it is not set, or if its
+     *  value is invalid, the capacity may not grow at all.
+     *
+     *  @see #getBufferCapacityThreshold()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_BUFFER_CAPACITY_THRESHOLD = "org.tquadrat.foundation.testutil.bufferCapacityThreshold";
+
+    /**
+     *  The system property for the number of buffers by that the buffer
+     *  pools may grow during a test: {@value}. If it is not set, or if its
+     *  value is invalid, the number may not grow at all.
+     *
+     *  @see #getBufferCountThreshold()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_BUFFER_COUNT_THRESHOLD = "org.tquadrat.foundation.testutil.bufferCountThreshold";
+
+    /**
+     *  The system property that enables the check for direct and mapped
+     *  buffers that are retained by a test: {@value}. If it is set to
+     *  {@code true}, the check is performed for all tests; otherwise, test
+     *  classes can enable it by overriding
+     *  {@link #isBufferPoolTestEnabled()}.
+     *
+     *  @see #assertThatBufferPoolsDidNotGrow()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_CHECK_BUFFER_POOLS = "org.tquadrat.foundation.testutil.checkBufferPools";
+
+    /**
+     *  The system property that enables the check for file descriptors that
+     *  are left open by a test: {@value}. If it is set to {@code true}, the
+     *  check is performed for all tests; otherwise, test classes can enable
+     *  it by overriding
+     *  {@link #isFileDescriptorTestEnabled()}.
+     *
+     *  @see #assertThatNoFileDescriptorsWereLeaked()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_CHECK_FILE_DESCRIPTORS = "org.tquadrat.foundation.testutil.checkFileDescriptors";
+
+    /**
+     *  The system property that enables the check for virtual threads that
+     *  are left over by a test: {@value}. If it is set to {@code true}, the
+     *  check is performed for all tests; otherwise, test classes can enable
+     *  it by overriding
+     *  {@link #isVirtualThreadTestEnabled()}.
+     *
+     *  @see #assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_CHECK_VIRTUAL_THREADS = "org.tquadrat.foundation.testutil.checkVirtualThreads";
+
+    /**
+     *  The system property for the file that the costs of each test are
+     *  written to: {@value}. If it is set, the wall time, the CPU time, the
+     *  garbage collections, and the heap usage are recorded for each test,
+     *  and appended to that file as a line in the JSON Lines format.
+     *
+     *  @see #getMetricsFile()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_METRICS_FILE = "org.tquadrat.foundation.testutil.metricsFile";
+
+    /**
+     *  The system property that enables the profiling of the most contended
+     *  monitors for each test: {@value}. The profile is taken from the
+     *  events of the Java Flight Recorder, and this costs some milliseconds
+     *  per test; it takes effect only together with
+     *  {@value #PROPERTY_RECORD_CONTENTION}.
+     *  For tests with a
+     *  {@link ContentionBudget},
+     *  the monitors are always profiled.
+     *
+     *  @see #isMonitorProfilingEnabled()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_PROFILE_MONITORS = "org.tquadrat.foundation.testutil.profileMonitors";
+
+    /**
+     *  The system property that enables the tracking of the lock contention
+     *  for each test: {@value}. The contention is written to the
+     *  {@linkplain #PROPERTY_METRICS_FILE file for the test metrics},
+     *  if that is configured.
+     *
+     *  @see #isContentionRecordingEnabled()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_RECORD_CONTENTION = "org.tquadrat.foundation.testutil.recordContention";
+
+    /**
+     *  The system property for the grace period for the termination of the
+     *  threads that were started by a test, in milliseconds: {@value}. If it
+     *  is not set, or if its value is invalid,
+     *  {@link #DEFAULT_THREAD_GRACE_PERIOD}
+     *  is used.
+     *
+     *  @see #getThreadGracePeriod()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "ConstantDeclaredInAbstractClass" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String PROPERTY_THREAD_GRACE_PERIOD = "org.tquadrat.foundation.testutil.threadGracePeriod";
+
         /*------------*\
     ====** Attributes **=======================================================
         \*------------*/
+    /**
+     *  The tracker for the buffer pools; {@code null} if the buffer pools
+     *  are not checked.
+     *
+     *  @see #isBufferPoolTestEnabled()
+     */
+    private BufferPoolTracker m_BufferPoolTracker = null;
+
     /**
      *  The default error output stream.
      */
@@ -133,9 +329,26 @@ public abstract class TestBaseClass extends EasyMockSupport
     private ZoneId m_DefaultZoneId;
 
     /**
-     *  Threads that are alive before the test is started.
+     *  The tracker for the executors and timers that are created by the
+     *  test.
+     *
+     *  @see #trackExecutor(ExecutorService)
+     *  @see #newTimer(String, boolean)
+     */
+    private final ExecutorTracker m_ExecutorTracker = new ExecutorTracker();
+
+    /**
+     *  The tracker for the file descriptors that are opened by the test;
+     *  {@code null} if file descriptors are not checked.
+     *
+     *  @see #isFileDescriptorTestEnabled()
      */
-    private Collection<Thread> m_LiveThreadsBeforeSetup = null;
+    private FileDescriptorTracker m_FileDescriptorTracker = null;
+
+    /**
+     *  The tracker for the threads that are started by the test.
+     */
+    private PlatformThreadTracker m_PlatformThreadTracker = null;
 
     /**
      *  Flag that controls whether the test regarding additional threads will
@@ -145,6 +358,14 @@ public abstract class TestBaseClass extends EasyMockSupport
      */
     private boolean m_SkipThreadTest = false;
 
+    /**
+     *  The tracker for the virtual threads that are started by the test;
+     *  {@code null} if virtual threads are not checked.
+     *
+     *  @see #isVirtualThreadTestEnabled()
+     */
+    private VirtualThreadTracker m_VirtualThreadTracker = null;
+
     /**
      *  The system properties.
      */
@@ -165,6 +386,66 @@ public abstract class TestBaseClass extends EasyMockSupport
         /*---------*\
     ====** Methods **==========================================================
         \*---------*/
+    /**
+     *  As the name of the method indicates, it asserts that all executors
+     *  that were
+     *  {@linkplain #trackExecutor(ExecutorService) tracked}
+     *  by the test were shut down and have terminated, and that all timers
+     *  that were created with
+     *  {@link #newTimer(String, boolean)}
+     *  were cancelled. An executor that was shut down gets the
+     *  {@linkplain #getThreadGracePeriod() grace period}
+     *  to terminate. The failure message tells the number of tasks that are
+     *  still queued in each executor.<br>
+     *  <br>Afterwards, all these executors are shut down, and all timers are
+     *  cancelled, so that they cannot pile up over the tests.
+     *
+     *  @since 0.2.0
+     */
+    @AfterEach
+    @API( status = STABLE, since = "0.2.0" )
+    protected final void assertThatAllExecutorsWereShutDown()
+    {
+        final var report = m_ExecutorTracker.check( System.nanoTime() + getThreadGracePeriod().toNanos() );
+        if( report.isPresent() ) fail( report.get() );
+    }   //  assertThatAllExecutorsWereShutDown()
+
+    /**
+     *  If
+     *  {@linkplain #isBufferPoolTestEnabled() enabled},
+     *  it asserts that the pools for the direct and the mapped buffers of
+     *  the JVM did not grow during the test by more than the thresholds for
+     *  the
+     *  {@linkplain #getBufferCountThreshold() number of buffers}
+     *  and for their
+     *  {@linkplain #getBufferCapacityThreshold() capacity}.
+     *  The direct buffers include the native memory segments that were
+     *  allocated from an
+     *  {@link java.lang.foreign.Arena}.<br>
+     *  <br>As the memory of a buffer is released only after the buffer was
+     *  collected as garbage, the method requests garbage collections for up
+     *  to the
+     *  {@linkplain #getThreadGracePeriod() grace period}
+     *  before it reports a growth; this time is spent only if the pools have
+     *  grown.<br>
+     *  <br>For I/O with heap buffers, the JDK caches temporary direct
+     *  buffers per thread, and these show as growth, too; set the system
+     *  property {@code jdk.nio.maxCachedBufferSize} to 0 to disable that
+     *  cache, or raise the thresholds accordingly.
+     *
+     *  @since 0.2.0
+     */
+    @AfterEach
+    @API( status = STABLE, since = "0.2.0" )
+    protected final void assertThatBufferPoolsDidNotGrow()
+    {
+        if( nonNull( m_BufferPoolTracker ) )
+        {
+            final var report = m_BufferPoolTracker.check( System.nanoTime() + getThreadGracePeriod().toNanos(), getBufferCountThreshold(), getBufferCapacityThreshold() );
+            if( report.isPresent() ) fail( report.get() );
+        }
+    }   //  assertThatBufferPoolsDidNotGrow()
+
     /**
      *  As the name of the method indicates, it asserts that the JDK assertions
      *  are enabled.<br>
@@ -191,6 +472,35 @@ public abstract class TestBaseClass extends EasyMockSupport
         }
     }   //  assertThatJDKAssertionAreEnabled()
 
+    /**
+     *  If
+     *  {@linkplain #isFileDescriptorTestEnabled() enabled},
+     *  it asserts that all file descriptors that were opened by the test
+     *  were closed again. The failure message lists the left over file
+     *  descriptors together with their targets &ndash; the files, sockets
+     *  and pipes &ndash; where the operating system tells them; otherwise,
+     *  it tells just their number.<br>
+     *  <br>Before a file descriptor is reported, the method waits for the
+     *  {@linkplain #getThreadGracePeriod() grace period}
+     *  until it is closed. File descriptors whose targets match one of the
+     *  patterns from the
+     *  {@linkplain #getFileDescriptorAllowlist() allowlist}
+     *  are not reported at all.
+     *
+     *  @since 0.2.0
+     */
+    @AfterEach
+    @API( status = STABLE, since = "0.2.0" )
+    protected final void assertThatNoFileDescriptorsWereLeaked()
+    {
+        if( nonNull( m_FileDescriptorTracker ) )
+        {
+            final var allowlist = List.copyOf( getFileDescriptorAllowlist() );
+            final var report = m_FileDescriptorTracker.check( System.nanoTime() + getThreadGracePeriod().toNanos(), target -> allowlist.stream().anyMatch( pattern -> pattern.matcher( target ).matches() ) );
+            if( report.isPresent() ) fail( report.get() );
+        }
+    }   //  assertThatNoFileDescriptorsWereLeaked()
+
     /**
      *  As the name of the method indicates, it asserts that the system
      *  properties were not modified.
@@ -231,45 +541,91 @@ public abstract class TestBaseClass extends EasyMockSupport
 
     /**
      *  As the name of the method indicates, it asserts that there are no more
-     *  living threads than there had been before setup.
+     *  living threads than there had been before setup.<br>
+     *  <br>Only the ids of the threads are compared; the stack traces are
+     *  taken only for the threads that were found to be left over, and then
+     *  they are added to the failure message. Before a thread is reported,
+     *  the method waits for the
+     *  {@linkplain #getThreadGracePeriod() grace period}
+     *  until it terminates, so threads from an
+     *  {@link java.util.concurrent.ExecutorService}
+     *  that was just shut down do not fail the test. Threads whose names
+     *  match one of the patterns from the
+     *  {@linkplain #getThreadAllowlist() allowlist}
+     *  are not reported at all.<br>
+     *  <br>If
+     *  {@linkplain #isVirtualThreadTestEnabled() enabled},
+     *  it asserts also that all virtual threads that were started by the
+     *  test have terminated. The failure message tells their number, and the
+     *  stacks of a sample of them.
      */
     @AfterEach
     protected final void assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
     {
         if( !m_SkipThreadTest )
         {
-            if( isNull( m_LiveThreadsBeforeSetup ) )
+            if( isNull( m_PlatformThreadTracker ) )
             {
                 fail( "'obtainLiveThreads()' was not executed" );
             }
 
-            final Collection<Thread> liveThreads = new HashSet<>( getLiveThreads() );
-            liveThreads.removeAll( m_LiveThreadsBeforeSetup );
-            if( !liveThreads.isEmpty() )
-            {
-                final var failed = new AtomicBoolean( false );
-                @SuppressWarnings( "OverlyLongLambda" )
-                final var message = liveThreads.stream()
-                    .filter( Thread::isAlive )
-                    .map( t ->
-                    {
-                        failed.set( true );
-                        final var buffer = new StringBuilder( t.getName() )
-                            .append( " (" )
-                            .append( t.threadId() );
-                        if( t.isDaemon() )
-                        {
-                            buffer.append( "/DAEMON" );
-                        }
-                        buffer.append( ")" );
-                        return buffer.toString();
-                    } )
-                    .collect( joining( ", ", "Detected unexpected living threads after test: ", EMPTY_STRING ) );
-                if( failed.get() ) fail( message );
-            }
+            final var deadline = System.nanoTime() + getThreadGracePeriod().toNanos();
+            final var allowlist = List.copyOf( getThreadAllowlist() );
+            final Predicate<String> isAllowed = name -> allowlist.stream().anyMatch( pattern -> pattern.matcher( name ).matches() );
+            var report = m_PlatformThreadTracker.check( deadline, isAllowed );
+            if( report.isEmpty() && nonNull( m_VirtualThreadTracker ) ) report = m_VirtualThreadTracker.check( deadline, isAllowed );
+            if( report.isPresent() ) fail( report.get() );
         }
     }   //  assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
 
+    /**
+     *  Returns the capacity in bytes by that the pools for the direct and
+     *  the mapped buffers may grow during a test.<br>
+     *  <br>This implementation returns the value of the system property
+     *  {@value #PROPERTY_BUFFER_CAPACITY_THRESHOLD},
+     *  or 0 if that is not set; test classes can override it.
+     *
+     *  @return The threshold for the capacity.
+     *
+     *  @see #assertThatBufferPoolsDidNotGrow()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected long getBufferCapacityThreshold()
+    {
+        final var bytes = Long.getLong( PROPERTY_BUFFER_CAPACITY_THRESHOLD );
+        final var retValue = nonNull( bytes ) && (bytes.longValue() >= 0) ? bytes.longValue() : 0L;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getBufferCapacityThreshold()
+
+    /**
+     *  Returns the number of buffers by that the pools for the direct and
+     *  the mapped buffers may grow during a test.<br>
+     *  <br>This implementation returns the value of the system property
+     *  {@value #PROPERTY_BUFFER_COUNT_THRESHOLD},
+     *  or 0 if that is not set; test classes can override it.
+     *
+     *  @return The threshold for the number of buffers.
+     *
+     *  @see #assertThatBufferPoolsDidNotGrow()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected long getBufferCountThreshold()
+    {
+        final var count = Long.getLong( PROPERTY_BUFFER_COUNT_THRESHOLD );
+        final var retValue = nonNull( count ) && (count.longValue() >= 0) ? count.longValue() : 0L;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getBufferCountThreshold()
+
     /**
      *  Returns the default error stream.
      *
@@ -284,6 +640,114 @@ public abstract class TestBaseClass extends EasyMockSupport
      */
     protected final PrintStream getDefaultOutputStream() { return m_DefaultOutputStream; }
 
+    /**
+     *  Returns the patterns for the targets of those file descriptors that
+     *  may be left open by a test; the targets have to match a pattern
+     *  completely. On Linux, the target of a file descriptor is the path of
+     *  the file, or a text like {@code socket:[12345]} or
+     *  {@code pipe:[12345]}.<br>
+     *  <br>This implementation returns
+     *  {@link #DEFAULT_FILE_DESCRIPTOR_ALLOWLIST};
+     *  test classes can override it to add patterns for the files that the
+     *  libraries they use keep open.
+     *
+     *  @return The patterns.
+     *
+     *  @see #assertThatNoFileDescriptorsWereLeaked()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected Collection<Pattern> getFileDescriptorAllowlist() { return DEFAULT_FILE_DESCRIPTOR_ALLOWLIST; }
+
+    /**
+     *  Returns the file that the costs of each test are written to. If a
+     *  file is returned, the costs are recorded; otherwise, nothing is
+     *  recorded.<br>
+     *  <br>The costs are the wall time, the CPU time of the test thread, of
+     *  the threads that it has started and of the whole process, the number
+     *  of garbage collections and the time spent for them, the heap usage
+     *  after the test, and the
+     *  {@linkplain #isContentionRecordingEnabled() lock contention},
+     *  if that is tracked. They are measured for the execution of the test
+     *  method only, without the
+     *  {@link BeforeEach &#64;BeforeEach}
+     *  and
+     *  {@link AfterEach &#64;AfterEach}
+     *  methods, so that the costs of the checks in this class are not
+     *  included. The results are written as one line in the
+     *  <a href="https://jsonlines.org/">JSON Lines</a>
+     *  format per test, so the file can be evaluated with the usual tools,
+     *  like {@code jq}.<br>
+     *  <br>This implementation returns the file from the system property
+     *  {@value #PROPERTY_METRICS_FILE};
+     *  test classes can override it.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the file.
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected Optional<Path> getMetricsFile()
+    {
+        final var retValue = Optional.ofNullable( System.getProperty( PROPERTY_METRICS_FILE ) )
+            .filter( name -> !name.isBlank() )
+            .map( Path::of );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getMetricsFile()
+
+    /**
+     *  Returns the patterns for the names of those threads that may be left
+     *  over by a test; the names have to match a pattern completely.<br>
+     *  <br>This implementation returns
+     *  {@link #DEFAULT_THREAD_ALLOWLIST};
+     *  test classes can override it to add patterns for the pools of the
+     *  libraries that they use.
+     *
+     *  @return The patterns.
+     *
+     *  @see #assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected Collection<Pattern> getThreadAllowlist() { return DEFAULT_THREAD_ALLOWLIST; }
+
+    /**
+     *  Returns the grace period for the termination of the threads that were
+     *  started by a test. The check for left over threads waits for up to
+     *  this time until the threads have terminated; the time is spent only
+     *  if there are such threads.<br>
+     *  <br>This implementation returns the value of the system property
+     *  {@value #PROPERTY_THREAD_GRACE_PERIOD},
+     *  or
+     *  {@link #DEFAULT_THREAD_GRACE_PERIOD}
+     *  if that is not set; test classes can override it.
+     *
+     *  @return The grace period.
+     *
+     *  @see #assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected Duration getThreadGracePeriod()
+    {
+        final var millis = Long.getLong( PROPERTY_THREAD_GRACE_PERIOD );
+        final var retValue = nonNull( millis ) && (millis.longValue() >= 0) ? Duration.ofMillis( millis.longValue() ) : DEFAULT_THREAD_GRACE_PERIOD;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getThreadGracePeriod()
+
     /**
      *  Checks whether the machine, that runs the current test, has network
      *  configured.
@@ -309,17 +773,184 @@ public abstract class TestBaseClass extends EasyMockSupport
     }   //  hasNetwork()
 
     /**
-     *  References to all currently running threads will be stored.
+     *  Returns whether the check for direct and mapped buffers that are
+     *  retained by a test is enabled. The check may request garbage
+     *  collections after a test, so it is not enabled by default.<br>
+     *  <br>This implementation returns {@code true} if the system property
+     *  {@value #PROPERTY_CHECK_BUFFER_POOLS}
+     *  is set to {@code true}; test classes for code that makes use of
+     *  direct buffers, memory mapped files, or native memory segments can
+     *  override it to enable the check for their tests.
+     *
+     *  @return {@code true} if the check is enabled, {@code false}
+     *      otherwise.
      *
-     *  @see #m_LiveThreadsBeforeSetup
+     *  @see #assertThatBufferPoolsDidNotGrow()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected boolean isBufferPoolTestEnabled() { return Boolean.getBoolean( PROPERTY_CHECK_BUFFER_POOLS ); }
+
+    /**
+     *  Returns whether the lock contention is tracked for each test. The
+     *  contention is written to the
+     *  {@linkplain #getMetricsFile() file for the test metrics};
+     *  for tests with a
+     *  {@link ContentionBudget},
+     *  it is tracked anyway. Like the other costs, the contention is tracked
+     *  for the execution of the test method only, so the waiting for the
+     *  termination of threads in the checks of this class does not count.<br>
+     *  <br>This implementation returns {@code true} if the system property
+     *  {@value #PROPERTY_RECORD_CONTENTION}
+     *  is set to {@code true}; test classes can override it.
+     *
+     *  @return {@code true} if the contention is tracked, {@code false}
+     *      otherwise.
+     *
+     *  @see ContentionBudget
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected boolean isContentionRecordingEnabled() { return Boolean.getBoolean( PROPERTY_RECORD_CONTENTION ); }
+
+    /**
+     *  Returns whether the check for file descriptors that are left open by
+     *  a test is enabled. The check reads all open file descriptors before
+     *  and after each test, so it is not enabled by default.<br>
+     *  <br>This implementation returns {@code true} if the system property
+     *  {@value #PROPERTY_CHECK_FILE_DESCRIPTORS}
+     *  is set to {@code true}; test classes for code that deals with files
+     *  or sockets can override it to enable the check for their tests.
+     *
+     *  @return {@code true} if the check is enabled, {@code false}
+     *      otherwise.
+     *
+     *  @see #assertThatNoFileDescriptorsWereLeaked()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected boolean isFileDescriptorTestEnabled() { return Boolean.getBoolean( PROPERTY_CHECK_FILE_DESCRIPTORS ); }
+
+    /**
+     *  Returns whether the most contended monitors are profiled for each
+     *  test for that the lock contention is
+     *  {@linkplain #isContentionRecordingEnabled() tracked}.
+     *  The profile is taken with the Java Flight Recorder, and this costs
+     *  some milliseconds per test, so it is not enabled by default; for
+     *  tests with a
+     *  {@link ContentionBudget},
+     *  the monitors are profiled anyway.<br>
+     *  <br>This implementation returns {@code true} if the system property
+     *  {@value #PROPERTY_PROFILE_MONITORS}
+     *  is set to {@code true}; test classes can override it.
+     *
+     *  @return {@code true} if the monitors are profiled, {@code false}
+     *      otherwise.
+     *
+     *  @see ContentionBudget
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected boolean isMonitorProfilingEnabled() { return Boolean.getBoolean( PROPERTY_PROFILE_MONITORS ); }
+
+    /**
+     *  Returns whether the check for virtual threads that are left over by a
+     *  test is enabled. The check takes a thread dump after each test that
+     *  created threads, so it is not enabled by default.<br>
+     *  <br>This implementation returns {@code true} if the system property
+     *  {@value #PROPERTY_CHECK_VIRTUAL_THREADS}
+     *  is set to {@code true}; test classes for code that makes use of
+     *  virtual threads can override it to enable the check for their tests.
+     *
+     *  @return {@code true} if the check is enabled, {@code false}
+     *      otherwise.
+     *
+     *  @see #assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "static-method" )
+    @API( status = STABLE, since = "0.2.0" )
+    protected boolean isVirtualThreadTestEnabled() { return Boolean.getBoolean( PROPERTY_CHECK_VIRTUAL_THREADS ); }
+
+    /**
+     *  Creates a new
+     *  {@link Timer}
+     *  whose cancellation is checked after the test.
+     *
+     *  @param  name    The name of the timer's thread.
+     *  @param  isDaemon    {@code true} if the timer's thread should run as a
+     *      daemon.
+     *  @return The new timer.
+     *
+     *  @see #assertThatAllExecutorsWereShutDown()
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    protected final Timer newTimer( final String name, final boolean isDaemon )
+    {
+        return m_ExecutorTracker.newTimer( requireNonNull( name, "name must not be null" ), isDaemon );
+    }   //  newTimer()
+
+    /**
+     *  If the
+     *  {@linkplain #isBufferPoolTestEnabled() check for the buffer pools}
+     *  is enabled, the current state of the buffer pools will be stored.
+     *
+     *  @see #m_BufferPoolTracker
+     *  @see #assertThatBufferPoolsDidNotGrow()
+     *
+     *  @since 0.2.0
+     */
+    @BeforeEach
+    @API( status = STABLE, since = "0.2.0" )
+    protected final void obtainBufferPools()
+    {
+        m_BufferPoolTracker = isBufferPoolTestEnabled() ? new BufferPoolTracker() : null;
+    }   //  obtainBufferPools()
+
+    /**
+     *  The ids of all currently running threads will be stored; their stack
+     *  traces are not captured. If the
+     *  {@linkplain #isVirtualThreadTestEnabled() check for virtual threads}
+     *  is enabled, the tracking of the virtual threads is started, too.
+     *
+     *  @see #m_PlatformThreadTracker
      *  @see #assertThatThereAreNoMoreLiveThreadsThanBeforeSetup()
      */
     @BeforeEach
     protected final void obtainLiveThreads()
     {
-        m_LiveThreadsBeforeSetup = getLiveThreads();
+        m_PlatformThreadTracker = new PlatformThreadTracker();
+        m_VirtualThreadTracker = isVirtualThreadTestEnabled() ? new VirtualThreadTracker() : null;
     }   //  obtainLiveThreads()
 
+    /**
+     *  If the
+     *  {@linkplain #isFileDescriptorTestEnabled() check for file descriptors}
+     *  is enabled, the currently open file descriptors will be stored.
+     *
+     *  @see #m_FileDescriptorTracker
+     *  @see #assertThatNoFileDescriptorsWereLeaked()
+     *
+     *  @since 0.2.0
+     */
+    @BeforeEach
+    @API( status = STABLE, since = "0.2.0" )
+    protected final void obtainOpenFileDescriptors()
+    {
+        m_FileDescriptorTracker = isFileDescriptorTestEnabled() ? new FileDescriptorTracker() : null;
+    }   //  obtainOpenFileDescriptors()
+
     /**
      *  Resets the default settings for
      *  {@link Locale},
@@ -402,6 +1033,25 @@ public abstract class TestBaseClass extends EasyMockSupport
         m_SystemProperties = new Properties( getProperties() );
     }   //  storeSystemProperties()
 
+    /**
+     *  Registers the given executor; after the test, it is checked whether
+     *  it was shut down and has terminated. Use it like this:
+     *  <pre><code>final var executor = trackExecutor( Executors.newFixedThreadPool( 4 ) );</code></pre>
+     *
+     *  @param  <E> The type of the executor.
+     *  @param  executor    The executor.
+     *  @return The executor.
+     *
+     *  @see #assertThatAllExecutorsWereShutDown()
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    protected final <E extends ExecutorService> E trackExecutor( final E executor )
+    {
+        return m_ExecutorTracker.track( requireNonNull( executor, "executor must not be null" ) );
+    }   //  trackExecutor()
+
     /**
      *  Translates the escape sequences in a String. Refer to
      *  {@link String#translateEscapes()}
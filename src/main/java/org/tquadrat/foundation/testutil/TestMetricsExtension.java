@@ -0,0 +1,167 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.util.Objects.nonNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+
+/**
+ *  The JUnit extension that records the costs of the tests in subclasses of
+ *  {@link TestBaseClass},
+ *  if a
+ *  {@linkplain TestBaseClass#getMetricsFile() file for the test metrics}
+ *  is configured, and that tracks their lock contention, if
+ *  {@linkplain TestBaseClass#isContentionRecordingEnabled() requested},
+ *  or if a test has a
+ *  {@link ContentionBudget}.<br>
+ *  <br>Both the recording and the tracking cover only the execution of the
+ *  test method itself: they are started after all
+ *  {@link org.junit.jupiter.api.BeforeEach &#64;BeforeEach}
+ *  methods, and they are stopped before the first
+ *  {@link org.junit.jupiter.api.AfterEach &#64;AfterEach}
+ *  method. So the costs of the checks in
+ *  {@link TestBaseClass},
+ *  like waiting for the termination of threads, or forcing garbage
+ *  collections, are never included. The results are written, and the
+ *  contention is compared with the budget, only after all
+ *  {@code @AfterEach} methods were executed.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class TestMetricsExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback, AfterEachCallback
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The namespace for the recorder and the tracker in the store of the
+     *  extension context.
+     */
+    private static final Namespace NAMESPACE = Namespace.create( TestMetricsExtension.class );
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code TestMetricsExtension} instance.
+     */
+    TestMetricsExtension() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void afterEach( final ExtensionContext context )
+    {
+        final var store = context.getStore( NAMESPACE );
+        final var recorder = store.remove( TestMetricsRecorder.class, TestMetricsRecorder.class );
+        final var tracker = store.remove( ContentionTracker.class, ContentionTracker.class );
+        final var profile = nonNull( tracker ) ? tracker.getProfile() : null;
+        if( nonNull( recorder ) && (context.getRequiredTestInstance() instanceof final TestBaseClass testInstance) )
+        {
+            testInstance.getMetricsFile().ifPresent( file -> recorder.record( file, profile ) );
+        }
+
+        final var budget = context.getRequiredTestMethod().getAnnotation( ContentionBudget.class );
+        if( nonNull( budget ) && nonNull( profile ) ) checkBudget( budget, profile );
+    }   //  afterEach()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void afterTestExecution( final ExtensionContext context )
+    {
+        final var store = context.getStore( NAMESPACE );
+
+        /*
+         * The recording is stopped first, so that the evaluation of the
+         * contention is not included in the costs.
+         */
+        final var recorder = store.get( TestMetricsRecorder.class, TestMetricsRecorder.class );
+        if( nonNull( recorder ) ) recorder.stop();
+        final var tracker = store.get( ContentionTracker.class, ContentionTracker.class );
+        if( nonNull( tracker ) ) tracker.getProfile();
+    }   //  afterTestExecution()
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final void beforeTestExecution( final ExtensionContext context )
+    {
+        if( context.getRequiredTestInstance() instanceof final TestBaseClass testInstance )
+        {
+            final var store = context.getStore( NAMESPACE );
+
+            /*
+             * The tracking of the contention is started first, so that its
+             * start is not included in the costs.
+             */
+            final var hasBudget = context.getRequiredTestMethod().isAnnotationPresent( ContentionBudget.class );
+            if( hasBudget || testInstance.isContentionRecordingEnabled() )
+            {
+                store.put( ContentionTracker.class, new ContentionTracker( hasBudget || testInstance.isMonitorProfilingEnabled() ) );
+            }
+            if( testInstance.getMetricsFile().isPresent() )
+            {
+                store.put( TestMetricsRecorder.class, new TestMetricsRecorder( context.getRequiredTestClass().getName(), context.getRequiredTestMethod().getName(), context.getDisplayName() ) );
+            }
+        }
+    }   //  beforeTestExecution()
+
+    /**
+     *  Asserts that the given lock contention does not exceed the given
+     *  budget. The failure message tells the numbers and the times for
+     *  blocking and waiting, and the most contended monitors.
+     *
+     *  @param  budget  The budget.
+     *  @param  profile The contention.
+     */
+    private static final void checkBudget( final ContentionBudget budget, final ContentionProfile profile )
+    {
+        final Collection<String> findings = new ArrayList<>();
+        if( profile.blockedCount() > budget.blockedCount() ) findings.add( format( Locale.ROOT, "blocked %,d times (budget: %,d)", profile.blockedCount(), budget.blockedCount() ) );
+        if( profile.blockedMillis() > budget.blockedMillis() ) findings.add( format( Locale.ROOT, "blocked for %,d ms (budget: %,d)", profile.blockedMillis(), budget.blockedMillis() ) );
+        if( profile.waitedCount() > budget.waitedCount() ) findings.add( format( Locale.ROOT, "waited %,d times (budget: %,d)", profile.waitedCount(), budget.waitedCount() ) );
+        if( profile.waitedMillis() > budget.waitedMillis() ) findings.add( format( Locale.ROOT, "waited for %,d ms (budget: %,d)", profile.waitedMillis(), budget.waitedMillis() ) );
+        if( !findings.isEmpty() ) fail( format( "Contention budget exceeded: %s%n%s", String.join( ", ", findings ), profile ) );
+    }   //  checkBudget()
+}
+//  class TestMetricsExtension
+
+/*
+ *  End of File
+ */
@@ -0,0 +1,368 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getGarbageCollectorMXBeans;
+import static java.lang.management.ManagementFactory.getMemoryMXBean;
+import static java.lang.management.ManagementFactory.getOperatingSystemMXBean;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.Arrays.binarySearch;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.joining;
+import static org.tquadrat.foundation.testutil.TestUtils.getLiveThreadIds;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.LongStream;
+
+import com.sun.management.OperatingSystemMXBean;
+
+/**
+ *  Records the costs of a single test, and appends them as a line in the
+ *  <a href="https://jsonlines.org/">JSON Lines</a>
+ *  format to a file. A line looks like this (wrapped here for readability):
+ *  <pre><code>{"class":"org.example.FooTest","method":"testBar","displayName":"testBar()",
+ *  "start":"2024-03-01T10:15:30.123456Z","wallNanos":1234567,"threadCpuNanos":1000000,
+ *  "newThreadsCpuNanos":0,"processCpuNanos":2000000,"gcCount":0,"gcMillis":0,
+ *  "heapUsedBytes":12345678}</code></pre>
+ *  <p>The fields are:</p>
+ *  <dl>
+ *  <dt>{@code wallNanos}</dt><dd>The elapsed time.</dd>
+ *  <dt>{@code threadCpuNanos}</dt><dd>The CPU time of the thread that
+ *  executed the test.</dd>
+ *  <dt>{@code newThreadsCpuNanos}</dt><dd>The CPU time of the platform
+ *  threads that were started during the test, and that are still alive at
+ *  its end; the CPU time of a terminated thread is no longer available.</dd>
+ *  <dt>{@code processCpuNanos}</dt><dd>The CPU time of the whole process;
+ *  this includes the threads that were started and terminated during the
+ *  test, but also the threads of the JVM itself, like those for the JIT
+ *  compiler and the garbage collector, and those of other tests that run in
+ *  parallel.</dd>
+ *  <dt>{@code gcCount}, {@code gcMillis}</dt><dd>The number of the garbage
+ *  collections, and the time spent for them, summed over all
+ *  {@linkplain GarbageCollectorMXBean garbage collectors}.</dd>
+ *  <dt>{@code heapUsedBytes}</dt><dd>The heap usage at the end of the
+ *  test.</dd>
+ *  </dl>
+ *  <p>If the lock contention was tracked, the fields from the
+ *  {@link ContentionProfile}
+ *  are added: {@code blockedCount}, {@code blockedMillis},
+ *  {@code waitedCount}, {@code waitedMillis}, and {@code monitors}, an array
+ *  of objects with the fields {@code class}, {@code location},
+ *  {@code count}, and {@code nanos}.</p>
+ *  <p>A value of -1 means that the JVM does not provide it.</p>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class TestMetricsRecorder
+{
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The garbage collectors.
+     */
+    private static final List<GarbageCollectorMXBean> m_GarbageCollectors = getGarbageCollectorMXBeans();
+
+    /**
+     *  The lock that serialises the writing to the file, for tests that run
+     *  in parallel.
+     */
+    private static final Object m_Lock = new Object();
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The name of the test class.
+     */
+    private final String m_ClassName;
+
+    /**
+     *  The display name of the test.
+     */
+    private final String m_DisplayName;
+
+    /**
+     *  The number of garbage collections when the recording started.
+     */
+    private final long m_GCCountBefore;
+
+    /**
+     *  The time spent for garbage collections, in milliseconds, when the
+     *  recording started.
+     */
+    private final long m_GCTimeBefore;
+
+    /**
+     *  The name of the test method.
+     */
+    private final String m_MethodName;
+
+    /**
+     *  The CPU time of the process when the recording started; -1 if not
+     *  available.
+     */
+    private final long m_ProcessCpuTimeBefore;
+
+    /**
+     *  The results of the recording, as the beginning of a JSON object;
+     *  {@code null} until the recording was stopped.
+     */
+    private String m_Results = null;
+
+    /**
+     *  The time when the recording started.
+     */
+    private final Instant m_Start;
+
+    /**
+     *  The value of
+     *  {@link System#nanoTime()}
+     *  when the recording started.
+     */
+    private final long m_StartNanos;
+
+    /**
+     *  The CPU time of the current thread when the recording started; -1 if
+     *  not available.
+     */
+    private final long m_ThreadCpuTimeBefore;
+
+    /**
+     *  The ids of the threads that were alive when the recording started,
+     *  sorted in ascending order.
+     */
+    private final long [] m_ThreadIdsBefore;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code TestMetricsRecorder} instance, and starts the
+     *  recording. It has to be created on the thread that executes the test.
+     *
+     *  @param  className   The name of the test class.
+     *  @param  methodName  The name of the test method.
+     *  @param  displayName The display name of the test.
+     */
+    TestMetricsRecorder( final String className, final String methodName, final String displayName )
+    {
+        m_ClassName = className;
+        m_MethodName = methodName;
+        m_DisplayName = displayName;
+
+        m_ThreadIdsBefore = getLiveThreadIds();
+        m_GCCountBefore = gcCount();
+        m_GCTimeBefore = gcTime();
+        m_ProcessCpuTimeBefore = processCpuTime();
+        m_Start = Instant.now();
+        m_ThreadCpuTimeBefore = getThreadMXBean().getCurrentThreadCpuTime();
+        m_StartNanos = System.nanoTime();
+    }   //  TestMetricsRecorder()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the difference between two values that may be unavailable.
+     *
+     *  @param  before  The value before the test; -1 if not available.
+     *  @param  after   The value after the test; -1 if not available.
+     *  @return The difference; -1 if one of the values is not available.
+     */
+    private static final long difference( final long before, final long after )
+    {
+        final var retValue = (before < 0) || (after < 0) ? -1L : after - before;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  difference()
+
+    /**
+     *  Returns the number of garbage collections so far.
+     *
+     *  @return The number of garbage collections.
+     */
+    private static final long gcCount()
+    {
+        final var retValue = m_GarbageCollectors.stream()
+            .mapToLong( GarbageCollectorMXBean::getCollectionCount )
+            .filter( count -> count > 0 )
+            .sum();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  gcCount()
+
+    /**
+     *  Returns the time spent for garbage collections so far.
+     *
+     *  @return The time in milliseconds.
+     */
+    private static final long gcTime()
+    {
+        final var retValue = m_GarbageCollectors.stream()
+            .mapToLong( GarbageCollectorMXBean::getCollectionTime )
+            .filter( time -> time > 0 )
+            .sum();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  gcTime()
+
+    /**
+     *  Returns the given text as a JSON string literal.
+     *
+     *  @param  text    The text.
+     *  @return The JSON string.
+     */
+    private static final String jsonString( final CharSequence text )
+    {
+        final var buffer = new StringBuilder( text.length() + 2 ).append( '"' );
+        text.chars().forEach( c ->
+        {
+            switch( c )
+            {
+                case '"' -> buffer.append( "\\\"" );
+                case '\\' -> buffer.append( "\\\\" );
+                case '\n' -> buffer.append( "\\n" );
+                case '\r' -> buffer.append( "\\r" );
+                case '\t' -> buffer.append( "\\t" );
+                default ->
+                {
+                    if( c < 0x20 )
+                    {
+                        buffer.append( format( "\\u%04x", c ) );
+                    }
+                    else
+                    {
+                        buffer.append( (char) c );
+                    }
+                }
+            }
+        } );
+        final var retValue = buffer.append( '"' ).toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  jsonString()
+
+    /**
+     *  Returns the CPU time of the process.
+     *
+     *  @return The CPU time in nanoseconds; -1 if not available.
+     */
+    private static final long processCpuTime()
+    {
+        final var retValue = getOperatingSystemMXBean() instanceof final OperatingSystemMXBean osBean
+            ? osBean.getProcessCpuTime()
+            : -1L;
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  processCpuTime()
+
+    /**
+     *  Appends the results of the recording to the given file. If the
+     *  recording was not
+     *  {@linkplain #stop() stopped}
+     *  before, it is stopped now.
+     *
+     *  @param  file    The file; it is created together with its parent
+     *      directories, if necessary.
+     *  @param  contention  The lock contention during the test; can be
+     *      {@code null}.
+     *  @throws UncheckedIOException    The file could not be written.
+     */
+    final void record( final Path file, final ContentionProfile contention )
+    {
+        if( isNull( m_Results ) ) stop();
+
+        final var buffer = new StringBuilder( m_Results );
+        if( nonNull( contention ) )
+        {
+            buffer.append( format( Locale.ROOT, ",\"blockedCount\":%d,\"blockedMillis\":%d,\"waitedCount\":%d,\"waitedMillis\":%d,\"monitors\":[", contention.blockedCount(), contention.blockedMillis(), contention.waitedCount(), contention.waitedMillis() ) );
+            buffer.append( contention.monitors()
+                .stream()
+                .map( monitor -> format( Locale.ROOT, "{\"class\":%s,\"location\":%s,\"count\":%d,\"nanos\":%d}", jsonString( monitor.monitorClass() ), jsonString( monitor.location() ), monitor.count(), monitor.nanos() ) )
+                .collect( joining( "," ) ) );
+            buffer.append( ']' );
+        }
+        final var line = buffer.append( format( "}%n" ) ).toString();
+        synchronized( m_Lock )
+        {
+            try
+            {
+                final var directory = file.toAbsolutePath().getParent();
+                if( nonNull( directory ) ) Files.createDirectories( directory );
+                Files.writeString( file, line, UTF_8, CREATE, APPEND );
+            }
+            catch( final IOException e )
+            {
+                throw new UncheckedIOException( format( "Cannot write the test metrics to '%s'", file ), e );
+            }
+        }
+    }   //  record()
+
+    /**
+     *  Ends the recording; later calls have no effect. This has to be called
+     *  on the thread that executed the test.
+     */
+    final void stop()
+    {
+        if( isNull( m_Results ) )
+        {
+            final var wallTime = System.nanoTime() - m_StartNanos;
+            final var threadMXBean = getThreadMXBean();
+            final var threadCpuTime = difference( m_ThreadCpuTimeBefore, threadMXBean.getCurrentThreadCpuTime() );
+            final var processCpuTime = difference( m_ProcessCpuTimeBefore, processCpuTime() );
+            final var newThreadIds = LongStream.of( getLiveThreadIds() )
+                .filter( id -> binarySearch( m_ThreadIdsBefore, id ) < 0 )
+                .toArray();
+            final var newThreadsCpuTime = threadMXBean.isThreadCpuTimeEnabled()
+                ? LongStream.of( newThreadIds ).map( threadMXBean::getThreadCpuTime ).filter( time -> time > 0 ).sum()
+                : -1L;
+            final var gcCount = gcCount() - m_GCCountBefore;
+            final var gcTime = gcTime() - m_GCTimeBefore;
+            final var heapUsed = getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+            m_Results = format( Locale.ROOT, "{\"class\":%s,\"method\":%s,\"displayName\":%s,\"start\":\"%s\",\"wallNanos\":%d,\"threadCpuNanos\":%d,\"newThreadsCpuNanos\":%d,\"processCpuNanos\":%d,\"gcCount\":%d,\"gcMillis\":%d,\"heapUsedBytes\":%d",
+                jsonString( m_ClassName ), jsonString( m_MethodName ), jsonString( m_DisplayName ), m_Start, wallTime, threadCpuTime, newThreadsCpuTime, processCpuTime, gcCount, gcTime, heapUsed );
+        }
+    }   //  stop()
+}
+//  class TestMetricsRecorder
+
+/*
+ *  End of File
+ */
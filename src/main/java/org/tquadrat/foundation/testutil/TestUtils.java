@@ -20,27 +20,26 @@ package org.tquadrat.foundation.testutil;
 
 import static java.lang.String.format;
 import static java.lang.Thread.getAllStackTraces;
-import static java.lang.reflect.AccessibleObject.setAccessible;
-import static java.lang.reflect.Modifier.isStatic;
-import static java.lang.reflect.Modifier.isTransient;
-import static java.util.Arrays.asList;
-import static java.util.Arrays.deepToString;
-import static java.util.Collections.emptySet;
-import static java.util.Objects.deepEquals;
+import static java.lang.management.ManagementFactory.getThreadMXBean;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static org.apiguardian.api.API.Status.EXPERIMENTAL;
 import static org.apiguardian.api.API.Status.STABLE;
+import static org.junit.jupiter.api.Assertions.fail;
 
-import java.lang.reflect.Array;
+import java.io.IOException;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apiguardian.api.API;
+import org.tquadrat.foundation.testutil.ClassMetadata.ComponentInfo;
 
 /**
  *  Some methods that are useful in the context of testing.
@@ -58,6 +57,27 @@ public final class TestUtils
         /*-----------*\
     ====** Constants **========================================================
         \*-----------*/
+    /**
+     *  The default number of the measured executions for
+     *  {@link #assertAllocatesAtMost(long, Runnable)}:
+     *  {@value}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int DEFAULT_ALLOCATION_ITERATIONS = 10_000;
+
+    /**
+     *  The default number of the executions before the measurement for
+     *  {@link #assertAllocatesAtMost(long, Runnable)}:
+     *  {@value}. This is enough for the JIT compiler to compile the action
+     *  with all optimisations, including the escape analysis.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int DEFAULT_ALLOCATION_WARM_UP = 20_000;
+
     /**
      *  The system property for the code of country for the current user:
      *  {@value}.
@@ -65,6 +85,23 @@ public final class TestUtils
     @API( status = STABLE, since = "0.0.5" )
     public static final String PROPERTY_USER_COUNTRY = "user.country";
 
+    /**
+     *  The system property that selects the default
+     *  {@linkplain ReflectionEngine engine}
+     *  for the reflective comparison: {@value}. The value is the name of one
+     *  of the constants of
+     *  {@link ReflectionEngine};
+     *  if it is not set or invalid,
+     *  {@link ReflectionEngine#REFLECTION}
+     *  is used.
+     *
+     *  @see #setReflectionEngine(ReflectionEngine)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = EXPERIMENTAL, since = "0.2.0" )
+    public static final String PROPERTY_REFLECTION_ENGINE = "org.tquadrat.foundation.testutil.reflectionEngine";
+
         /*------------*\
     ====** Attributes **=======================================================
         \*------------*/
@@ -73,6 +110,11 @@ public final class TestUtils
      */
     private static boolean m_AssertionOn;
 
+    /**
+     *  The engine that is used for the reflective comparison of objects.
+     */
+    private static volatile ReflectionEngine m_ReflectionEngine;
+
         /*------------------------*\
     ====** Static Initialisations **===========================================
         \*------------------------*/
@@ -111,6 +153,19 @@ public final class TestUtils
          */
         //noinspection AssertWithSideEffects,PointlessBooleanExpression,NestedAssignment
         assert (m_AssertionOn = true) == true : "Assertion is switched off";
+
+        //---* Determine the engine for the reflective comparison *------------
+        var engine = ReflectionEngine.REFLECTION;
+        final var engineName = System.getProperty( PROPERTY_REFLECTION_ENGINE );
+        if( nonNull( engineName ) )
+        {
+            try
+            {
+                engine = ReflectionEngine.valueOf( engineName.strip() );
+            }
+            catch( final IllegalArgumentException ignored ) { /* Deliberately ignored */ }
+        }
+        m_ReflectionEngine = engine;
     }
 
         /*--------------*\
@@ -125,7 +180,527 @@ public final class TestUtils
     ====** Methods **==========================================================
         \*---------*/
     /**
-     *  Returns all threads that are currently alive.
+     *  Asserts that the given action allocates not more than the given number
+     *  of bytes on the heap per execution, after
+     *  {@value #DEFAULT_ALLOCATION_WARM_UP}
+     *  executions for the warm-up, on average over
+     *  {@value #DEFAULT_ALLOCATION_ITERATIONS}
+     *  measured executions. Use it like this:
+     *  <pre><code>assertAllocatesAtMost( 0, () -&gt; serializer.write( value, buffer ) );</code></pre>
+     *
+     *  @param  bytes   The maximum number of bytes per execution.
+     *  @param  action  The action.
+     *  @throws UnsupportedOperationException   The JVM does not support the
+     *      measurement of the allocated memory per thread.
+     *
+     *  @see #assertAllocatesAtMost(long, int, int, Runnable)
+     *  @see AllocationBudget
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final void assertAllocatesAtMost( final long bytes, final Runnable action )
+    {
+        assertAllocatesAtMost( bytes, DEFAULT_ALLOCATION_WARM_UP, DEFAULT_ALLOCATION_ITERATIONS, action );
+    }   //  assertAllocatesAtMost()
+
+    /**
+     *  Asserts that the given action allocates not more than the given number
+     *  of bytes on the heap per execution, on average over the measured
+     *  executions.<br>
+     *  <br>Only the allocations of the current thread are measured, using
+     *  {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}.
+     *  The executions for the warm-up let the JIT compiler compile the action,
+     *  so that the allocations that are removed by the escape analysis are
+     *  not counted; as the compilation takes place in the background, the
+     *  measurement is repeated for some rounds if the budget is exceeded,
+     *  and the best round counts. If the test fails, the message tells the
+     *  number of bytes that were allocated per execution.
+     *
+     *  @param  bytes   The maximum number of bytes per execution.
+     *  @param  warmUp  The number of executions before the measurement.
+     *  @param  iterations  The number of measured executions.
+     *  @param  action  The action.
+     *  @throws UnsupportedOperationException   The JVM does not support the
+     *      measurement of the allocated memory per thread.
+     *
+     *  @see AllocationBudget
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final void assertAllocatesAtMost( final long bytes, final int warmUp, final int iterations, final Runnable action )
+    {
+        if( bytes < 0 ) throw new IllegalArgumentException( format( "Argument 'bytes' is negative: %d", bytes ) );
+        if( warmUp < 0 ) throw new IllegalArgumentException( format( "Argument 'warmUp' is negative: %d", warmUp ) );
+        if( iterations <= 0 ) throw new IllegalArgumentException( format( "Argument 'iterations' is not positive: %d", iterations ) );
+        requireNonNullArgument( action, "action" );
+
+        final var allocated = AllocationMeter.measure( bytes, warmUp, iterations, action );
+        if( allocated > bytes )
+        {
+            fail( format( Locale.ROOT, "Allocated %,.1f bytes per invocation, but at most %,d bytes are allowed (%,d invocations measured after %,d for the warm-up)", allocated, bytes, iterations, warmUp ) );
+        }
+    }   //  assertAllocatesAtMost()
+
+    /**
+     *  Asserts that the given collections hold the same elements, without
+     *  regard to their order, using the
+     *  {@linkplain ReflectionOptions#defaults() default options}
+     *  for the comparison of the elements.
+     *
+     *  @param  expected    The expected elements.
+     *  @param  actual  The actual elements.
+     *
+     *  @see #compareIgnoringOrder(Collection, Collection, ReflectionOptions)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final void assertSameElementsIgnoringOrder( final Collection<?> expected, final Collection<?> actual )
+    {
+        assertSameElementsIgnoringOrder( expected, actual, ReflectionOptions.defaults() );
+    }   //  assertSameElementsIgnoringOrder()
+
+    /**
+     *  Asserts that the given collections hold the same elements, without
+     *  regard to their order. The elements are compared with
+     *  {@link #reflectionEquals(Object, Object, ReflectionOptions)}.
+     *  If the collections differ, the test fails with a message that gives
+     *  the numbers of the missing and the extra elements, together with some
+     *  samples of them.
+     *
+     *  @param  expected    The expected elements.
+     *  @param  actual  The actual elements.
+     *  @param  options The options for the comparison of the elements.
+     *
+     *  @see #compareIgnoringOrder(Collection, Collection, ReflectionOptions)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final void assertSameElementsIgnoringOrder( final Collection<?> expected, final Collection<?> actual, final ReflectionOptions options )
+    {
+        final var difference = compareIgnoringOrder( expected, actual, options );
+        if( !difference.isEmpty() ) fail( difference.toString() );
+    }   //  assertSameElementsIgnoringOrder()
+
+    /**
+     *  Compares the given collections without regard to the order of their
+     *  elements; each element is compared with
+     *  {@link #reflectionEquals(Object, Object, ReflectionOptions)},
+     *  and duplicates are counted. Elements whose classes are not open for
+     *  deep reflection, like
+     *  {@link String}
+     *  or
+     *  {@link Integer},
+     *  are compared with their own {@code equals()} methods instead.<br>
+     *  <br>Instead of comparing each expected element with each actual
+     *  element, the elements of both collections are distributed to the
+     *  buckets of a hash table, based on their
+     *  {@linkplain #reflectionHashCode(Object, ReflectionOptions) reflective hash code},
+     *  and only elements with the same hash code are compared. This takes
+     *  the time for the calculation of the hash codes, which grows linearly
+     *  with the number of elements, plus the time for the comparisons; for
+     *  elements with well distributed hash codes, there is about one
+     *  comparison per element. Only if many elements share the same hash
+     *  code, for example because they differ only in excluded or
+     *  floating point fields while a
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+     *  is set, the effort for these elements grows quadratically.<br>
+     *  <br>Besides the two collections themselves, about 20 bytes per element
+     *  are required on each side: an array with the elements, their hash
+     *  codes, the hash table, and a flag. No objects are created per
+     *  element.<br>
+     *  <br>If the
+     *  {@linkplain ReflectionOptions#withParallelism(int) parallelism}
+     *  is greater than 1 and one of the collections has at least
+     *  {@linkplain ReflectionOptions#withParallelThreshold(int) threshold}
+     *  elements, the hash codes are calculated, and the elements are
+     *  compared, concurrently.<br>
+     *  <br>An actual element is matched to the first expected element with
+     *  the same hash code that is equal to it. When the comparison is not
+     *  transitive, as it can be the case with a tolerance, this may report
+     *  differences although another assignment would have matched all
+     *  elements.
+     *
+     *  @param  expected    The expected elements.
+     *  @param  actual  The actual elements.
+     *  @param  options The options for the comparison of the elements; the
+     *      {@linkplain ReflectionOptions#withMaxDifferences(int) maximum number of differences}
+     *      limits the number of samples for the missing and the extra
+     *      elements.
+     *  @return The differences.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final ElementsDifference compareIgnoringOrder( final Collection<?> expected, final Collection<?> actual, final ReflectionOptions options )
+    {
+        final var retValue = UnorderedComparison.compare( requireNonNullArgument( expected, "expected" ), requireNonNullArgument( actual, "actual" ), requireNonNullArgument( options, "options" ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  compareIgnoringOrder()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code boolean}, using
+     *  {@link Arrays#mismatch(boolean[], boolean[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final boolean [] lhs, final boolean [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code byte}, using
+     *  {@link Arrays#mismatch(byte[], byte[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final byte [] lhs, final byte [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code char}, using
+     *  {@link Arrays#mismatch(char[], char[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final char [] lhs, final char [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code double}, using
+     *  {@link Arrays#mismatch(double[], double[])}.
+     *  The values are compared based on their bit patterns, as
+     *  {@link Arrays#equals(double[], double[])}
+     *  does.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final double [] lhs, final double [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code double}, taking the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerances}
+     *  from the given options into account; the other settings are ignored.
+     *  Without a tolerance, this is the same as
+     *  {@link #findMismatch(double[], double[])}.<br>
+     *  <br>The arrays are still scanned with
+     *  {@link Arrays#mismatch(double[], int, int, double[], int, int)};
+     *  only the elements with different bit patterns are checked against the
+     *  tolerances, without boxing them. This allows to validate the results
+     *  of vectorised or parallel computations against those of a sequential
+     *  reference implementation, at full data size.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  options The options that provide the tolerances.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final double [] lhs, final double [] rhs, final ReflectionOptions options )
+    {
+        final var index = ArrayComparison.mismatch( requireNonNullArgument( lhs, "lhs" ), requireNonNullArgument( rhs, "rhs" ), requireNonNullArgument( options, "options" ) );
+        final var retValue = ArrayComparison.describe( lhs, rhs, index, ArrayMismatch.DEFAULT_RADIUS );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code float}, using
+     *  {@link Arrays#mismatch(float[], float[])}.
+     *  The values are compared based on their bit patterns, as
+     *  {@link Arrays#equals(float[], float[])}
+     *  does.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final float [] lhs, final float [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code float}, taking the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerances}
+     *  from the given options into account; the other settings are ignored.
+     *  Without a tolerance, this is the same as
+     *  {@link #findMismatch(float[], float[])}.<br>
+     *  <br>The arrays are still scanned with
+     *  {@link Arrays#mismatch(float[], int, int, float[], int, int)};
+     *  only the elements with different bit patterns are checked against the
+     *  tolerances, without boxing them. This allows to validate the results
+     *  of vectorised or parallel computations against those of a sequential
+     *  reference implementation, at full data size.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  options The options that provide the tolerances.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final float [] lhs, final float [] rhs, final ReflectionOptions options )
+    {
+        final var index = ArrayComparison.mismatch( requireNonNullArgument( lhs, "lhs" ), requireNonNullArgument( rhs, "rhs" ), requireNonNullArgument( options, "options" ) );
+        final var retValue = ArrayComparison.describe( lhs, rhs, index, ArrayMismatch.DEFAULT_RADIUS );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code int}, using
+     *  {@link Arrays#mismatch(int[], int[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final int [] lhs, final int [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code long}, using
+     *  {@link Arrays#mismatch(long[], long[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final long [] lhs, final long [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@link Object}, using
+     *  {@link Arrays#mismatch(Object[], Object[])}.
+     *  The elements are compared with their {@code equals()} methods, as
+     *  {@link Arrays#equals(Object[], Object[])}
+     *  does; nested arrays are not compared by their contents.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final Object [] lhs, final Object [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays of type
+     *  {@code short}, using
+     *  {@link Arrays#mismatch(short[], short[])}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch, with a window of
+     *      {@value ArrayMismatch#DEFAULT_RADIUS}
+     *      elements on each side; empty if the arrays are equal.
+     *
+     *  @see #findMismatch(Object, Object, int)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final short [] lhs, final short [] rhs )
+    {
+        return findMismatch( lhs, rhs, ArrayMismatch.DEFAULT_RADIUS );
+    }   //  findMismatch()
+
+    /**
+     *  Determines the first mismatch between the given arrays. Both arrays
+     *  must either have the same primitive component type, or both must be
+     *  arrays of objects.<br>
+     *  <br>The arrays are scanned with the respective
+     *  {@code mismatch()}
+     *  method from
+     *  {@link Arrays};
+     *  this is intrinsified by the JVM, so even arrays with hundreds of
+     *  megabytes are scanned in a single, vectorised pass, and no element is
+     *  boxed. Only the elements in the window around the mismatch are
+     *  converted into Strings, with
+     *  {@link #toString(Object, ToStringOptions)}
+     *  and the
+     *  {@linkplain ToStringOptions#defaults() default options};
+     *  this means that large arrays, collections and maps in the window are
+     *  truncated, and that nested structures are shown only up to the
+     *  {@linkplain ToStringOptions#maxDepth() maximum depth}.
+     *
+     *  @param  lhs The left-hand array.
+     *  @param  rhs The right-hand array.
+     *  @param  radius  The number of elements to show on each side of the
+     *      mismatch.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the mismatch; empty if the arrays are equal.
+     *  @throws IllegalArgumentException    The arguments are not arrays of
+     *      compatible types, or the radius is negative.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Optional<ArrayMismatch> findMismatch( final Object lhs, final Object rhs, final int radius )
+    {
+        if( radius < 0 ) throw new IllegalArgumentException( format( "Invalid radius: %d", radius ) );
+        final var index = ArrayComparison.mismatch( requireNonNullArgument( lhs, "lhs" ), requireNonNullArgument( rhs, "rhs" ) );
+        final var retValue = ArrayComparison.describe( lhs, rhs, index, radius );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  findMismatch()
+
+    /**
+     *  Returns the ids of all platform threads that are currently alive.<br>
+     *  <br>Unlike
+     *  {@link #getLiveThreads()},
+     *  this method does not capture the stack traces of the threads, so it
+     *  is cheap enough to be called before and after each single test, even
+     *  when hundreds of threads are alive.
+     *
+     *  @return The ids of the living threads, sorted in ascending order.
+     *
+     *  @see ThreadMXBean#getAllThreadIds()
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final long [] getLiveThreadIds()
+    {
+        final var retValue = getThreadMXBean().getAllThreadIds();
+        Arrays.sort( retValue );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  getLiveThreadIds()
+
+    /**
+     *  Returns all threads that are currently alive.<br>
+     *  <br>This method captures the stack traces of all threads, so it
+     *  brings all of them to a safepoint; use
+     *  {@link #getLiveThreadIds()}
+     *  when only a snapshot for the comparison is needed.
      *
      *  @return The living threads.
      */
@@ -138,6 +713,20 @@ public final class TestUtils
         return retValue;
     }   //  getLiveThreads()
 
+    /**
+     *  Returns the engine that is currently used for the reflective
+     *  comparison of objects.
+     *
+     *  @return The engine.
+     *
+     *  @see #reflectionEquals(Object, Object, boolean, Class, String[])
+     *  @see #setReflectionEngine(ReflectionEngine)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = EXPERIMENTAL, since = "0.2.0" )
+    public static final ReflectionEngine getReflectionEngine() { return m_ReflectionEngine; }
+
     /**
      *  Checks whether JDK assertion is currently activated, meaning that the
      *  program was started with the command line flags {@code -ea} or
@@ -223,6 +812,113 @@ public final class TestUtils
         return retValue;
     }   //  isNotEmptyOrBlank()
 
+    /**
+     *  Checks whether the given record uses the implicit
+     *  {@link Record#toString() toString()}
+     *  method that is generated for records, or a method that returns the
+     *  same text. As this cannot be seen from the class itself, the result of
+     *  {@code toString()} is compared with the text that the implicit method
+     *  would return.
+     *
+     *  @param  record  The record.
+     *  @param  components  The components of the record.
+     *  @return {@code true} if the record uses the implicit
+     *      {@code toString()} method, {@code false} if it has its own.
+     */
+    static final boolean hasImplicitToString( final Object record, final ComponentInfo [] components )
+    {
+        final var buffer = new StringBuilder( record.getClass().getSimpleName() ).append( '[' );
+        for( var i = 0; i < components.length; ++i )
+        {
+            if( i > 0 ) buffer.append( ", " );
+            buffer.append( components [i].name() ).append( '=' ).append( components [i].value( record ) );
+        }
+        final var retValue = buffer.append( ']' ).toString().equals( record.toString() );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hasImplicitToString()
+
+    /**
+     *  Converts the given record into a
+     *  {@link String}
+     *  of the form {@code Name[component1=value1, component2=value2]}; the
+     *  values of the components are converted with
+     *  {@link #toString(Object)},
+     *  so arrays show their contents.
+     *
+     *  @param  record  The record.
+     *  @param  components  The components of the record.
+     *  @return The string representation.
+     */
+    static final String recordToString( final Object record, final ComponentInfo [] components )
+    {
+        final var buffer = new StringBuilder( record.getClass().getSimpleName() ).append( '[' );
+        for( var i = 0; i < components.length; ++i )
+        {
+            if( i > 0 ) buffer.append( ", " );
+            buffer.append( components [i].name() ).append( '=' ).append( toString( components [i].value( record ) ) );
+        }
+        final var retValue = buffer.append( ']' ).toString();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  recordToString()
+
+    /**
+     *  Uses reflection to determine the differences between the two objects,
+     *  using the
+     *  {@linkplain ReflectionOptions#defaults() default options}.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @return The differences.
+     *
+     *  @see #reflectionDiff(Object, Object, ReflectionOptions)
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Stream<FieldDifference> reflectionDiff( final Object lhs, final Object rhs )
+    {
+        return reflectionDiff( lhs, rhs, ReflectionOptions.defaults() );
+    }   //  reflectionDiff()
+
+    /**
+     *  Uses reflection to determine the differences between the two objects.
+     *  The same rules as for
+     *  {@link #reflectionEquals(Object, Object, ReflectionOptions)}
+     *  apply for the selection of the fields that are compared, and for the
+     *  comparison itself; but instead of just returning {@code false}, the
+     *  differing values are returned together with the
+     *  {@linkplain FieldDifference#path() path}
+     *  to them.<br>
+     *  <br>The differences are determined lazily, while the returned stream
+     *  is consumed, and the stream ends after the
+     *  {@linkplain ReflectionOptions#withMaxDifferences(int) maximum number of differences}.
+     *  Therefore, the full set of differences for a huge object graph is never
+     *  held in memory at the same time.<br>
+     *  <br>If the
+     *  {@linkplain ReflectionOptions#withDeepComparison(boolean) deep comparison}
+     *  is not switched on, only the fields of the root objects are inspected;
+     *  otherwise the whole graph is walked.
+     *
+     *  @param  lhs The left-hand object.
+     *  @param  rhs The right-hand object.
+     *  @param  options The options for the comparison.
+     *  @return The differences; the stream is empty if the objects are equal.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Stream<FieldDifference> reflectionDiff( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        final var retValue = new DeepComparison( requireNonNullArgument( options, "options" ), true ).differences( lhs, rhs );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  reflectionDiff()
+
     /**
      *  This method uses reflection to determine if the two objects are
      *  equal.<br>
@@ -441,72 +1137,321 @@ public final class TestUtils
      *  @extauthor Arun Mammen Thomas
      *  @modified Thomas Thrien - thomas.thrien@tquadrat.org
      */
-    @SuppressWarnings( {"BooleanMethodNameMustStartWithQuestion", "OverlyComplexMethod"} )
+    @SuppressWarnings( "BooleanMethodNameMustStartWithQuestion" )
     @API( status = STABLE, since = "0.0.5" )
     public static final boolean reflectionEquals( final Object lhs, final Object rhs, final boolean testTransients, final Class<?> reflectUpToClass, final String [] excludeFields )
     {
-        var retValue = lhs == rhs;
-        if( !retValue && nonNull( lhs ) && nonNull( rhs ) )
-        {
-            /*
-             * Find the leaf class since there may be transients in the leaf
-             * class or in classes between the leaf and root. If we are not
-             * testing transients or a subclass has no ivars, then a subclass
-             * can test equals to a superclass.
-             */
-            final var lhsClass = lhs.getClass();
-            final var rhsClass = rhs.getClass();
-            Class<?> testClass = null;
-            if( lhsClass.isInstance( rhs ) )
-            {
-                testClass = lhsClass;
-                if( !rhsClass.isInstance( lhs ) )
-                {
-                    //---* rhsClass is a subclass of lhsClass *----------------
-                    testClass = rhsClass;
-                }
-            }
-            else if( rhsClass.isInstance( lhs ) )
-            {
-                testClass = rhsClass;
-                if( !lhsClass.isInstance( rhs ) )
-                {
-                    //---* lhsClass is a subclass of rhsClass *----------------
-                    testClass = lhsClass;
-                }
-            }
+        return reflectionEquals( lhs, rhs, ReflectionOptions.of( testTransients, reflectUpToClass, excludeFields ) );
+    }   //  reflectionEquals()
 
-            if( nonNull( testClass ) )
-            {
-                //---* The two classes are related *---------------------------
-                final Set<String> excluded = nonNull( excludeFields ) ? new HashSet<>( asList( excludeFields ) ) : emptySet();
-                try
-                {
-                    retValue = testReflective( lhs, rhs, testClass, testTransients, excluded );
-                    while( retValue && nonNull( testClass.getSuperclass() ) && (testClass != reflectUpToClass) )
-                    {
-                        testClass = testClass.getSuperclass();
-                        retValue = testReflective( lhs, rhs, testClass, testTransients, excluded );
-                    }
-                }
-                catch( final IllegalArgumentException ignored )
-                {
-                    /*
-                     * In this case, we tried to test a subclass vs. a
-                     * superclass and the subclass has ivars or the ivars are
-                     * transient, and we are testing transients.
-                     * If a subclass has ivars that we are trying to test them,
-                     * we get an exception, and we know that the objects are not
-                     * equal.
-                     */
-                    retValue = false;
-                }
-            }
+    /**
+     *  This method uses reflection to determine if the two objects are
+     *  equal.<br>
+     *  <br>It uses
+     *  {@link java.lang.reflect.AccessibleObject#setAccessible(boolean)}
+     *  to gain access to private fields. This means that it will throw a
+     *  security exception if run under a security manager, if the permissions
+     *  are not set up correctly. It is also not as efficient as testing
+     *  explicitly.<br>
+     *  <br>Which fields are tested, and how they are compared, is controlled
+     *  by the given
+     *  {@link ReflectionOptions}.
+     *  Static fields will never be tested.<br>
+     *  <br>Fields with a primitive type are compared without boxing their
+     *  values; {@code float} and {@code double} fields are compared either
+     *  based on their bit patterns, or with the
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+     *  from the options.<br>
+     *  <br>If the
+     *  {@linkplain ReflectionOptions#withDeepComparison(boolean) deep comparison}
+     *  is switched on, referenced objects are compared reflectively, too, down
+     *  to the configured
+     *  {@linkplain ReflectionOptions#withMaxDepth(int) maximum depth};
+     *  this is safe for cyclic object graphs.
+     *
+     *  @param  lhs <code>this</code> object.
+     *  @param  rhs The other object
+     *  @param  options The options for the comparison.
+     *  @return {@code true} if the two objects have tested equals,
+     *      {@code false} otherwise.
+     *
+     *  @see ReflectionOptions#defaults()
+     *
+     *  @since 0.2.0
+     */
+    @SuppressWarnings( "BooleanMethodNameMustStartWithQuestion" )
+    @API( status = STABLE, since = "0.2.0" )
+    public static final boolean reflectionEquals( final Object lhs, final Object rhs, final ReflectionOptions options )
+    {
+        return ReflectiveComparison.areEqual( lhs, rhs, requireNonNullArgument( options, "options" ) );
+    }   //  reflectionEquals()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object)}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object )
+    {
+        return reflectionHashCode( object, false, null, null );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, Collection)}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  excludeFields   A
+     *      {@link Collection}
+     *      of String field names to exclude from the hash code.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final Collection<String> excludeFields )
+    {
+        return reflectionHashCode( object, requireNonNullArgument( excludeFields, "excludeFields" ).toArray( EMPTY_String_ARRAY ) );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, String[])}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  excludeFields   An array of String field names to exclude from
+     *      the hash code; may be {@code null}.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final String [] excludeFields )
+    {
+        return reflectionHashCode( object, false, null, excludeFields );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, boolean)}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  testTransients  {@code true} whether to include transient
+     *      fields, {@code false} otherwise.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final boolean testTransients )
+    {
+        return reflectionHashCode( object, testTransients, null, null );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, boolean, Class)}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  testTransients  {@code true} whether to include transient
+     *      fields, {@code false} otherwise.
+     *  @param  reflectUpToClass    The superclass to reflect up to
+     *      (inclusive), may be {@code null}
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final boolean testTransients, final Class<?> reflectUpToClass )
+    {
+        return reflectionHashCode( object, testTransients, reflectUpToClass, null );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, boolean, Class, String[])}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  testTransients  {@code true} whether to include transient
+     *      fields, {@code false} otherwise.
+     *  @param  reflectUpToClass    The superclass to reflect up to
+     *      (inclusive), may be {@code null}
+     *  @param  excludeFields   An array of String field names to exclude from
+     *      the hash code; may be {@code null}.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final boolean testTransients, final Class<?> reflectUpToClass, final String [] excludeFields )
+    {
+        return reflectionHashCode( object, ReflectionOptions.of( testTransients, reflectUpToClass, excludeFields ) );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Uses reflection to calculate a hash code for the given object.<br>
+     *  <br>When a
+     *  {@linkplain ReflectionOptions#withTolerance(double) tolerance}
+     *  is set, {@code float} and {@code double} fields do not contribute to
+     *  the hash code. For the
+     *  {@linkplain ReflectionOptions#withDeepComparison(boolean) deep comparison},
+     *  only the objects down to the third level below the given object
+     *  contribute to the hash code.<br>
+     *  <br>The result is consistent with
+     *  {@link #reflectionEquals(Object, Object, ReflectionOptions)}:
+     *  two objects that are equal according to that method will have the same
+     *  hash code. This allows to use the hash code for hash based structures
+     *  of objects that do not implement {@code equals()} and
+     *  {@code hashCode()} themselves.<br>
+     *  <br>The same cached field metadata as for the comparison is used.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  options The options for the hash code.
+     *  @return The hash code; 0 if the object is {@code null}.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final int reflectionHashCode( final Object object, final ReflectionOptions options )
+    {
+        return ReflectiveHashCode.hashCode( object, requireNonNullArgument( options, "options" ) );
+    }   //  reflectionHashCode()
+
+    /**
+     *  Returns a String representation of the given object that shows the
+     *  values of its fields, in the form
+     *  {@code Name[field1=value1, field2=value2]}, using the default
+     *  {@linkplain ReflectionOptions reflection options}
+     *  and the default
+     *  {@linkplain ToStringOptions options for the conversion};
+     *  see
+     *  {@link #reflectionToString(Object, Appendable, ReflectionOptions, ToStringOptions)}
+     *  for the details.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @return The String representation.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String reflectionToString( final Object object )
+    {
+        return reflectionToString( object, ReflectionOptions.defaults(), ToStringOptions.defaults() );
+    }   //  reflectionToString()
+
+    /**
+     *  Writes a String representation of the given object that shows the
+     *  values of its fields, in the form
+     *  {@code Name[field1=value1, field2=value2]}, to the given target.<br>
+     *  <br>The fields are taken from the same cached metadata that is used
+     *  by
+     *  {@link #reflectionEquals(Object, Object, ReflectionOptions)},
+     *  and they are selected by the same rules: transient fields, the
+     *  superclass to reflect up to, and the excluded fields are taken from
+     *  the given reflection options, while the other settings from these are
+     *  ignored. The walk along the class hierarchy stops at the first
+     *  superclass that is not open for deep reflection.<br>
+     *  <br>The values of the fields are converted as by
+     *  {@link #toString(Object, Appendable, ToStringOptions)},
+     *  with the limits for the number of elements and for the depth from the
+     *  given options; in addition, referenced objects whose class does not
+     *  override
+     *  {@link Object#toString()}
+     *  are shown with the values of their fields, too, instead of something
+     *  like {@code Foo@1a2b3c}. Objects that refer to themselves, directly or
+     *  indirectly, are detected by their identity, and the repeated
+     *  reference is shown as {@code Name[...]}.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  target  The target for the String representation.
+     *  @param  reflectionOptions   The options that select the fields.
+     *  @param  toStringOptions The options for the conversion.
+     *  @return The target.
+     *  @throws IOException Writing to the target failed.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Appendable reflectionToString( final Object object, final Appendable target, final ReflectionOptions reflectionOptions, final ToStringOptions toStringOptions ) throws IOException
+    {
+        new BoundedToString( requireNonNullArgument( target, "target" ), requireNonNullArgument( toStringOptions, "toStringOptions" ), requireNonNullArgument( reflectionOptions, "reflectionOptions" ) ).append( object );
+
+        //---* Done *----------------------------------------------------------
+        return target;
+    }   //  reflectionToString()
+
+    /**
+     *  Returns a String representation of the given object that shows the
+     *  values of its fields; see
+     *  {@link #reflectionToString(Object, Appendable, ReflectionOptions, ToStringOptions)}
+     *  for the details.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  reflectionOptions   The options that select the fields.
+     *  @param  toStringOptions The options for the conversion.
+     *  @return The String representation.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String reflectionToString( final Object object, final ReflectionOptions reflectionOptions, final ToStringOptions toStringOptions )
+    {
+        final var buffer = new StringBuilder();
+        try
+        {
+            reflectionToString( object, buffer, reflectionOptions, toStringOptions );
+        }
+        catch( final IOException e )
+        {
+            //---* A StringBuilder does not throw an IOException *------------
+            throw new InternalError( "Unexpected IOException", e );
         }
+        final var retValue = buffer.toString();
 
         //---* Done *----------------------------------------------------------
         return retValue;
-    }   //  reflectionEquals()
+    }   //  reflectionToString()
 
     /**
      *  Checks if the given value {@code a} is {@code null} and throws
@@ -602,7 +1547,13 @@ public final class TestUtils
      *  is used to determine if the stream has elements. Using
      *  {@link java.util.stream.Stream#count() count()}
      *  may have negative impact on performance if the argument has a large
-     *  amount of elements.
+     *  amount of elements. Note that this consumes the stream; use
+     *  {@link #requireNotEmptyStreamArgument(Stream, String)}
+     *  to get a stream back that can still be used.
+     *  <br>Further types can be supported through a
+     *  {@link TypeSupport}
+     *  provider. The check for a type is determined only once, so the
+     *  overhead for the dispatch is small, even in hot loops.
      *
      *  @param  <T> The type of the argument to check.
      *  @param  a   The argument to check; may be {@code null}.
@@ -613,122 +1564,198 @@ public final class TestUtils
      *      {@code null}.
      *  @throws IllegalArgumentException   {@code name} or {@code a} is empty.
      */
-    @SuppressWarnings( {"ProhibitedExceptionThrown", "OverlyComplexMethod"} )
     @API( status = STABLE, since = "0.0.5" )
     public static final <T> T requireNotEmptyArgument( final T a, final String name )
     {
-        if( isNull( name ) )
+        if( TypeDispatch.isEmpty( requireNonNullArgument( a, name ) ) )
         {
-            throw new NullPointerException( "name is null" );
-        }
-        else if( name.isEmpty() )
-        {
-            throw new IllegalArgumentException( "name is empty" );
+            throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
         }
 
-        //---* Check for null *------------------------------------------------
-        if( isNull( a ) )
-        {
-            throw new NullPointerException( format( "Argument '%s' is null", name ) );
-        }
+        //---* Done *----------------------------------------------------------
+        return a;
+    }   //  requireNotEmptyArgument()
 
-        //---* Check the type *------------------------------------------------
-        //noinspection IfStatementWithTooManyBranches
-        if( a instanceof final CharSequence charSequence )
-        {
-            if( charSequence.isEmpty() )
-            {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
-        }
-        else if( a.getClass().isArray() )
+    /**
+     *  Checks if the given argument {@code a} is {@code null} or empty
+     *  and throws a
+     *  {@link NullPointerException}
+     *  if it is {@code null}, or a
+     *  {@link IllegalArgumentException}
+     *  if it is empty.<br>
+     *  <br>A
+     *  {@link Collection}
+     *  is checked with
+     *  {@link Collection#isEmpty()},
+     *  and it is returned as it is. For any other
+     *  {@link Iterable},
+     *  an iterator is requested, and checked with
+     *  {@link Iterator#hasNext()};
+     *  the returned replacement hands out exactly that iterator on the first
+     *  call to its {@code iterator()} method, and delegates to the argument
+     *  afterwards. This allows to check an {@code Iterable} that can be
+     *  iterated only once, like
+     *  {@link java.nio.file.DirectoryStream},
+     *  without losing it.
+     *
+     *  @param  <T> The type of the elements.
+     *  @param  a   The argument to check; may be {@code null}.
+     *  @param  name    The name of the argument; this is used for the error
+     *      message.
+     *  @return The argument, or its replacement.
+     *  @throws NullPointerException   {@code name} or {@code a} is
+     *      {@code null}.
+     *  @throws IllegalArgumentException   {@code name} or {@code a} is empty.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final <T> Iterable<T> requireNotEmptyIterableArgument( final Iterable<T> a, final String name )
+    {
+        requireNonNullArgument( a, name );
+
+        final Iterable<T> retValue;
+        if( a instanceof final Collection<T> collection )
         {
-            if( Array.getLength( a ) == 0 )
-            {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
+            if( collection.isEmpty() ) throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
+            retValue = collection;
         }
-        else if( a instanceof final Collection<?> collection )
+        else
         {
-            if( collection.isEmpty() )
+            final var iterator = a.iterator();
+            if( !iterator.hasNext() ) throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
+            final var pending = new AtomicReference<>( iterator );
+            retValue = () ->
             {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
+                final var checked = pending.getAndSet( null );
+                return nonNull( checked ) ? checked : a.iterator();
+            };
         }
-        else if( a instanceof final Map<?,?> map )
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  requireNotEmptyIterableArgument()
+
+    /**
+     *  Checks if the given argument {@code a} is {@code null} or empty
+     *  and throws a
+     *  {@link NullPointerException}
+     *  if it is {@code null}, or a
+     *  {@link IllegalArgumentException}
+     *  if it has no more elements, as determined by
+     *  {@link Iterator#hasNext()}.
+     *  No element is taken from the iterator, so the argument itself is
+     *  returned.
+     *
+     *  @param  <T> The type of the elements.
+     *  @param  a   The argument to check; may be {@code null}.
+     *  @param  name    The name of the argument; this is used for the error
+     *      message.
+     *  @return The argument.
+     *  @throws NullPointerException   {@code name} or {@code a} is
+     *      {@code null}.
+     *  @throws IllegalArgumentException   {@code name} or {@code a} is empty.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final <T> Iterator<T> requireNotEmptyIteratorArgument( final Iterator<T> a, final String name )
+    {
+        requireNonNullArgument( a, name );
+        if( !a.hasNext() ) throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
+
+        //---* Done *----------------------------------------------------------
+        return a;
+    }   //  requireNotEmptyIteratorArgument()
+
+    /**
+     *  Checks if the given argument {@code a} is {@code null} or empty
+     *  and throws a
+     *  {@link NullPointerException}
+     *  if it is {@code null}, or a
+     *  {@link IllegalArgumentException}
+     *  if it is empty.<br>
+     *  <br>Unlike
+     *  {@link #requireNotEmptyArgument(Object, String)},
+     *  this method does not make the stream unusable: it takes the first
+     *  element from the
+     *  {@linkplain Stream#spliterator() spliterator}
+     *  of the stream, and returns a replacement stream that replays this
+     *  element and then continues lazily with the remaining elements. The
+     *  replacement keeps the characteristics of the argument, like being
+     *  sized or ordered; it is parallel if the argument is parallel, and
+     *  closing it closes the argument. So even large, lazily evaluated
+     *  pipelines can be checked without buffering them; only the pipeline
+     *  stages up to the first element are evaluated by the check.
+     *
+     *  @param  <T> The type of the elements.
+     *  @param  a   The argument to check; may be {@code null}.
+     *  @param  name    The name of the argument; this is used for the error
+     *      message.
+     *  @return The replacement for the argument; the argument itself must
+     *      not be used any more.
+     *  @throws NullPointerException   {@code name} or {@code a} is
+     *      {@code null}.
+     *  @throws IllegalArgumentException   {@code name} or {@code a} is empty;
+     *      in the latter case, {@code a} is closed.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final <T> Stream<T> requireNotEmptyStreamArgument( final Stream<T> a, final String name )
+    {
+        requireNonNullArgument( a, name );
+
+        /*
+         * If the check fails, the caller does not get a stream that it could
+         * close, so the argument is closed here; it may hold resources, like
+         * the stream from Files.lines().
+         */
+        final var spliterator = a.spliterator();
+        final var head = new AtomicReference<T>();
+        final boolean hasElement;
+        try
         {
-            if( map.isEmpty() )
-            {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
+            hasElement = spliterator.tryAdvance( head::set );
         }
-        else if( a instanceof final Enumeration<?> enumeration )
+        catch( final RuntimeException | Error e )
         {
-            if( !enumeration.hasMoreElements() )
-            {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
+            a.close();
+            throw e;
         }
-        else if( a instanceof final Stream<?> stream )
+        if( !hasElement )
         {
-            final var any = stream.findAny();
-            if( any.isEmpty() )
-            {
-                throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
-            }
+            a.close();
+            throw new IllegalArgumentException( format( "Argument '%s' is empty", name ) );
         }
+        final var retValue = StreamSupport.stream( new ReplayingSpliterator<>( head.get(), spliterator ), a.isParallel() ).onClose( a::close );
 
         //---* Done *----------------------------------------------------------
-        return a;
-    }   //  requireNotEmptyArgument()
+        return retValue;
+    }   //  requireNotEmptyStreamArgument()
 
     /**
-     *  Tests the fields on the given instances on equal.
+     *  Sets the engine that is used for the reflective comparison of objects.
+     *  The setting is global; it is meant to compare the engines against each
+     *  other, not to be changed while comparisons are running.
      *
-     *  @param  lhs The left-hand object.
-     *  @param  rhs The right-hand object.
-     *  @param  testClass   The class that defines the details.
-     *  @param  useTransients   {@code true} if to test transient fields
-     *      also, {@code false} otherwise.
-     *  @param  excludeFields   Set of field names to exclude from testing.
-     *  @return {@code true} if all relevant fields are equal,
-     *      {@code false} otherwise.
+     *  @param  engine  The engine.
+     *  @return The engine that was used before.
+     *
+     *  @see #reflectionEquals(Object, Object, boolean, Class, String[])
+     *  @see #PROPERTY_REFLECTION_ENGINE
+     *
+     *  @since 0.2.0
      */
-    @SuppressWarnings( "OverlyComplexBooleanExpression" )
-    private static boolean testReflective( final Object lhs, final Object rhs, final Class<?> testClass, final boolean useTransients, final Collection<String> excludeFields )
+    @API( status = EXPERIMENTAL, since = "0.2.0" )
+    public static final ReflectionEngine setReflectionEngine( final ReflectionEngine engine )
     {
-        final var fields = testClass.getDeclaredFields();
-        setAccessible( fields, true );
-        var retValue = true;
-        for( var i = 0; (i < fields.length) && retValue; ++i )
-        {
-            final var field = fields [i];
-            final var modifiers = field.getModifiers();
-            if( !excludeFields.contains( field.getName() )
-                && (field.getName().indexOf( '$' ) == -1)
-                && (useTransients || !isTransient( modifiers ))
-                && (!isStatic( modifiers )) )
-            {
-                try
-                {
-                    retValue = deepEquals( field.get( lhs ), field.get( rhs ) );
-                }
-                catch( final IllegalAccessException e )
-                {
-                    /*
-                     * This can't happen. We would get a SecurityException
-                     * instead. But we prefer to throw a runtime exception in
-                     * case the impossible happens, instead of silently
-                     * swallowing it.
-                     */
-                    throw new InternalError( "Unexpected IllegalAccessException", e );
-                }
-            }
-        }
+        final var retValue = m_ReflectionEngine;
+        m_ReflectionEngine = requireNonNullArgument( engine, "engine" );
 
         //---* Done *----------------------------------------------------------
         return retValue;
-    }   //  testReflective()
+    }   //  setReflectionEngine()
 
     /**
      *  Converts the given argument {@code object} into a
@@ -742,6 +1769,12 @@ public final class TestUtils
      *  {@link java.util.Arrays}
      *  (this distinguishes this implementation from
      *  {link java.util.Objects#toString(Object, String)}).
+     *  Records that use the implicit
+     *  {@link Record#toString() toString()}
+     *  method are shown with the names and values of their components, where
+     *  the values are converted in the same way, so arrays in records show
+     *  their contents, too; records with their own {@code toString()} method
+     *  are converted by calling that.
      *  Values of type
      *  {@link java.util.Date} or
      *  {@link java.util.Calendar}
@@ -781,10 +1814,19 @@ public final class TestUtils
      *  {@link java.util.Arrays}
      *  (this distinguishes this implementation from
      *  {link java.util.Objects#toString(Object, String)}).
+     *  Records that use the implicit
+     *  {@link Record#toString() toString()}
+     *  method are shown with the names and values of their components, where
+     *  the values are converted in the same way, so arrays in records show
+     *  their contents, too; records with their own {@code toString()} method
+     *  are converted by calling that.
      *  Values of type
      *  {@link java.util.Date} or
      *  {@link java.util.Calendar}
      *  will be translated based on the default locale - whatever that is.
+     *  Types with a renderer from a
+     *  {@link TypeSupport}
+     *  provider are converted by that renderer.
      *
      *  @param  object  The object; may be {@code null}.
      *  @param  nullDefault The text that should be returned if {@code object}
@@ -803,59 +1845,105 @@ public final class TestUtils
      *  @see java.util.Arrays#deepToString(Object[])
      *  @see java.util.Locale#getDefault()
      */
-    @SuppressWarnings( {"IfStatementWithTooManyBranches", "ChainOfInstanceofChecks", "OverlyComplexMethod"} )
     @API( status = STABLE, since = "0.0.5" )
     public static final String toString( final Object object, final String nullDefault )
     {
         var retValue = requireNonNullArgument( nullDefault, "nullDefault" );
-        if( nonNull( object ) )
+        if( nonNull( object ) ) retValue = TypeDispatch.render( object );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+
+    /**
+     *  Writes a bounded String representation of the given object to the
+     *  given target.<br>
+     *  <br>Arrays, collections, maps, and records that use the implicit
+     *  {@link Record#toString() toString()}
+     *  method are expanded element by element, and nested ones recursively,
+     *  down to the
+     *  {@linkplain ToStringOptions#maxDepth() maximum depth};
+     *  for each of them, at most the
+     *  {@linkplain ToStringOptions#maxElements() maximum number of elements}
+     *  is shown, optionally including
+     *  {@linkplain ToStringOptions#withHeadAndTail(int, int) some elements from its tail},
+     *  while the remaining ones are replaced by a marker like
+     *  {@code ... 49,999,990 more}. All other objects are converted by
+     *  calling their
+     *  {@link Object#toString() toString()}
+     *  method.<br>
+     *  <br>The text is written to the target while the object is traversed,
+     *  and the elements that are not shown are not converted at all, so even
+     *  for arrays with hundreds of millions of elements, the memory and the
+     *  time that are required for the conversion depend only on the options.
+     *  This makes this method suitable to build failure messages for huge
+     *  data.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  target  The target for the String representation.
+     *  @param  options The options for the conversion.
+     *  @return The target.
+     *  @throws IOException Writing to the target failed.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final Appendable toString( final Object object, final Appendable target, final ToStringOptions options ) throws IOException
+    {
+        new BoundedToString( requireNonNullArgument( target, "target" ), requireNonNullArgument( options, "options" ) ).append( object );
+
+        //---* Done *----------------------------------------------------------
+        return target;
+    }   //  toString()
+
+    /**
+     *  Appends a bounded String representation of the given object to the
+     *  given
+     *  {@link StringBuilder};
+     *  see
+     *  {@link #toString(Object, Appendable, ToStringOptions)}
+     *  for the details.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  target  The target for the String representation.
+     *  @param  options The options for the conversion.
+     *  @return The target.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final StringBuilder toString( final Object object, final StringBuilder target, final ToStringOptions options )
+    {
+        try
         {
-            final var objectClass = object.getClass();
-            if( objectClass.isArray() )
-            {
-                if( objectClass == byte [].class )
-                {
-                    retValue = Arrays.toString( (byte []) object );
-                }
-                else if( objectClass == short [].class )
-                {
-                    retValue = Arrays.toString( (short []) object );
-                }
-                else if( objectClass == int [].class )
-                {
-                    retValue = Arrays.toString( (int []) object );
-                }
-                else if( objectClass == long [].class )
-                {
-                    retValue = Arrays.toString( (long []) object );
-                }
-                else if( objectClass == char [].class )
-                {
-                    retValue = Arrays.toString( (char []) object );
-                }
-                else if( objectClass == float [].class )
-                {
-                    retValue = Arrays.toString( (float []) object );
-                }
-                else if( objectClass == double [].class )
-                {
-                    retValue = Arrays.toString( (double []) object );
-                }
-                else if( objectClass == boolean [].class )
-                {
-                    retValue = Arrays.toString( (boolean []) object );
-                }
-                else
-                {
-                    retValue = deepToString( (Object []) object );
-                }
-            }
-            else
-            {
-                retValue = object.toString();
-            }
+            toString( object, (Appendable) target, options );
+        }
+        catch( final IOException e )
+        {
+            //---* A StringBuilder does not throw an IOException *------------
+            throw new InternalError( "Unexpected IOException", e );
         }
 
+        //---* Done *----------------------------------------------------------
+        return target;
+    }   //  toString()
+
+    /**
+     *  Returns a bounded String representation of the given object; see
+     *  {@link #toString(Object, Appendable, ToStringOptions)}
+     *  for the details.
+     *
+     *  @param  object  The object; may be {@code null}.
+     *  @param  options The options for the conversion.
+     *  @return The String representation.
+     *
+     *  @since 0.2.0
+     */
+    @API( status = STABLE, since = "0.2.0" )
+    public static final String toString( final Object object, final ToStringOptions options )
+    {
+        final var retValue = toString( object, new StringBuilder(), options ).toString();
+
         //---* Done *----------------------------------------------------------
         return retValue;
     }   //  toString()
@@ -0,0 +1,299 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static org.apiguardian.api.API.Status.STABLE;
+import static org.tquadrat.foundation.testutil.TestUtils.NULL_STRING;
+import static org.tquadrat.foundation.testutil.TestUtils.requireNonNullArgument;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The options for the bounded conversion of objects into Strings with
+ *  {@link TestUtils#toString(Object, ToStringOptions)}
+ *  and its siblings.<br>
+ *  <br>Instances of this class are immutable; the {@code with…()} methods
+ *  return a modified copy of the instance they were called on. Start with
+ *  {@link #defaults()}
+ *  to get the default settings:
+ *  <ul>
+ *  <li>at most
+ *  {@value #DEFAULT_MAX_ELEMENTS}
+ *  elements are shown for each array, collection or map, all taken from
+ *  its head,</li>
+ *  <li>nested arrays, collections, maps and records are expanded down to the
+ *  depth
+ *  {@value #DEFAULT_MAX_DEPTH},</li>
+ *  <li>{@code null} is shown as
+ *  {@value TestUtils#NULL_STRING}.</li>
+ *  </ul>
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public final class ToStringOptions
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The default for the maximum depth: {@value}.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 10;
+
+    /**
+     *  The default for the maximum number of elements that are shown for an
+     *  array, a collection or a map: {@value}.
+     */
+    public static final int DEFAULT_MAX_ELEMENTS = 100;
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The maximum depth up to which nested containers are expanded.
+     */
+    private final int m_MaxDepth;
+
+    /**
+     *  The maximum number of elements that are shown for an array, a
+     *  collection or a map.
+     */
+    private final int m_MaxElements;
+
+    /**
+     *  The text that is shown for {@code null}.
+     */
+    private final String m_NullDefault;
+
+    /**
+     *  The number of elements that are taken from the tail of an array, a
+     *  collection or a map.
+     */
+    private final int m_TailElements;
+
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The default options.
+     */
+    private static final ToStringOptions m_Defaults = new ToStringOptions();
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code ToStringOptions} instance with the default
+     *  settings.
+     */
+    private ToStringOptions()
+    {
+        this( DEFAULT_MAX_DEPTH, DEFAULT_MAX_ELEMENTS, NULL_STRING, 0 );
+    }   //  ToStringOptions()
+
+    /**
+     *  Creates a new {@code ToStringOptions} instance with the given
+     *  settings. The arguments are not checked; this is done by the
+     *  {@code with…()} methods.
+     *
+     *  @param  maxDepth    The maximum depth up to which nested containers
+     *      are expanded.
+     *  @param  maxElements The maximum number of elements that are shown
+     *      for an array, a collection or a map.
+     *  @param  nullDefault The text that is shown for {@code null}.
+     *  @param  tailElements    The number of elements that are taken from
+     *      the tail; it must not exceed {@code maxElements}.
+     */
+    private ToStringOptions( final int maxDepth, final int maxElements, final String nullDefault, final int tailElements )
+    {
+        m_MaxDepth = maxDepth;
+        m_MaxElements = maxElements;
+        m_NullDefault = nullDefault;
+        m_TailElements = tailElements;
+    }   //  ToStringOptions()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the default options.
+     *
+     *  @return The default options.
+     */
+    public static final ToStringOptions defaults() { return m_Defaults; }
+
+    /**
+     *  Returns the maximum depth up to which nested arrays, collections, maps
+     *  and records are expanded.
+     *
+     *  @return The maximum depth.
+     *
+     *  @see #withMaxDepth(int)
+     */
+    public final int maxDepth() { return m_MaxDepth; }
+
+    /**
+     *  Returns the maximum number of elements that are shown for an array, a
+     *  collection or a map.
+     *
+     *  @return The maximum number of elements.
+     *
+     *  @see #withMaxElements(int)
+     */
+    public final int maxElements() { return m_MaxElements; }
+
+    /**
+     *  Returns the text that is shown for {@code null}.
+     *
+     *  @return The text.
+     */
+    public final String nullDefault() { return m_NullDefault; }
+
+    /**
+     *  Returns the number of elements that are shown from the tail of an
+     *  array, a collection or a map, when not all of its elements are shown.
+     *  This number is included in the
+     *  {@linkplain #maxElements() maximum number of elements}.
+     *
+     *  @return The number of elements from the tail.
+     *
+     *  @see #withHeadAndTail(int, int)
+     */
+    public final int tailElements() { return m_TailElements; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public final String toString()
+    {
+        final var retValue = format( "%s[maxElements=%d, tailElements=%d, maxDepth=%d, nullDefault=%s]", getClass().getSimpleName(), m_MaxElements, m_TailElements, m_MaxDepth, m_NullDefault );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  toString()
+
+    /**
+     *  Returns a copy of these options that show the given number of elements
+     *  from the head and from the tail of an array, a collection or a map.
+     *  The elements in between are replaced by a marker like
+     *  {@code ... 49,999,990 more}.<br>
+     *  <br>For arrays, and for lists that implement
+     *  {@link java.util.RandomAccess},
+     *  the elements from the tail are accessed directly; for other
+     *  collections and for maps, the elements in between are skipped by
+     *  iterating over them, without converting them.
+     *
+     *  @param  head    The number of elements from the head.
+     *  @param  tail    The number of elements from the tail.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    One of the numbers is negative, or
+     *      their sum exceeds
+     *      {@link Integer#MAX_VALUE}.
+     */
+    public final ToStringOptions withHeadAndTail( final int head, final int tail )
+    {
+        if( (head < 0) || (tail < 0) || ((long) head + tail > Integer.MAX_VALUE) )
+        {
+            throw new IllegalArgumentException( format( "Invalid head and tail: %d, %d", head, tail ) );
+        }
+        final var retValue = new ToStringOptions( m_MaxDepth, head + tail, m_NullDefault, tail );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withHeadAndTail()
+
+    /**
+     *  Returns a copy of these options with the given maximum depth up to
+     *  which nested arrays, collections, maps and records are expanded. The
+     *  converted object itself has the depth 0, its elements or components
+     *  have the depth 1, and so on. Containers that are located deeper are
+     *  shown with their size only, like {@code [... 42 more]}. The default
+     *  is
+     *  {@value #DEFAULT_MAX_DEPTH}.
+     *
+     *  @param  maxDepth    The maximum depth.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The maximum depth is negative.
+     */
+    public final ToStringOptions withMaxDepth( final int maxDepth )
+    {
+        if( maxDepth < 0 )
+        {
+            throw new IllegalArgumentException( format( "Invalid maximum depth: %d", maxDepth ) );
+        }
+        final var retValue = new ToStringOptions( maxDepth, m_MaxElements, m_NullDefault, m_TailElements );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withMaxDepth()
+
+    /**
+     *  Returns a copy of these options with the given maximum number of
+     *  elements that are shown for an array, a collection or a map; the
+     *  remaining elements are replaced by a marker like
+     *  {@code ... 49,999,990 more}. The default is
+     *  {@value #DEFAULT_MAX_ELEMENTS}.<br>
+     *  <br>The number of elements from the tail is kept, as long as it does
+     *  not exceed the new maximum.
+     *
+     *  @param  maxElements The maximum number of elements.
+     *  @return The new options.
+     *  @throws IllegalArgumentException    The number is negative.
+     *
+     *  @see #withHeadAndTail(int, int)
+     */
+    public final ToStringOptions withMaxElements( final int maxElements )
+    {
+        if( maxElements < 0 )
+        {
+            throw new IllegalArgumentException( format( "Invalid maximum number of elements: %d", maxElements ) );
+        }
+        final var retValue = new ToStringOptions( m_MaxDepth, maxElements, m_NullDefault, Math.min( m_TailElements, maxElements ) );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withMaxElements()
+
+    /**
+     *  Returns a copy of these options with the given text for
+     *  {@code null}.
+     *
+     *  @param  nullDefault The text that is shown for {@code null}.
+     *  @return The new options.
+     */
+    public final ToStringOptions withNullDefault( final String nullDefault )
+    {
+        final var retValue = new ToStringOptions( m_MaxDepth, m_MaxElements, requireNonNullArgument( nullDefault, "nullDefault" ), m_TailElements );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  withNullDefault()
+}
+//  class ToStringOptions
+
+/*
+ *  End of File
+ */
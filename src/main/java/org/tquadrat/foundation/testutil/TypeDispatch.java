@@ -0,0 +1,299 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ *  The type dispatch for
+ *  {@link TestUtils#requireNotEmptyArgument(Object, String)}
+ *  and for
+ *  {@link TestUtils#toString(Object, String)}.<br>
+ *  <br>For each runtime class, the emptiness check and the renderer are
+ *  determined once, and cached in a
+ *  {@link ClassValue};
+ *  afterwards, the dispatch for an object costs not much more than a single
+ *  type check, instead of a chain of {@code instanceof} tests. The checks
+ *  and renderers from the
+ *  {@link TypeSupport}
+ *  providers take precedence over the built-in ones.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class TypeDispatch
+{
+        /*------------------------*\
+    ====** Static Initialisations **===========================================
+        \*------------------------*/
+    /**
+     *  The providers for additional types.
+     */
+    private static final List<TypeSupport<?>> m_Providers = ServiceLoader.load( TypeSupport.class )
+        .stream()
+        .<TypeSupport<?>>map( ServiceLoader.Provider::get )
+        .toList();
+
+    /**
+     *  The cache for the renderers from the providers; {@code null} is
+     *  represented by an empty
+     *  {@link Optional}.
+     */
+    private static final ClassValue<Optional<Function<Object,String>>> m_ProvidedRenderers = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final Optional<Function<Object,String>> computeValue( final Class<?> type ) { return findProvided( type, TypeSupport::renderer ); }
+    };
+
+    /**
+     *  The cache for the emptiness checks.
+     */
+    private static final ClassValue<Predicate<Object>> m_EmptinessChecks = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final Predicate<Object> computeValue( final Class<?> type ) { return createEmptinessCheck( type ); }
+    };
+
+    /**
+     *  The cache for the renderers.
+     */
+    private static final ClassValue<Function<Object,String>> m_Renderers = new ClassValue<>()
+    {
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        protected final Function<Object,String> computeValue( final Class<?> type ) { return createRenderer( type ); }
+    };
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private TypeDispatch() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Creates the emptiness check for the given class.
+     *
+     *  @param  type    The class.
+     *  @return The check.
+     */
+    @SuppressWarnings( {"IfStatementWithTooManyBranches", "OverlyComplexMethod"} )
+    private static final Predicate<Object> createEmptinessCheck( final Class<?> type )
+    {
+        final Predicate<Object> retValue;
+        final Optional<Predicate<Object>> provided = findProvided( type, TypeSupport::emptinessCheck );
+        if( provided.isPresent() )
+        {
+            retValue = provided.get();
+        }
+        else if( CharSequence.class.isAssignableFrom( type ) )
+        {
+            retValue = object -> ((CharSequence) object).isEmpty();
+        }
+        else if( type.isArray() )
+        {
+            retValue = object -> Array.getLength( object ) == 0;
+        }
+        else if( Collection.class.isAssignableFrom( type ) )
+        {
+            retValue = object -> ((Collection<?>) object).isEmpty();
+        }
+        else if( Map.class.isAssignableFrom( type ) )
+        {
+            retValue = object -> ((Map<?,?>) object).isEmpty();
+        }
+        else if( Enumeration.class.isAssignableFrom( type ) )
+        {
+            retValue = object -> !((Enumeration<?>) object).hasMoreElements();
+        }
+        else if( Stream.class.isAssignableFrom( type ) )
+        {
+            retValue = object -> ((Stream<?>) object).findAny().isEmpty();
+        }
+        else
+        {
+            retValue = object -> false;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  createEmptinessCheck()
+
+    /**
+     *  Creates the renderer for the given class.
+     *
+     *  @param  type    The class.
+     *  @return The renderer.
+     */
+    @SuppressWarnings( {"IfStatementWithTooManyBranches", "OverlyComplexMethod"} )
+    private static final Function<Object,String> createRenderer( final Class<?> type )
+    {
+        final Function<Object,String> retValue;
+        final var provided = m_ProvidedRenderers.get( type );
+        if( provided.isPresent() )
+        {
+            retValue = provided.get();
+        }
+        else if( type == byte [].class )
+        {
+            retValue = object -> Arrays.toString( (byte []) object );
+        }
+        else if( type == short [].class )
+        {
+            retValue = object -> Arrays.toString( (short []) object );
+        }
+        else if( type == int [].class )
+        {
+            retValue = object -> Arrays.toString( (int []) object );
+        }
+        else if( type == long [].class )
+        {
+            retValue = object -> Arrays.toString( (long []) object );
+        }
+        else if( type == char [].class )
+        {
+            retValue = object -> Arrays.toString( (char []) object );
+        }
+        else if( type == float [].class )
+        {
+            retValue = object -> Arrays.toString( (float []) object );
+        }
+        else if( type == double [].class )
+        {
+            retValue = object -> Arrays.toString( (double []) object );
+        }
+        else if( type == boolean [].class )
+        {
+            retValue = object -> Arrays.toString( (boolean []) object );
+        }
+        else if( type.isArray() )
+        {
+            retValue = object -> Arrays.deepToString( (Object []) object );
+        }
+        else if( type.isRecord() && nonNull( ClassMetadata.forClass( type ).components() ) )
+        {
+            final var components = ClassMetadata.forClass( type ).components();
+            retValue = object -> TestUtils.hasImplicitToString( object, components ) ? TestUtils.recordToString( object, components ) : object.toString();
+        }
+        else
+        {
+            retValue = Object::toString;
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  createRenderer()
+
+    /**
+     *  Searches the providers for the most specific one that supports the
+     *  given class, and that provides the requested function.
+     *
+     *  @param  <R> The type of the requested function.
+     *  @param  type    The class.
+     *  @param  extractor   Retrieves the requested function from a provider.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the function; empty if no provider provides one.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static final <R> Optional<R> findProvided( final Class<?> type, final Function<TypeSupport<?>,Optional<?>> extractor )
+    {
+        Class<?> bestType = null;
+        Object function = null;
+        for( final var provider : m_Providers )
+        {
+            final var candidateType = provider.type();
+            if( candidateType.isAssignableFrom( type )
+                && (isNull( bestType ) || ((bestType != candidateType) && bestType.isAssignableFrom( candidateType ))) )
+            {
+                final var candidate = extractor.apply( provider );
+                if( candidate.isPresent() )
+                {
+                    bestType = candidateType;
+                    function = candidate.get();
+                }
+            }
+        }
+        final var retValue = Optional.ofNullable( (R) function );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  findProvided()
+
+    /**
+     *  Checks whether the given object is empty.
+     *
+     *  @param  object  The object.
+     *  @return {@code true} if the object is empty, {@code false} if it is
+     *      not empty, or if there is no check for its type.
+     */
+    static final boolean isEmpty( final Object object ) { return m_EmptinessChecks.get( object.getClass() ).test( object ); }
+
+    /**
+     *  Returns the renderer from a
+     *  {@link TypeSupport}
+     *  provider for the given class.
+     *
+     *  @param  type    The class.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the renderer; empty if no provider provides one.
+     */
+    static final Optional<Function<Object,String>> providedRenderer( final Class<?> type ) { return m_ProvidedRenderers.get( type ); }
+
+    /**
+     *  Converts the given object into a String.
+     *
+     *  @param  object  The object.
+     *  @return The String representation.
+     */
+    static final String render( final Object object ) { return m_Renderers.get( object.getClass() ).apply( object ); }
+}
+//  class TypeDispatch
+
+/*
+ *  End of File
+ */
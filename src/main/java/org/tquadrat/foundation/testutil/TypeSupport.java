@@ -0,0 +1,114 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static org.apiguardian.api.API.Status.STABLE;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apiguardian.api.API;
+
+/**
+ *  The service provider interface for the support of additional types by
+ *  {@link TestUtils#requireNotEmptyArgument(Object, String)}
+ *  and by
+ *  {@link TestUtils#toString(Object)}
+ *  and its siblings.<br>
+ *  <br>Implementations are loaded once, through
+ *  {@link java.util.ServiceLoader},
+ *  so they have to be registered in a file
+ *  {@code META-INF/services/org.tquadrat.foundation.testutil.TypeSupport}
+ *  on the class path, and they need a public no-argument constructor.
+ *  A provider for
+ *  {@link java.util.BitSet}
+ *  may look like this:
+ *  <pre><code>public final class BitSetSupport implements TypeSupport&lt;BitSet&gt;
+ *  {
+ *      &#64;Override
+ *      public final Optional&lt;Predicate&lt;? super BitSet&gt;&gt; emptinessCheck() { return Optional.of( BitSet::isEmpty ); }
+ *
+ *      &#64;Override
+ *      public final Class&lt;BitSet&gt; type() { return BitSet.class; }
+ *  }</code></pre>
+ *  <p>For each runtime class, the check and the renderer are determined
+ *  only once, and then cached; so they cannot be changed later. When
+ *  several providers support a class, the one with the most specific
+ *  {@linkplain #type() type}
+ *  wins, and for the same type, the one that was loaded first. The checks
+ *  and the renderers from the providers take precedence over the built-in
+ *  ones.</p>
+ *
+ *  @param  <T> The supported type.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ *
+ *  @UMLGraph.link
+ */
+@API( status = STABLE, since = "0.2.0" )
+public interface TypeSupport<T>
+{
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the check whether an instance of the supported type is empty.
+     *  It will be used by
+     *  {@link TestUtils#requireNotEmptyArgument(Object, String)}
+     *  for the supported type and all its subtypes.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the check; empty if this provider does not provide a
+     *      check.
+     */
+    public default Optional<Predicate<? super T>> emptinessCheck() { return Optional.empty(); }
+
+    /**
+     *  Returns the function that converts an instance of the supported type
+     *  into a String. It will be used by
+     *  {@link TestUtils#toString(Object)}
+     *  and its siblings for the supported type and all its subtypes, instead
+     *  of the instance's own
+     *  {@link Object#toString() toString()}
+     *  method, and instead of the expansion of arrays, collections, maps and
+     *  records.
+     *
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the renderer; empty if this provider does not provide a
+     *      renderer.
+     */
+    public default Optional<Function<? super T,String>> renderer() { return Optional.empty(); }
+
+    /**
+     *  Returns the supported type. This can be a class or an interface.
+     *
+     *  @return The supported type.
+     */
+    public Class<T> type();
+}
+//  interface TypeSupport
+
+/*
+ *  End of File
+ */
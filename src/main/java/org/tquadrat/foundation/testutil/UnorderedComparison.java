@@ -0,0 +1,327 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.Integer.highestOneBit;
+import static java.lang.Integer.max;
+import static java.lang.Integer.min;
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ *  The implementation of the comparison of two collections without regard to
+ *  the order of their elements, as it is provided by
+ *  {@link TestUtils#compareIgnoringOrder(Collection, Collection, ReflectionOptions)}.<br>
+ *  <br>The elements on both sides are distributed to the buckets of a hash
+ *  table, based on their
+ *  {@linkplain TestUtils#reflectionHashCode(Object, ReflectionOptions) reflective hash code};
+ *  then each actual element is compared with
+ *  {@link TestUtils#reflectionEquals(Object, Object, ReflectionOptions)}
+ *  only to those expected elements from the same bucket that have the same
+ *  hash code and that were not yet matched by another actual element. The
+ *  hash table is built with a counting sort on plain {@code int} arrays, so no
+ *  objects are created per element.<br>
+ *  <br>Elements whose classes are not open for deep reflection, like
+ *  {@link String}
+ *  or
+ *  {@link Integer},
+ *  are compared with their own {@code equals()} and {@code hashCode()}
+ *  methods instead.<br>
+ *  <br>If the
+ *  {@linkplain ReflectionOptions#parallelism() parallelism}
+ *  is greater than 1 and one of the collections has at least
+ *  {@linkplain ReflectionOptions#parallelThreshold() threshold}
+ *  elements, the hash codes are calculated, and the buckets are matched,
+ *  concurrently.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+@SuppressWarnings( "UtilityClass" )
+final class UnorderedComparison
+{
+        /*---------------*\
+    ====** Inner Classes **====================================================
+        \*---------------*/
+    /**
+     *  The elements of one side, distributed to the buckets of the hash
+     *  table.
+     *
+     *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+     *  @version $Id$
+     *  @since 0.2.0
+     *
+     *  @param  start   The index of the first member of each bucket in
+     *      {@code members}; the array has one more entry than the table has
+     *      buckets, so the members of bucket {@code b} are located between
+     *      {@code start[b]} (inclusive) and {@code start[b + 1]} (exclusive).
+     *  @param  members The indexes of the elements, ordered by bucket.
+     */
+    private record Buckets( int [] start, int [] members ) {}
+
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The number of chunks per thread: {@value}.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     *  The maximum number of buckets: {@value}.
+     */
+    private static final int MAX_BUCKETS = 1 << 30;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  No instance allowed for this class.
+     */
+    private UnorderedComparison() { /* Just exists */ }
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Determines the bucket for the given hash code.
+     *
+     *  @param  hashCode    The hash code.
+     *  @param  mask    The mask for the number of buckets.
+     *  @return The index of the bucket.
+     */
+    private static final int bucket( final int hashCode, final int mask ) { return (hashCode ^ (hashCode >>> 16)) & mask; }
+
+    /**
+     *  Distributes the elements with the given hash codes to the buckets.
+     *
+     *  @param  hashCodes   The hash codes of the elements.
+     *  @param  mask    The mask for the number of buckets.
+     *  @return The buckets.
+     */
+    private static final Buckets buckets( final int [] hashCodes, final int mask )
+    {
+        final var start = new int [mask + 2];
+        for( final var hashCode : hashCodes ) ++start [bucket( hashCode, mask ) + 1];
+        for( var i = 1; i < start.length; ++i ) start [i] += start [i - 1];
+
+        final var position = new int [mask + 1];
+        System.arraycopy( start, 0, position, 0, position.length );
+        final var members = new int [hashCodes.length];
+        for( var i = 0; i < hashCodes.length; ++i ) members [position [bucket( hashCodes [i], mask )]++] = i;
+        final var retValue = new Buckets( start, members );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  buckets()
+
+    /**
+     *  Compares the given collections without regard to the order of their
+     *  elements.
+     *
+     *  @param  expected    The expected elements.
+     *  @param  actual  The actual elements.
+     *  @param  options The options for the comparison of the elements.
+     *  @return The result of the comparison.
+     */
+    static final ElementsDifference compare( final Collection<?> expected, final Collection<?> actual, final ReflectionOptions options )
+    {
+        final var expectedElements = expected.toArray();
+        final var actualElements = actual.toArray();
+        final var size = max( expectedElements.length, actualElements.length );
+        final var parallelism = (options.parallelism() > 1) && (size >= options.parallelThreshold()) ? options.parallelism() : 1;
+        final var elementOptions = options.withParallelism( 1 );
+
+        //---* Distribute the elements to the buckets *------------------------
+        final var expectedHashCodes = hashCodes( expectedElements, elementOptions, parallelism );
+        final var actualHashCodes = hashCodes( actualElements, elementOptions, parallelism );
+        final var bucketCount = size <= 1 ? 1 : (size > MAX_BUCKETS ? MAX_BUCKETS : highestOneBit( size - 1 ) << 1);
+        final var expectedBuckets = buckets( expectedHashCodes, bucketCount - 1 );
+        final var actualBuckets = buckets( actualHashCodes, bucketCount - 1 );
+
+        //---* Match the buckets *---------------------------------------------
+        final var matched = new boolean [expectedElements.length];
+        final var extra = new boolean [actualElements.length];
+        if( parallelism > 1 )
+        {
+            final var chunkSize = max( 1, bucketCount / (parallelism * CHUNKS_PER_THREAD) );
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for( var from = 0; from < bucketCount; from += chunkSize )
+            {
+                final var start = from;
+                final var end = min( bucketCount, from + chunkSize );
+                tasks.add( () ->
+                {
+                    match( start, end, expectedElements, expectedHashCodes, expectedBuckets, actualElements, actualHashCodes, actualBuckets, elementOptions, matched, extra );
+                    return null;
+                } );
+            }
+            ParallelComparison.invokeAll( parallelism, tasks );
+        }
+        else
+        {
+            match( 0, bucketCount, expectedElements, expectedHashCodes, expectedBuckets, actualElements, actualHashCodes, actualBuckets, elementOptions, matched, extra );
+        }
+
+        //---* Collect the results *-------------------------------------------
+        final var maxSamples = options.maxDifferences();
+        final List<Object> missingSamples = new ArrayList<>();
+        var missingCount = 0;
+        for( var i = 0; i < matched.length; ++i )
+        {
+            if( !matched [i] && (missingCount++ < maxSamples) ) missingSamples.add( expectedElements [i] );
+        }
+        final List<Object> extraSamples = new ArrayList<>();
+        var extraCount = 0;
+        for( var i = 0; i < extra.length; ++i )
+        {
+            if( extra [i] && (extraCount++ < maxSamples) ) extraSamples.add( actualElements [i] );
+        }
+        final var retValue = new ElementsDifference( missingCount, extraCount, missingSamples, extraSamples );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  compare()
+
+    /**
+     *  Calculates the hash code for the given element.
+     *
+     *  @param  element The element; may be {@code null}.
+     *  @param  options The options.
+     *  @return The hash code.
+     */
+    private static final int hashCode( final Object element, final ReflectionOptions options )
+    {
+        final var retValue = isNull( element ) || DeepComparison.isOpen( element.getClass() )
+            ? ReflectiveHashCode.hashCode( element, options )
+            : element.hashCode();
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashCode()
+
+    /**
+     *  Calculates the hash codes for the given elements.
+     *
+     *  @param  elements    The elements.
+     *  @param  options The options.
+     *  @param  parallelism The number of threads.
+     *  @return The hash codes.
+     */
+    private static final int [] hashCodes( final Object [] elements, final ReflectionOptions options, final int parallelism )
+    {
+        final var retValue = new int [elements.length];
+        if( parallelism > 1 )
+        {
+            final var chunkSize = max( 1, (elements.length + (parallelism * CHUNKS_PER_THREAD) - 1) / (parallelism * CHUNKS_PER_THREAD) );
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            for( var from = 0; from < elements.length; from += chunkSize )
+            {
+                final var start = from;
+                final var end = min( elements.length, from + chunkSize );
+                tasks.add( () ->
+                {
+                    for( var i = start; i < end; ++i ) retValue [i] = hashCode( elements [i], options );
+                    return null;
+                } );
+            }
+            ParallelComparison.invokeAll( parallelism, tasks );
+        }
+        else
+        {
+            for( var i = 0; i < elements.length; ++i ) retValue [i] = hashCode( elements [i], options );
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  hashCodes()
+
+    /**
+     *  Compares the given elements.
+     *
+     *  @param  expected    The expected element; may be {@code null}.
+     *  @param  actual  The actual element; may be {@code null}.
+     *  @param  options The options.
+     *  @return {@code true} if the elements are equal, {@code false}
+     *      otherwise.
+     */
+    private static final boolean isEqual( final Object expected, final Object actual, final ReflectionOptions options )
+    {
+        final var retValue = isNull( expected ) || DeepComparison.isOpen( expected.getClass() )
+            ? ReflectiveComparison.areEqual( expected, actual, options )
+            : expected.equals( actual );
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  isEqual()
+
+    /**
+     *  Matches the actual elements to the expected elements for the given
+     *  range of buckets. As each bucket is matched by exactly one call to
+     *  this method, the calls for disjoint ranges may run concurrently.
+     *
+     *  @param  from    The first bucket.
+     *  @param  to  The bucket after the last one.
+     *  @param  expectedElements    The expected elements.
+     *  @param  expectedHashCodes   The hash codes of the expected elements.
+     *  @param  expectedBuckets The buckets for the expected elements.
+     *  @param  actualElements  The actual elements.
+     *  @param  actualHashCodes The hash codes of the actual elements.
+     *  @param  actualBuckets   The buckets for the actual elements.
+     *  @param  options The options for the comparison of the elements.
+     *  @param  matched The flags for the expected elements that were matched;
+     *      will be updated.
+     *  @param  extra   The flags for the actual elements that do not have a
+     *      counterpart; will be updated.
+     */
+    @SuppressWarnings( "MethodWithTooManyParameters" )
+    private static final void match( final int from, final int to, final Object [] expectedElements, final int [] expectedHashCodes, final Buckets expectedBuckets, final Object [] actualElements, final int [] actualHashCodes, final Buckets actualBuckets, final ReflectionOptions options, final boolean [] matched, final boolean [] extra )
+    {
+        for( var bucket = from; bucket < to; ++bucket )
+        {
+            final var expectedStart = expectedBuckets.start() [bucket];
+            final var expectedEnd = expectedBuckets.start() [bucket + 1];
+            for( var i = actualBuckets.start() [bucket]; i < actualBuckets.start() [bucket + 1]; ++i )
+            {
+                final var actualIndex = actualBuckets.members() [i];
+                var found = false;
+                for( var j = expectedStart; (j < expectedEnd) && !found; ++j )
+                {
+                    final var expectedIndex = expectedBuckets.members() [j];
+                    if( !matched [expectedIndex] && (expectedHashCodes [expectedIndex] == actualHashCodes [actualIndex]) && isEqual( expectedElements [expectedIndex], actualElements [actualIndex], options ) )
+                    {
+                        matched [expectedIndex] = true;
+                        found = true;
+                    }
+                }
+                if( !found ) extra [actualIndex] = true;
+            }
+        }
+    }   //  match()
+}
+//  class UnorderedComparison
+
+/*
+ *  End of File
+ */
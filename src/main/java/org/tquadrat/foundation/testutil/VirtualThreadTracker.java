@@ -0,0 +1,282 @@
+/*
+ * ============================================================================
+ * Copyright © 2002-2024 by Thomas Thrien.
+ * All Rights Reserved.
+ * ============================================================================
+ *
+ * Licensed to the public under the agreements of the GNU Lesser General Public
+ * License, version 3.0 (the "License"). You may obtain a copy of the License at
+ *
+ *      http://www.gnu.org/licenses/lgpl.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.tquadrat.foundation.testutil;
+
+import static java.lang.String.format;
+import static java.lang.management.ManagementFactory.getPlatformMXBean;
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.HotSpotDiagnosticMXBean.ThreadDumpFormat;
+
+/**
+ *  Detects the virtual threads that are started while a test is running, and
+ *  that did not terminate until the end of the test.<br>
+ *  <br>Virtual threads are not reported by
+ *  {@link Thread#getAllStackTraces()}
+ *  or by
+ *  {@link java.lang.management.ThreadMXBean#getAllThreadIds()};
+ *  the only public API that lists them is
+ *  {@link HotSpotDiagnosticMXBean#dumpThreads(String, ThreadDumpFormat)}.
+ *  As this captures the stacks of all threads, it is called only once, at
+ *  the end of the test, and only if threads were created at all while the
+ *  test was running.<br>
+ *  <br>For that, the tracker relies on thread ids being assigned in
+ *  ascending order: on start, it creates a thread without starting it, and
+ *  remembers its id. All threads that were created after that have a larger
+ *  id; and if no thread was created, the next id is just the one after the
+ *  remembered one.<br>
+ *  <br>Virtual threads that are created directly, without an
+ *  {@link java.util.concurrent.ExecutorService},
+ *  are listed by the thread dump only as long as the system property
+ *  {@code jdk.trackAllThreads} is not set to {@code false}.
+ *
+ *  @extauthor Thomas Thrien - thomas.thrien@tquadrat.org
+ *  @version $Id$
+ *  @since 0.2.0
+ */
+final class VirtualThreadTracker
+{
+        /*-----------*\
+    ====** Constants **========================================================
+        \*-----------*/
+    /**
+     *  The maximum number of stack frames that are shown for a location:
+     *  {@value}.
+     */
+    private static final int MAX_FRAMES = 16;
+
+    /**
+     *  The maximum number of locations that are shown in the report:
+     *  {@value}.
+     */
+    private static final int MAX_LOCATIONS = 3;
+
+    /**
+     *  The maximum pause between two thread dumps, in nanoseconds:
+     *  {@value}.
+     */
+    private static final long MAX_PAUSE = 50_000_000L;
+
+    /**
+     *  The maximum number of left over threads whose stacks are evaluated
+     *  for the report: {@value}.
+     */
+    private static final int MAX_SAMPLES = 1_000;
+
+    /**
+     *  The initial pause between two thread dumps, in nanoseconds:
+     *  {@value}.
+     */
+    private static final long MIN_PAUSE = 1_000_000L;
+
+    /**
+     *  The suffix of the header line for a virtual thread in a thread dump:
+     *  {@value}.
+     */
+    private static final String VIRTUAL_SUFFIX = "\" virtual";
+
+        /*------------*\
+    ====** Attributes **=======================================================
+        \*------------*/
+    /**
+     *  The id of the thread that was created when the tracking started.
+     */
+    private final long m_StartThreadId;
+
+        /*--------------*\
+    ====** Constructors **=====================================================
+        \*--------------*/
+    /**
+     *  Creates a new {@code VirtualThreadTracker} instance, and starts the
+     *  tracking.
+     */
+    VirtualThreadTracker()
+    {
+        m_StartThreadId = nextThreadId();
+    }   //  VirtualThreadTracker()
+
+        /*---------*\
+    ====** Methods **==========================================================
+        \*---------*/
+    /**
+     *  Returns the report on the virtual threads that were started since the
+     *  tracking was started, but that did not terminate yet.<br>
+     *  <br>As long as the deadline has not passed, the thread dump is
+     *  repeated after increasing pauses, until all these threads have
+     *  terminated.
+     *
+     *  @param  deadline    The time until the threads may take to terminate,
+     *      as a value of
+     *      {@link System#nanoTime()}.
+     *  @param  isAllowed   Tells whether a thread with the given name may be
+     *      left over.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all virtual threads have
+     *      terminated.
+     *  @throws UncheckedIOException    The thread dump could not be
+     *      written or read.
+     */
+    final Optional<String> check( final long deadline, final Predicate<String> isAllowed )
+    {
+        Optional<String> retValue = Optional.empty();
+        if( nextThreadId() != m_StartThreadId + 1 )
+        {
+            try
+            {
+                var pause = MIN_PAUSE;
+                retValue = evaluateThreadDump( isAllowed );
+                while( retValue.isPresent() && (System.nanoTime() < deadline) && !Thread.currentThread().isInterrupted() )
+                {
+                    LockSupport.parkNanos( Math.min( pause, deadline - System.nanoTime() ) );
+                    pause = Math.min( pause * 2, MAX_PAUSE );
+                    retValue = evaluateThreadDump( isAllowed );
+                }
+            }
+            catch( final IOException e )
+            {
+                throw new UncheckedIOException( "Thread dump failed", e );
+            }
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  check()
+
+    /**
+     *  Takes a thread dump, and evaluates it for the virtual threads that
+     *  were started after the tracking was started.
+     *
+     *  @param  isAllowed   Tells whether a thread with the given name may be
+     *      left over.
+     *  @return An instance of
+     *      {@link Optional}
+     *      that holds the report; empty if all virtual threads have
+     *      terminated.
+     *  @throws IOException The thread dump could not be written or read.
+     */
+    @SuppressWarnings( "OverlyComplexMethod" )
+    private final Optional<String> evaluateThreadDump( final Predicate<String> isAllowed ) throws IOException
+    {
+        //---* The target file must not exist *-------------------------------
+        final var file = Files.createTempFile( "threads", ".txt" );
+        Files.delete( file );
+
+        var count = 0L;
+        final Collection<String> sample = new ArrayList<>();
+        try
+        {
+            getPlatformMXBean( HotSpotDiagnosticMXBean.class ).dumpThreads( file.toString(), ThreadDumpFormat.TEXT_PLAIN );
+            try( final var lines = Files.lines( file ) )
+            {
+                //---* null if the current thread is not sampled *------------
+                StringBuilder stack = null;
+                var frames = 0;
+                for( final var iterator = lines.iterator(); iterator.hasNext(); )
+                {
+                    final var line = iterator.next();
+                    if( line.startsWith( "#" ) )
+                    {
+                        final var threadId = Long.parseLong( line.substring( 1, line.indexOf( ' ' ) ) );
+                        if( line.endsWith( VIRTUAL_SUFFIX )
+                            && (threadId > m_StartThreadId)
+                            && !isAllowed.test( line.substring( line.indexOf( '"' ) + 1, line.length() - VIRTUAL_SUFFIX.length() ) )
+                            && (++count <= MAX_SAMPLES) )
+                        {
+                            stack = new StringBuilder();
+                            frames = 0;
+                        }
+                    }
+                    else if( nonNull( stack ) )
+                    {
+                        if( line.isBlank() )
+                        {
+                            sample.add( stack.isEmpty() ? format( "%n\t(not yet running)" ) : stack.toString() );
+                            stack = null;
+                        }
+                        else if( ++frames <= MAX_FRAMES )
+                        {
+                            stack.append( format( "%n\tat %s", line.strip() ) );
+                        }
+                        else if( frames == MAX_FRAMES + 1 )
+                        {
+                            stack.append( format( "%n\t..." ) );
+                        }
+                    }
+                }
+                if( nonNull( stack ) ) sample.add( stack.isEmpty() ? format( "%n\t(not yet running)" ) : stack.toString() );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( file );
+        }
+
+        final Optional<String> retValue;
+        if( count > 0 )
+        {
+            final var locations = sample.stream().collect( groupingBy( stack -> stack, counting() ) );
+            final var buffer = new StringBuilder( format( Locale.ROOT, "Detected %,d unexpected living virtual threads after test", count ) );
+            locations.entrySet()
+                .stream()
+                .sorted( comparingLong( Map.Entry<String,Long>::getValue ).reversed() )
+                .limit( MAX_LOCATIONS )
+                .forEach( entry -> buffer.append( format( Locale.ROOT, "%n%n%,d of %,d sampled threads are", entry.getValue(), sample.size() ) ).append( entry.getKey() ) );
+            if( locations.size() > MAX_LOCATIONS )
+            {
+                buffer.append( format( Locale.ROOT, "%n%n... %,d more locations", locations.size() - MAX_LOCATIONS ) );
+            }
+            retValue = Optional.of( buffer.toString() );
+        }
+        else
+        {
+            retValue = Optional.empty();
+        }
+
+        //---* Done *----------------------------------------------------------
+        return retValue;
+    }   //  evaluateThreadDump()
+
+    /**
+     *  Creates a thread without starting it, and returns its id.
+     *
+     *  @return The thread id.
+     */
+    private static final long nextThreadId() { return Thread.ofVirtual().unstarted( () -> {} ).threadId(); }
+}
+//  class VirtualThreadTracker
+
+/*
+ *  End of File
+ */